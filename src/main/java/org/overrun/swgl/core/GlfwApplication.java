@@ -26,7 +26,6 @@ package org.overrun.swgl.core;
 
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.opengl.GL;
-import org.lwjgl.opengl.GL11C;
 import org.lwjgl.system.APIUtil;
 import org.lwjgl.system.MemoryUtil;
 import org.overrun.swgl.core.asset.Asset;
@@ -210,6 +209,7 @@ public abstract class GlfwApplication extends Application {
             int frames = 0;
             double lastTime = Timer.getTime();
             while (!window.shouldClose()) {
+                GLStateMgr.newFrame();
                 updateTime();
                 update();
                 run();
@@ -341,7 +341,7 @@ public abstract class GlfwApplication extends Application {
 
     @Override
     public void onResize(int width, int height) {
-        GL11C.glViewport(0, 0, width, height);
+        GLStateMgr.viewport(0, 0, width, height);
     }
 
     /**
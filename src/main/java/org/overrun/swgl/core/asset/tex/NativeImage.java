@@ -30,7 +30,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import static org.lwjgl.stb.STBImage.*;
-import static org.lwjgl.system.MemoryUtil.memAlloc;
 import static org.lwjgl.system.MemoryUtil.memFree;
 import static org.overrun.swgl.core.cfg.GlobalConfig.getDebugLogger;
 
@@ -46,57 +45,74 @@ public class NativeImage implements AutoCloseable {
     private int defaultWidth, defaultHeight;
     private ByteBuffer buffer = null;
 
+    private ByteBuffer encoded = null;
+    private String name;
+
     public void load(String name,
                      IFileProvider provider) {
+        read(name, provider);
+        decode();
+    }
+
+    /**
+     * Reads the resource and the image size without decoding. This method can be called on any thread.
+     *
+     * @param name     the resource name
+     * @param provider the file provider
+     * @since 0.2.0
+     */
+    public void read(String name,
+                     IFileProvider provider) {
+        this.name = name;
+        encoded = null;
+        ByteBuffer bytes = null;
         try {
-            buffer = provider.resToBuffer(name, 8192);
+            bytes = provider.resToBuffer(name, 8192);
         } catch (IOException e) {
             getDebugLogger().error("Error reading resource to buffer!", e);
         }
-        buffer = asBuffer(buffer, name);
-    }
-
-    private ByteBuffer fail() {
-        width = (defaultWidth == 0 ? 16 : defaultWidth);
-        height = (defaultHeight == 0 ? 16 : defaultHeight);
-        int[] missingNo = new int[width * height];
-        final int hx = width >> 1;
-        final int hy = height >> 1;
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int index = x + y * width;
-                if (y < hy)
-                    missingNo[index] = x < hx ? 0xfff800f8 : 0xff000000;
-                else
-                    missingNo[index] = x < hx ? 0xff000000 : 0xfff800f8;
+        int[] xp = {0}, yp = {0}, cp = {0};
+        if (bytes != null && stbi_info_from_memory(bytes, xp, yp, cp)) {
+            encoded = bytes;
+            width = xp[0];
+            height = yp[0];
+        } else {
+            if (bytes != null) {
+                getDebugLogger().error("Failed to load image '{}'! Reason: {}",
+                    name,
+                    stbi_failure_reason());
             }
+            width = (defaultWidth == 0 ? 16 : defaultWidth);
+            height = (defaultHeight == 0 ? 16 : defaultHeight);
         }
-        var buffer = memAlloc(missingNo.length * 4);
-        buffer.asIntBuffer().put(missingNo).flip();
-        return buffer;
     }
 
-    private ByteBuffer asBuffer(ByteBuffer buffer,
-                                String name) {
-        if (buffer == null)
-            return fail();
+    /**
+     * Decodes the image {@link #read(String, IFileProvider) read}. The size is not changed;
+     * the missing texture is used if it can't be decoded. This method can be called on any thread.
+     *
+     * @since 0.2.0
+     */
+    public void decode() {
+        if (encoded == null) {
+            buffer = Texture2D.missingNo(width, height);
+            return;
+        }
         int[] xp = {0}, yp = {0}, cp = {0};
-        var ret = stbi_load_from_memory(
-            buffer,
+        buffer = stbi_load_from_memory(
+            encoded,
             xp,
             yp,
             cp,
             STBI_rgb_alpha);
-        if (ret == null) {
+        // The resource buffer is managed by the GC or mapped
+        encoded = null;
+        if (buffer == null) {
             getDebugLogger().error("Failed to load image '{}'! Reason: {}",
                 name,
                 stbi_failure_reason());
-            ret = fail();
-        } else {
-            width = xp[0];
-            height = yp[0];
+            buffer = Texture2D.missingNo(width, height);
         }
-        return ret;
     }
 
     public int width() {
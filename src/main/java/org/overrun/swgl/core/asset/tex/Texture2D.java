@@ -28,6 +28,7 @@ import org.jetbrains.annotations.Nullable;
 import org.lwjgl.opengl.GL;
 import org.overrun.swgl.core.asset.AssetManager;
 import org.overrun.swgl.core.asset.AssetTypes;
+import org.overrun.swgl.core.gl.GLPixelUnpackPool;
 import org.overrun.swgl.core.io.IFileProvider;
 
 import java.io.IOException;
@@ -50,6 +51,8 @@ import static org.overrun.swgl.core.gl.GLStateMgr.*;
  * @since 0.1.0
  */
 public class Texture2D extends Texture<Texture2D.UserPointer> {
+    @Nullable
+    private static GLPixelUnpackPool pixelUnpackPool = null;
     private int id;
     private boolean failed;
     private int width, height;
@@ -104,6 +107,26 @@ public class Texture2D extends Texture<Texture2D.UserPointer> {
     public interface UserPointer extends BiConsumer<Texture2D, ByteBuffer> {
     }
 
+    /**
+     * Sets the pixel unpack pool to stage the uploads of all 2D textures.
+     *
+     * @param pool the pool, or {@code null} to upload from the client memory
+     * @since 0.2.0
+     */
+    public static void setPixelUnpackPool(@Nullable GLPixelUnpackPool pool) {
+        pixelUnpackPool = pool;
+    }
+
+    /**
+     * Gets the pixel unpack pool to stage the uploads.
+     *
+     * @return the pool
+     * @since 0.2.0
+     */
+    public static Optional<GLPixelUnpackPool> getPixelUnpackPool() {
+        return Optional.ofNullable(pixelUnpackPool);
+    }
+
     public static Texture2D loadAsset(
         AssetManager mgr,
         String name,
@@ -251,6 +274,18 @@ public class Texture2D extends Texture<Texture2D.UserPointer> {
         failed = true;
         width = (defaultWidth == 0 ? 16 : defaultWidth);
         height = (defaultHeight == 0 ? 16 : defaultHeight);
+        return missingNo(width, height);
+    }
+
+    /**
+     * Creates the pixels of the missing texture.
+     *
+     * @param width  the width
+     * @param height the height
+     * @return the RGBA pixels; free it by {@code memFree}
+     * @since 0.2.0
+     */
+    static ByteBuffer missingNo(int width, int height) {
         int[] missingNo = new int[width * height];
         final int hx = width >> 1;
         final int hy = height >> 1;
@@ -291,6 +326,22 @@ public class Texture2D extends Texture<Texture2D.UserPointer> {
         return ret;
     }
 
+    /**
+     * Uploads the decoded RGBA pixels. Used by {@link TextureLoader}.
+     *
+     * @param pixels the pixels
+     * @param width  the width
+     * @param height the height
+     * @param failed is the missing texture
+     * @since 0.2.0
+     */
+    void upload(ByteBuffer pixels, int width, int height, boolean failed) {
+        this.width = width;
+        this.height = height;
+        this.failed = failed;
+        build(pixels);
+    }
+
     private void build(ByteBuffer buffer) {
         // Previous texture unit and id
         int lastUnit = getActiveTexture();
@@ -307,15 +358,26 @@ public class Texture2D extends Texture<Texture2D.UserPointer> {
         }
         if (param != null)
             param.pushToGL(GL_TEXTURE_2D);
-        glTexImage2D(GL_TEXTURE_2D,
-            0,
-            GL_RGBA,
-            width,
-            height,
-            0,
-            GL_RGBA,
-            GL_UNSIGNED_BYTE,
-            buffer);
+        if (pixelUnpackPool != null) {
+            pixelUnpackPool.texImage2D(GL_TEXTURE_2D,
+                0,
+                GL_RGBA,
+                width,
+                height,
+                GL_RGBA,
+                GL_UNSIGNED_BYTE,
+                buffer);
+        } else {
+            glTexImage2D(GL_TEXTURE_2D,
+                0,
+                GL_RGBA,
+                width,
+                height,
+                0,
+                GL_RGBA,
+                GL_UNSIGNED_BYTE,
+                buffer);
+        }
         if (mipmap != null) {
             mipmap.set(GL_TEXTURE_2D, buffer);
         }
@@ -0,0 +1,307 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.asset.tex;
+
+import org.jetbrains.annotations.Nullable;
+import org.overrun.swgl.core.asset.AssetManager;
+import org.overrun.swgl.core.io.IFileProvider;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.overrun.swgl.core.cfg.GlobalConfig.getDebugLogger;
+
+/**
+ * The asynchronous texture loader.
+ * <p>
+ * The images are read and decoded on the executor, and the decoded pixels are queued.
+ * The render thread uploads them with {@link #upload(long)} in a time budget every frame.
+ * </p>
+ * <p>
+ * The texture returned by {@link #load(String, IFileProvider, Texture2D.UserPointer) load}
+ * has its id at once, holding a 1x1 placeholder until the pixels are uploaded;
+ * its future completes when the texture is resident.
+ * The user pointer is called on the render thread before uploading.
+ * If the image can't be read or decoded, the missing texture is used like
+ * {@link Texture2D#reload(String, IFileProvider, Texture2D.UserPointer) reload}.
+ * </p>
+ * <h4>Example</h4>
+ * <pre>{@code var loader = new TextureLoader(ForkJoinPool.commonPool());
+ * // render thread
+ * var future = loader.load("dirt.png", provider, null);
+ * // render thread, every frame; 2 ms
+ * loader.upload(2_000_000L);}</pre>
+ * <p>
+ * On Java 21 or later, {@code Executors.newVirtualThreadPerTaskExecutor()} can be used as the executor.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class TextureLoader implements AutoCloseable {
+    private final Executor executor;
+    private final Queue<Decoded> decoded = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger decodingCount = new AtomicInteger();
+    private int placeholderColor = 0xffffffff;
+    private volatile boolean closed = false;
+
+    private record Decoded(Texture2D texture,
+                           @Nullable Texture2D.UserPointer pointer,
+                           ByteBuffer pixels,
+                           int width,
+                           int height,
+                           boolean failed,
+                           CompletableFuture<Texture2D> future) {
+    }
+
+    /**
+     * Create the texture loader.
+     *
+     * @param executor the executor to read and decode the images
+     */
+    public TextureLoader(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the color of the placeholders.
+     *
+     * @param placeholderColor the color in ABGR, as the bytes of RGBA in little-endian
+     */
+    public void setPlaceholderColor(int placeholderColor) {
+        this.placeholderColor = placeholderColor;
+    }
+
+    public int getPlaceholderColor() {
+        return placeholderColor;
+    }
+
+    /**
+     * Loads a texture asynchronously. Call this on the render thread.
+     *
+     * @param name     the resource name
+     * @param provider the file provider
+     * @param pointer  the user pointer
+     * @return the future completed when the texture is resident
+     */
+    public CompletableFuture<Texture2D> load(String name,
+                                             IFileProvider provider,
+                                             @Nullable Texture2D.UserPointer pointer) {
+        return load(new Texture2D(), name, provider, pointer);
+    }
+
+    /**
+     * Loads a texture asynchronously and manage it with an asset manager. Call this on the render thread.
+     *
+     * @param manager  the asset manager
+     * @param name     the resource name
+     * @param provider the file provider
+     * @param pointer  the user pointer
+     * @return the future completed when the texture is resident
+     */
+    public CompletableFuture<Texture2D> load(AssetManager manager,
+                                             String name,
+                                             IFileProvider provider,
+                                             @Nullable Texture2D.UserPointer pointer) {
+        var texture = new Texture2D();
+        manager.addAsset(name, texture);
+        return load(texture, name, provider, pointer);
+    }
+
+    /**
+     * Loads the image into a texture asynchronously. Call this on the render thread.
+     * <p>
+     * The texture holds the placeholder until the pixels are uploaded.
+     * </p>
+     *
+     * @param texture  the texture
+     * @param name     the resource name
+     * @param provider the file provider
+     * @param pointer  the user pointer
+     * @return the future completed when the texture is resident
+     */
+    public CompletableFuture<Texture2D> load(Texture2D texture,
+                                             String name,
+                                             IFileProvider provider,
+                                             @Nullable Texture2D.UserPointer pointer) {
+        if (closed) {
+            throw new IllegalStateException("The texture loader is closed!");
+        }
+        var placeholder = memAlloc(4).putInt(0, placeholderColor);
+        try {
+            texture.upload(placeholder, 1, 1, false);
+        } finally {
+            memFree(placeholder);
+        }
+        final int defaultWidth = texture.defaultWidth == 0 ? 16 : texture.defaultWidth;
+        final int defaultHeight = texture.defaultHeight == 0 ? 16 : texture.defaultHeight;
+        var future = new CompletableFuture<Texture2D>();
+        decodingCount.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    decode(texture, name, provider, pointer, defaultWidth, defaultHeight, future);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    decodingCount.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            decodingCount.decrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+
+    private void decode(Texture2D texture,
+                        String name,
+                        IFileProvider provider,
+                        @Nullable Texture2D.UserPointer pointer,
+                        int defaultWidth,
+                        int defaultHeight,
+                        CompletableFuture<Texture2D> future) {
+        ByteBuffer buffer = null;
+        try {
+            buffer = provider.resToBuffer(name, 8192);
+        } catch (IOException e) {
+            getDebugLogger().error("Error reading resource to buffer!", e);
+        }
+        ByteBuffer pixels = null;
+        int[] xp = {0}, yp = {0}, cp = {0};
+        // The resource buffer is managed by the GC or mapped; don't free it
+        if (buffer != null) {
+            pixels = stbi_load_from_memory(buffer, xp, yp, cp, STBI_rgb_alpha);
+            if (pixels == null) {
+                getDebugLogger().error("Failed to load image '{}'! Reason: {}",
+                    name,
+                    stbi_failure_reason());
+            }
+        }
+        Decoded result;
+        if (pixels == null) {
+            result = new Decoded(texture, pointer, Texture2D.missingNo(defaultWidth, defaultHeight),
+                defaultWidth, defaultHeight, true, future);
+        } else {
+            result = new Decoded(texture, pointer, pixels, xp[0], yp[0], false, future);
+        }
+        decoded.add(result);
+        // Closed while decoding
+        if (closed && decoded.remove(result)) {
+            free(result);
+            future.cancel(false);
+        }
+    }
+
+    private static void free(Decoded result) {
+        if (result.failed()) {
+            memFree(result.pixels());
+        } else {
+            stbi_image_free(result.pixels());
+        }
+    }
+
+    /**
+     * Uploads the decoded textures in a time budget. Call this on the render thread.
+     * <p>
+     * At least one texture is uploaded if any is decoded.
+     * </p>
+     *
+     * @param budgetNanos the time budget in nanoseconds; non-positive for all
+     * @return the count of the uploaded textures
+     */
+    public int upload(long budgetNanos) {
+        final long start = System.nanoTime();
+        int count = 0;
+        Decoded result;
+        while ((result = decoded.poll()) != null) {
+            final var texture = result.texture();
+            try {
+                if (result.pointer() != null) {
+                    result.pointer().accept(texture, result.pixels());
+                }
+                texture.upload(result.pixels(), result.width(), result.height(), result.failed());
+                result.future().complete(texture);
+            } catch (Throwable t) {
+                result.future().completeExceptionally(t);
+            } finally {
+                free(result);
+            }
+            ++count;
+            if (budgetNanos > 0 && System.nanoTime() - start >= budgetNanos)
+                break;
+        }
+        return count;
+    }
+
+    /**
+     * Uploads all decoded textures. Call this on the render thread.
+     *
+     * @return the count of the uploaded textures
+     */
+    public int uploadAll() {
+        return upload(0);
+    }
+
+    /**
+     * Gets the count of the textures being read or decoded.
+     *
+     * @return the decoding count
+     */
+    public int getDecodingCount() {
+        return decodingCount.get();
+    }
+
+    /**
+     * Gets the count of the decoded textures waiting for uploading.
+     *
+     * @return the pending count
+     */
+    public int getPendingCount() {
+        return decoded.size();
+    }
+
+    /**
+     * Close this loader. The textures not uploaded are dropped and their futures are cancelled;
+     * the textures keep the placeholders.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        Decoded result;
+        while ((result = decoded.poll()) != null) {
+            free(result);
+            result.future().cancel(false);
+        }
+    }
+}
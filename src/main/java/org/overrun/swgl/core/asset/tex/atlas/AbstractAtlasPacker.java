@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.asset.tex.atlas;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The base of the packers placing the slots in a bounded bin.
+ * <p>
+ * The slots are sorted by the longer side in descending order and inserted one by one.
+ * The bin starts as the square of the total area; if a slot doesn't fit, the bin is enlarged
+ * by {@link #GROWTH} on the shorter side and the slots are packed again. The atlas size is the bounds of the
+ * placed slots. Each slot occupies its size plus the
+ * {@link #extrusion(int) extrusion} on each side and the {@link #padding(int) padding}
+ * on the right and the bottom, rounded up to the alignment.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public abstract class AbstractAtlasPacker implements IAtlasPacker {
+    /**
+     * The factor to enlarge the bin by when the slots don't fit.
+     */
+    public static final double GROWTH = 1.01;
+    private static final int MAX_ATTEMPTS = 48;
+    private static final Comparator<AtlasSpriteSlot> ORDER =
+        Comparator.<AtlasSpriteSlot>comparingInt(slot -> Math.max(slot.w, slot.h))
+            .thenComparingInt(slot -> Math.min(slot.w, slot.h))
+            .reversed();
+    private boolean allowRotation = false;
+    private int padding = 0;
+    private int extrusion = 0;
+    private AtlasPackStats stats = AtlasPackStats.EMPTY;
+
+    /**
+     * Resets the packer to an empty bin.
+     *
+     * @param binWidth  the bin width
+     * @param binHeight the bin height
+     */
+    protected abstract void reset(int binWidth, int binHeight);
+
+    /**
+     * Inserts a rectangle.
+     *
+     * @param width         the width
+     * @param height        the height
+     * @param allowRotation can the rectangle be rotated by 90 degrees
+     * @param out           the output of {@code x}, {@code y} and {@code 1} if rotated else {@code 0}
+     * @return {@code true} if the rectangle is placed
+     */
+    protected abstract boolean insert(int width, int height, boolean allowRotation, int[] out);
+
+    private static int alignUp(int value, int alignment) {
+        return (value + alignment - 1) & -alignment;
+    }
+
+    @Override
+    public final AtlasPackStats pack(List<AtlasSpriteSlot> slots, int alignment) {
+        if (alignment <= 0 || (alignment & (alignment - 1)) != 0) {
+            throw new IllegalArgumentException("The alignment must be a power of two; got " + alignment);
+        }
+        final long start = System.nanoTime();
+        final var sorted = slots.toArray(AtlasSpriteSlot[]::new);
+        Arrays.sort(sorted, ORDER);
+        final int border = extrusion * 2 + padding;
+
+        long area = 0;
+        int minWidth = 0;
+        for (var slot : sorted) {
+            final int w = alignUp(slot.w + border, alignment);
+            final int h = alignUp(slot.h + border, alignment);
+            area += (long) w * h;
+            minWidth = Math.max(minWidth, allowRotation ? Math.min(w, h) : w);
+        }
+        int binWidth = Math.max(alignUp((int) Math.ceil(Math.sqrt(area)), alignment), minWidth);
+        int binHeight = binWidth;
+
+        final int[] out = new int[3];
+        int width, height, packed;
+        long spriteArea;
+        for (int attempt = 1; ; attempt++) {
+            // Never fails with the unbounded height
+            final boolean last = attempt >= MAX_ATTEMPTS;
+            reset(binWidth, last ? Integer.MAX_VALUE >> 2 : binHeight);
+            width = 0;
+            height = 0;
+            packed = 0;
+            spriteArea = 0;
+            boolean failed = false;
+            for (var slot : sorted) {
+                final int w = alignUp(slot.w + border, alignment);
+                final int h = alignUp(slot.h + border, alignment);
+                if (insert(w, h, allowRotation, out)) {
+                    final boolean rotated = out[2] != 0;
+                    slot.rotated = rotated;
+                    slot.fit = new Node(out[0] + extrusion,
+                        out[1] + extrusion,
+                        rotated ? slot.h : slot.w,
+                        rotated ? slot.w : slot.h);
+                    width = Math.max(width, out[0] + (rotated ? h : w));
+                    height = Math.max(height, out[1] + (rotated ? w : h));
+                    ++packed;
+                    spriteArea += (long) slot.w * slot.h;
+                } else {
+                    slot.fit = null;
+                    slot.rotated = false;
+                    failed = true;
+                    if (!last)
+                        break;
+                }
+            }
+            if (!failed || last)
+                break;
+            // Enlarge the sides in turn to keep the bin square
+            if (binWidth <= binHeight) {
+                binWidth = Math.max(alignUp((int) Math.ceil(binWidth * GROWTH), alignment), binWidth + alignment);
+            } else {
+                binHeight = Math.max(alignUp((int) Math.ceil(binHeight * GROWTH), alignment), binHeight + alignment);
+            }
+        }
+        stats = new AtlasPackStats(sorted.length, packed, width, height, spriteArea, System.nanoTime() - start);
+        return stats;
+    }
+
+    @Override
+    public AtlasPackStats packStats() {
+        return stats;
+    }
+
+    /**
+     * Sets whether the slots can be rotated by 90 degrees clockwise. The {@link AtlasSpriteSlot#rotated rotated}
+     * slots have the width and height of the {@link AtlasSpriteSlot#fit fit} swapped.
+     *
+     * @param allowRotation allow rotation
+     * @return this
+     */
+    public AbstractAtlasPacker allowRotation(boolean allowRotation) {
+        this.allowRotation = allowRotation;
+        return this;
+    }
+
+    public boolean allowRotation() {
+        return allowRotation;
+    }
+
+    /**
+     * Sets the gap between the slots.
+     *
+     * @param padding the padding in pixels
+     * @return this
+     */
+    public AbstractAtlasPacker padding(int padding) {
+        if (padding < 0) {
+            throw new IllegalArgumentException("The padding must be non-negative; got " + padding);
+        }
+        this.padding = padding;
+        return this;
+    }
+
+    public int padding() {
+        return padding;
+    }
+
+    /**
+     * Sets the pixels reserved around each slot to extrude the sprite edges into,
+     * to avoid the bleeding of the linear filtering.
+     *
+     * @param extrusion the extrusion in pixels
+     * @return this
+     */
+    public AbstractAtlasPacker extrusion(int extrusion) {
+        if (extrusion < 0) {
+            throw new IllegalArgumentException("The extrusion must be non-negative; got " + extrusion);
+        }
+        this.extrusion = extrusion;
+        return this;
+    }
+
+    @Override
+    public int extrusion() {
+        return extrusion;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.asset.tex.atlas;
+
+/**
+ * The statistics of an atlas packing.
+ *
+ * @param slotCount   the count of the slots
+ * @param packedCount the count of the placed slots
+ * @param width       the atlas width
+ * @param height      the atlas height
+ * @param spriteArea  the total area of the placed sprites, excluding padding and extrusion
+ * @param packNanos   the time spent in nanoseconds
+ * @author squid233
+ * @since 0.2.0
+ */
+public record AtlasPackStats(int slotCount,
+                             int packedCount,
+                             int width,
+                             int height,
+                             long spriteArea,
+                             long packNanos) {
+    /**
+     * The statistics before packing.
+     */
+    public static final AtlasPackStats EMPTY = new AtlasPackStats(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Gets the ratio of the sprite area to the atlas area.
+     *
+     * @return the occupancy in [0, 1]
+     */
+    public float occupancy() {
+        final long area = (long) width * height;
+        return area > 0 ? (float) ((double) spriteArea / area) : 0.0f;
+    }
+
+    /**
+     * Gets the time spent in milliseconds.
+     *
+     * @return the pack time
+     */
+    public double packMillis() {
+        return packNanos / 1_000_000.0;
+    }
+}
@@ -35,6 +35,12 @@ import java.util.StringJoiner;
 public class AtlasSpriteSlot implements Comparable<AtlasSpriteSlot> {
     public Node fit;
     public int w, h;
+    /**
+     * {@code true} if the slot is rotated by 90 degrees clockwise by the packer.
+     *
+     * @since 0.2.0
+     */
+    public boolean rotated;
 
     /**
      * Construct with the params fit node and position
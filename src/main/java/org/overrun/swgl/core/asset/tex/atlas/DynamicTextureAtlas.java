@@ -0,0 +1,496 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.asset.tex.atlas;
+
+import org.jetbrains.annotations.Nullable;
+import org.overrun.swgl.core.asset.tex.Texture2D;
+import org.overrun.swgl.core.asset.tex.TextureParam;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.lwjgl.opengl.GL12C.*;
+import static org.overrun.swgl.core.gl.GLStateMgr.*;
+
+/**
+ * The texture atlas accepting the sprites at runtime, such as the glyph caches.
+ * <p>
+ * Each page is a {@link Texture2D} whose free space is managed in shelves. A sprite is
+ * {@link #put(String, int, int, ByteBuffer) put} into the free space with {@code glTexSubImage2D};
+ * when all pages are full and no more page can be created, the least-recently-used sprites are evicted.
+ * The sprites {@link #get(String) used} in the current {@link #newFrame() frame} are never evicted.
+ * </p>
+ * <p>
+ * The {@link Sprite sprite handle} of a key is stable until the key is {@link #remove(String) removed};
+ * an evicted sprite keeps its handle and becomes resident again when it is put again.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class DynamicTextureAtlas implements AutoCloseable {
+    private final int pageSize;
+    private final int maxPages;
+    private final List<Page> pages = new ArrayList<>();
+    private final Map<String, Sprite> handles = new HashMap<>();
+    // Access-ordered, the eldest is the least recently used
+    private final LinkedHashMap<String, Sprite> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private TextureParam pageParam = new TextureParam()
+        .minFilter(GL_NEAREST)
+        .magFilter(GL_NEAREST)
+        .wrapS(GL_CLAMP_TO_EDGE)
+        .wrapT(GL_CLAMP_TO_EDGE);
+    private int padding = 1;
+    private long frame = 0;
+    private int evictionCount = 0;
+    @Nullable
+    private Consumer<Sprite> evictionListener = null;
+
+    /**
+     * The sprite handle.
+     *
+     * @author squid233
+     * @since 0.2.0
+     */
+    public static final class Sprite {
+        private final String key;
+        private Page page;
+        private Shelf shelf;
+        private int x, y, width, height;
+        private float u0, v0, u1, v1;
+        private boolean resident = false;
+        private long lastFrame;
+
+        private Sprite(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns {@code true} if the sprite is in the atlas. The position and the UVs are valid only if resident.
+         *
+         * @return is resident
+         */
+        public boolean isResident() {
+            return resident;
+        }
+
+        public int getPageIndex() {
+            return page.index;
+        }
+
+        public Texture2D getTexture() {
+            return page.texture;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public float getU0() {
+            return u0;
+        }
+
+        public float getV0() {
+            return v0;
+        }
+
+        public float getU1() {
+            return u1;
+        }
+
+        public float getV1() {
+            return v1;
+        }
+    }
+
+    /**
+     * A row of the page. The free spans are keyed by the x.
+     */
+    private static final class Shelf {
+        private final int y, height, pageSize;
+        private final TreeMap<Integer, Integer> spans = new TreeMap<>();
+
+        private Shelf(int y, int height, int pageSize) {
+            this.y = y;
+            this.height = height;
+            this.pageSize = pageSize;
+            spans.put(0, pageSize);
+        }
+
+        private boolean isEmpty() {
+            return spans.size() == 1 && spans.firstEntry().getValue() == pageSize;
+        }
+
+        private int find(int width) {
+            for (var e : spans.entrySet()) {
+                if (e.getValue() >= width)
+                    return e.getKey();
+            }
+            return -1;
+        }
+
+        private void take(int x, int width) {
+            final int spanWidth = spans.remove(x);
+            if (spanWidth > width) {
+                spans.put(x + width, spanWidth - width);
+            }
+        }
+
+        private void release(int x, int width) {
+            var next = spans.ceilingEntry(x + width);
+            if (next != null && next.getKey() == x + width) {
+                width += next.getValue();
+                spans.remove(next.getKey());
+            }
+            var prev = spans.floorEntry(x);
+            if (prev != null && prev.getKey() + prev.getValue() == x) {
+                x = prev.getKey();
+                width += prev.getValue();
+            }
+            spans.put(x, width);
+        }
+    }
+
+    private final class Page {
+        private final int index;
+        private final Texture2D texture;
+        private final List<Shelf> shelves = new ArrayList<>();
+        private int top = 0;
+        private long usedArea = 0;
+
+        private Page(int index) {
+            this.index = index;
+            texture = new Texture2D();
+            texture.setMipmap(null);
+            texture.setParam(pageParam);
+            texture.loadEmpty(pageSize, pageSize);
+        }
+
+        private Shelf findShelf(int w, int h, boolean limitWaste) {
+            Shelf best = null;
+            for (var shelf : shelves) {
+                if (h > shelf.height || (best != null && shelf.height >= best.height))
+                    continue;
+                if (limitWaste && !shelf.isEmpty() && shelf.height > h + (h >> 1))
+                    continue;
+                if (shelf.find(w) >= 0)
+                    best = shelf;
+            }
+            return best;
+        }
+
+        private boolean allocate(Sprite sprite, int w, int h) {
+            var shelf = findShelf(w, h, true);
+            if (shelf == null && top + h <= pageSize) {
+                shelf = new Shelf(top, Math.min((h + 3) & -4, pageSize - top), pageSize);
+                shelves.add(shelf);
+                top += shelf.height;
+            }
+            if (shelf == null) {
+                shelf = findShelf(w, h, false);
+                if (shelf == null)
+                    return false;
+            }
+            final int x = shelf.find(w);
+            shelf.take(x, w);
+            usedArea += (long) w * h;
+            sprite.page = this;
+            sprite.shelf = shelf;
+            sprite.x = x;
+            sprite.y = shelf.y;
+            return true;
+        }
+
+        private void release(Sprite sprite) {
+            final int w = sprite.width + padding, h = sprite.height + padding;
+            sprite.shelf.release(sprite.x, w);
+            usedArea -= (long) w * h;
+            // Lower the top over the empty shelves
+            for (int i = shelves.size() - 1; i >= 0; i--) {
+                var shelf = shelves.get(i);
+                if (!shelf.isEmpty() || shelf.y + shelf.height != top)
+                    break;
+                shelves.remove(i);
+                top = shelf.y;
+            }
+        }
+    }
+
+    /**
+     * Create the dynamic atlas.
+     *
+     * @param pageSize the width and height of a page
+     * @param maxPages the max count of the pages
+     */
+    public DynamicTextureAtlas(int pageSize, int maxPages) {
+        if (pageSize <= 0 || maxPages <= 0) {
+            throw new IllegalArgumentException("The page size and count must be positive; got " + pageSize + " and " + maxPages);
+        }
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Advances the frame. The sprites used in the last frame can be evicted again.
+     */
+    public void newFrame() {
+        ++frame;
+    }
+
+    /**
+     * Puts the sprite. If the key is resident with the same size, the pixels are replaced in place.
+     *
+     * @param key    the key
+     * @param width  the width
+     * @param height the height
+     * @param pixels the RGBA pixels from the position
+     * @return the sprite handle
+     * @throws IllegalStateException if all sprites that can be evicted are used in this frame
+     */
+    public Sprite put(String key, int width, int height, ByteBuffer pixels) {
+        if (width <= 0 || height <= 0 || width + padding > pageSize || height + padding > pageSize) {
+            throw new IllegalArgumentException("The sprite size " + width + "x" + height + " doesn't fit the page size " + pageSize);
+        }
+        if (pixels.remaining() < width * height * 4) {
+            throw new IllegalArgumentException("Not enough pixels for " + width + "x" + height);
+        }
+        var sprite = handles.computeIfAbsent(key, Sprite::new);
+        if (sprite.resident && (sprite.width != width || sprite.height != height)) {
+            release(sprite);
+        }
+        if (!sprite.resident) {
+            allocate(sprite, width, height);
+            sprite.width = width;
+            sprite.height = height;
+            sprite.u0 = sprite.x / (float) pageSize;
+            sprite.v0 = sprite.y / (float) pageSize;
+            sprite.u1 = (sprite.x + width) / (float) pageSize;
+            sprite.v1 = (sprite.y + height) / (float) pageSize;
+            sprite.resident = true;
+        }
+        resident.put(key, sprite);
+        sprite.lastFrame = frame;
+        upload(sprite, pixels);
+        return sprite;
+    }
+
+    private void allocate(Sprite sprite, int width, int height) {
+        final int w = width + padding, h = height + padding;
+        for (var page : pages) {
+            if (page.allocate(sprite, w, h))
+                return;
+        }
+        if (pages.size() < maxPages) {
+            var page = new Page(pages.size());
+            pages.add(page);
+            if (page.allocate(sprite, w, h))
+                return;
+        }
+        for (var it = resident.values().iterator(); it.hasNext(); ) {
+            var victim = it.next();
+            if (victim.lastFrame == frame)
+                break;
+            it.remove();
+            final var page = victim.page;
+            page.release(victim);
+            victim.resident = false;
+            ++evictionCount;
+            if (evictionListener != null) {
+                evictionListener.accept(victim);
+            }
+            if (page.allocate(sprite, w, h))
+                return;
+        }
+        throw new IllegalStateException("The atlas is full of the sprites used in this frame");
+    }
+
+    private void release(Sprite sprite) {
+        sprite.page.release(sprite);
+        sprite.resident = false;
+        resident.remove(sprite.key);
+    }
+
+    private void upload(Sprite sprite, ByteBuffer pixels) {
+        int lastUnit = getActiveTexture();
+        int lastId = get2DTextureId();
+        bindTexture2D(0, sprite.page.texture.getId());
+        var pool = Texture2D.getPixelUnpackPool();
+        if (pool.isPresent()) {
+            pool.get().texSubImage2D(GL_TEXTURE_2D, 0, sprite.x, sprite.y, sprite.width, sprite.height,
+                GL_RGBA, GL_UNSIGNED_BYTE, pixels.slice(pixels.position(), sprite.width * sprite.height * 4));
+        } else {
+            glTexSubImage2D(GL_TEXTURE_2D, 0, sprite.x, sprite.y, sprite.width, sprite.height,
+                GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        }
+        bindTexture2D(lastUnit, lastId);
+    }
+
+    /**
+     * Gets the resident sprite and marks it used in this frame.
+     *
+     * @param key the key
+     * @return the sprite, or {@code null} if not resident
+     */
+    @Nullable
+    public Sprite get(String key) {
+        var sprite = resident.get(key);
+        if (sprite != null) {
+            sprite.lastFrame = frame;
+        }
+        return sprite;
+    }
+
+    /**
+     * Gets the sprite handle without marking it used.
+     *
+     * @param key the key
+     * @return the sprite handle, or {@code null} if never put or removed
+     */
+    @Nullable
+    public Sprite getHandle(String key) {
+        return handles.get(key);
+    }
+
+    /**
+     * Removes the sprite and its handle.
+     *
+     * @param key the key
+     */
+    public void remove(String key) {
+        var sprite = handles.remove(key);
+        if (sprite != null && sprite.resident) {
+            release(sprite);
+        }
+    }
+
+    /**
+     * Sets the texture parameters of the new pages.
+     *
+     * @param pageParam the texture parameters
+     */
+    public void setPageParam(TextureParam pageParam) {
+        this.pageParam = pageParam;
+    }
+
+    public TextureParam getPageParam() {
+        return pageParam;
+    }
+
+    /**
+     * Sets the gap on the right and the bottom of the new sprites, to avoid the bleeding of the filtering.
+     *
+     * @param padding the padding in pixels; default to 1
+     */
+    public void setPadding(int padding) {
+        if (padding < 0) {
+            throw new IllegalArgumentException("The padding must be non-negative; got " + padding);
+        }
+        if (!resident.isEmpty()) {
+            throw new IllegalStateException("The padding can't be changed with resident sprites");
+        }
+        this.padding = padding;
+    }
+
+    public int getPadding() {
+        return padding;
+    }
+
+    /**
+     * Sets the action called when a sprite is evicted.
+     *
+     * @param evictionListener the action
+     */
+    public void setEvictionListener(@Nullable Consumer<Sprite> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public Texture2D getPage(int index) {
+        return pages.get(index).texture;
+    }
+
+    public int getSpriteCount() {
+        return resident.size();
+    }
+
+    public int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Gets the ratio of the used area, including the padding, to the area of all pages.
+     *
+     * @return the occupancy
+     */
+    public float getOccupancy() {
+        if (pages.isEmpty())
+            return 0.0f;
+        long used = 0;
+        for (var page : pages) {
+            used += page.usedArea;
+        }
+        return (float) ((double) used / ((long) pageSize * pageSize * pages.size()));
+    }
+
+    @Override
+    public void close() {
+        for (var page : pages) {
+            page.texture.close();
+        }
+        pages.clear();
+        resident.clear();
+        for (var sprite : handles.values()) {
+            sprite.resident = false;
+        }
+        handles.clear();
+    }
+}
@@ -86,9 +86,10 @@ import java.util.*;
  * @author squid233
  * @since 0.2.0
  */
-public class GrowingPacker {
+public class GrowingPacker implements IAtlasPacker {
     public static final Comparator<AtlasSpriteSlot> COMPARATOR = Comparator.comparing(slot -> slot);
     public Node root;
+    private AtlasPackStats stats = AtlasPackStats.EMPTY;
 
     public void fit(AtlasSpriteSlot... slots) {
         Arrays.sort(slots, COMPARATOR);
@@ -140,6 +141,48 @@ public class GrowingPacker {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sizes of the slots are rounded up to the alignment while fitting.
+     * </p>
+     */
+    @Override
+    public AtlasPackStats pack(List<AtlasSpriteSlot> slots, int alignment) {
+        if (alignment <= 0 || (alignment & (alignment - 1)) != 0) {
+            throw new IllegalArgumentException("The alignment must be a power of two; got " + alignment);
+        }
+        final long start = System.nanoTime();
+        final int[] sizes = new int[slots.size() << 1];
+        for (int i = 0; i < slots.size(); i++) {
+            var slot = slots.get(i);
+            sizes[i << 1] = slot.w;
+            sizes[(i << 1) + 1] = slot.h;
+            slot.w = (slot.w + alignment - 1) & -alignment;
+            slot.h = (slot.h + alignment - 1) & -alignment;
+        }
+        fit(new ArrayList<>(slots));
+        int packed = 0;
+        long spriteArea = 0;
+        for (int i = 0; i < slots.size(); i++) {
+            var slot = slots.get(i);
+            slot.w = sizes[i << 1];
+            slot.h = sizes[(i << 1) + 1];
+            slot.rotated = false;
+            if (slot.fit != null) {
+                ++packed;
+                spriteArea += (long) slot.w * slot.h;
+            }
+        }
+        stats = new AtlasPackStats(slots.size(), packed, root.w, root.h, spriteArea, System.nanoTime() - start);
+        return stats;
+    }
+
+    @Override
+    public AtlasPackStats packStats() {
+        return stats;
+    }
+
     @Nullable
     public Node findNode(Node root,
                          int w,
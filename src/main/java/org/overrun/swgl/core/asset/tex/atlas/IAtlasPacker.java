@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.asset.tex.atlas;
+
+import java.util.List;
+
+/**
+ * The atlas packer. The packer places the {@link AtlasSpriteSlot slots} in an atlas
+ * whose size is determined by the packer.
+ *
+ * @author squid233
+ * @see MaxRectsPacker
+ * @see SkylinePacker
+ * @see GrowingPacker
+ * @since 0.2.0
+ */
+public interface IAtlasPacker {
+    /**
+     * Packs the slots. The {@link AtlasSpriteSlot#fit fit} of each placed slot is set to
+     * the sprite position; it is {@code null} if the slot is not placed.
+     * <p>
+     * The positions of the slots and the atlas size are multiples of the alignment,
+     * so the sprites are not mixed in the mipmaps of the levels up to {@code log2(alignment)}.
+     * </p>
+     *
+     * @param slots     the slots
+     * @param alignment the alignment in pixels; must be a power of two
+     * @return the statistics of this packing
+     */
+    AtlasPackStats pack(List<AtlasSpriteSlot> slots, int alignment);
+
+    /**
+     * Packs the slots without alignment.
+     *
+     * @param slots the slots
+     * @return the statistics of this packing
+     */
+    default AtlasPackStats pack(List<AtlasSpriteSlot> slots) {
+        return pack(slots, 1);
+    }
+
+    /**
+     * Gets the statistics of the last packing.
+     *
+     * @return the statistics, or {@link AtlasPackStats#EMPTY} if never packed
+     */
+    AtlasPackStats packStats();
+
+    /**
+     * Gets the pixels reserved around each sprite to extrude its edges into.
+     *
+     * @return the extrusion in pixels
+     */
+    default int extrusion() {
+        return 0;
+    }
+}
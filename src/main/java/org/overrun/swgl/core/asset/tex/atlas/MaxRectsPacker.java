@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.asset.tex.atlas;
+
+import java.util.Arrays;
+
+/**
+ * The MaxRects packer with the best-short-side-fit heuristic.
+ * <p>
+ * The packer keeps the maximal free rectangles. A slot goes into the free rectangle
+ * leaving the shortest leftover side, then every free rectangle intersecting it is split,
+ * and the new rectangles contained in other new ones are pruned.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class MaxRectsPacker extends AbstractAtlasPacker {
+    // x, y, w, h
+    private int[] rects = new int[64];
+    private int count = 0;
+    private int[] fresh = new int[64];
+    private int freshCount = 0;
+
+    @Override
+    protected void reset(int binWidth, int binHeight) {
+        count = 0;
+        rects = add(rects, count++, 0, 0, binWidth, binHeight);
+    }
+
+    private static int[] add(int[] array, int index, int x, int y, int w, int h) {
+        final int i = index << 2;
+        if (i + 4 > array.length) {
+            array = Arrays.copyOf(array, array.length << 1);
+        }
+        array[i] = x;
+        array[i + 1] = y;
+        array[i + 2] = w;
+        array[i + 3] = h;
+        return array;
+    }
+
+    @Override
+    protected boolean insert(int width, int height, boolean allowRotation, int[] out) {
+        int best = -1;
+        boolean bestRotated = false;
+        int bestShort = Integer.MAX_VALUE, bestLong = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            final int fw = rects[(i << 2) + 2];
+            final int fh = rects[(i << 2) + 3];
+            if (width <= fw && height <= fh) {
+                final int dw = fw - width, dh = fh - height;
+                final int shortSide = Math.min(dw, dh), longSide = Math.max(dw, dh);
+                if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+                    best = i;
+                    bestRotated = false;
+                    bestShort = shortSide;
+                    bestLong = longSide;
+                }
+            }
+            if (allowRotation && height <= fw && width <= fh) {
+                final int dw = fw - height, dh = fh - width;
+                final int shortSide = Math.min(dw, dh), longSide = Math.max(dw, dh);
+                if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+                    best = i;
+                    bestRotated = true;
+                    bestShort = shortSide;
+                    bestLong = longSide;
+                }
+            }
+        }
+        if (best == -1)
+            return false;
+        final int x = rects[best << 2];
+        final int y = rects[(best << 2) + 1];
+        split(x, y, bestRotated ? height : width, bestRotated ? width : height);
+        out[0] = x;
+        out[1] = y;
+        out[2] = bestRotated ? 1 : 0;
+        return true;
+    }
+
+    private void split(int x, int y, int w, int h) {
+        freshCount = 0;
+        for (int i = 0; i < count; ) {
+            final int j = i << 2;
+            final int fx = rects[j], fy = rects[j + 1], fw = rects[j + 2], fh = rects[j + 3];
+            if (x >= fx + fw || x + w <= fx || y >= fy + fh || y + h <= fy) {
+                ++i;
+                continue;
+            }
+            if (x > fx) fresh = add(fresh, freshCount++, fx, fy, x - fx, fh);
+            if (x + w < fx + fw) fresh = add(fresh, freshCount++, x + w, fy, fx + fw - x - w, fh);
+            if (y > fy) fresh = add(fresh, freshCount++, fx, fy, fw, y - fy);
+            if (y + h < fy + fh) fresh = add(fresh, freshCount++, fx, y + h, fw, fy + fh - y - h);
+            // Remove by moving the last one here
+            System.arraycopy(rects, (--count) << 2, rects, j, 4);
+        }
+        // Only the new rectangles are pruned against each other. The rare new rectangles contained
+        // in an old one are kept; they only cost the scans, and pruning them is quadratic
+        for (int i = 0; i < freshCount; i++) {
+            if (!isPruned(i)) {
+                final int j = i << 2;
+                rects = add(rects, count++, fresh[j], fresh[j + 1], fresh[j + 2], fresh[j + 3]);
+            }
+        }
+    }
+
+    private boolean isPruned(int index) {
+        final int j = index << 2;
+        final int x = fresh[j], y = fresh[j + 1], w = fresh[j + 2], h = fresh[j + 3];
+        for (int i = 0; i < freshCount; i++) {
+            if (i != index && contains(fresh, i, x, y, w, h)) {
+                // Keep the first one of the equal rectangles
+                final int k = i << 2;
+                final boolean equal = fresh[k] == x && fresh[k + 1] == y && fresh[k + 2] == w && fresh[k + 3] == h;
+                if (!equal || i < index)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] array, int index, int x, int y, int w, int h) {
+        final int j = index << 2;
+        return x >= array[j] && y >= array[j + 1]
+               && x + w <= array[j] + array[j + 2]
+               && y + h <= array[j + 1] + array[j + 3];
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.asset.tex.atlas;
+
+import java.util.Arrays;
+
+/**
+ * The skyline packer with the bottom-left heuristic.
+ * <p>
+ * The packer keeps the top edge of the placed slots as a list of horizontal segments.
+ * A slot is placed at the segment where its top is the lowest; the space below the
+ * skyline is never reused. It is faster than {@link MaxRectsPacker} but packs looser.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class SkylinePacker extends AbstractAtlasPacker {
+    private int[] segX = new int[64], segY = new int[64], segW = new int[64];
+    private int count = 0;
+    private int binWidth, binHeight;
+
+    @Override
+    protected void reset(int binWidth, int binHeight) {
+        this.binWidth = binWidth;
+        this.binHeight = binHeight;
+        count = 1;
+        segX[0] = 0;
+        segY[0] = 0;
+        segW[0] = binWidth;
+    }
+
+    /**
+     * Gets the y to place a rectangle at the segment.
+     *
+     * @return the y, or {@code -1} if out of the atlas
+     */
+    private int fitAt(int index, int width, int height) {
+        if (segX[index] + width > binWidth)
+            return -1;
+        int y = 0;
+        for (int i = index, remaining = width; remaining > 0; i++) {
+            y = Math.max(y, segY[i]);
+            remaining -= segW[i];
+        }
+        return y + height <= binHeight ? y : -1;
+    }
+
+    @Override
+    protected boolean insert(int width, int height, boolean allowRotation, int[] out) {
+        int best = -1, bestY = 0;
+        boolean bestRotated = false;
+        int bestTop = Integer.MAX_VALUE, bestX = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int y = fitAt(i, width, height);
+            if (y >= 0 && (y + height < bestTop || (y + height == bestTop && segX[i] < bestX))) {
+                best = i;
+                bestY = y;
+                bestRotated = false;
+                bestTop = y + height;
+                bestX = segX[i];
+            }
+            if (allowRotation) {
+                y = fitAt(i, height, width);
+                if (y >= 0 && (y + width < bestTop || (y + width == bestTop && segX[i] < bestX))) {
+                    best = i;
+                    bestY = y;
+                    bestRotated = true;
+                    bestTop = y + width;
+                    bestX = segX[i];
+                }
+            }
+        }
+        if (best == -1)
+            return false;
+        place(best, bestY, bestRotated ? height : width, bestRotated ? width : height);
+        out[0] = bestX;
+        out[1] = bestY;
+        out[2] = bestRotated ? 1 : 0;
+        return true;
+    }
+
+    private void insertSegment(int index, int x, int y, int w) {
+        if (count == segX.length) {
+            segX = Arrays.copyOf(segX, count << 1);
+            segY = Arrays.copyOf(segY, count << 1);
+            segW = Arrays.copyOf(segW, count << 1);
+        }
+        System.arraycopy(segX, index, segX, index + 1, count - index);
+        System.arraycopy(segY, index, segY, index + 1, count - index);
+        System.arraycopy(segW, index, segW, index + 1, count - index);
+        segX[index] = x;
+        segY[index] = y;
+        segW[index] = w;
+        ++count;
+    }
+
+    private void removeSegment(int index) {
+        System.arraycopy(segX, index + 1, segX, index, count - index - 1);
+        System.arraycopy(segY, index + 1, segY, index, count - index - 1);
+        System.arraycopy(segW, index + 1, segW, index, count - index - 1);
+        --count;
+    }
+
+    private void place(int index, int y, int w, int h) {
+        final int x = segX[index];
+        insertSegment(index, x, y + h, w);
+        // Cut the segments under the new one
+        for (int i = index + 1; i < count; ) {
+            final int overlap = x + w - segX[i];
+            if (overlap <= 0)
+                break;
+            if (overlap >= segW[i]) {
+                removeSegment(i);
+            } else {
+                segX[i] += overlap;
+                segW[i] -= overlap;
+                break;
+            }
+        }
+        // Merge the segments at the same height
+        for (int i = 0; i < count - 1; ) {
+            if (segY[i] == segY[i + 1]) {
+                segW[i] += segW[i + 1];
+                removeSegment(i + 1);
+            } else {
+                ++i;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.asset.tex.atlas;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Reads and decodes the sprites on an executor.
+ * <p>
+ * Each sprite is read and then decoded in one task, so the decoding starts before
+ * all sizes are known. {@link #awaitSizes()} waits until the sizes are read, for packing;
+ * {@link #next()} returns the decoded sprites in the order of completion, so they can be
+ * uploaded while the others are being decoded.
+ * </p>
+ * <p>
+ * Without an executor, the sizes are read in {@link #awaitSizes()} and the sprites are decoded
+ * in {@link #next()} on the calling thread.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class SpriteDecoder implements AutoCloseable {
+    private final List<SpriteInfo> infos;
+    @Nullable
+    private final Executor executor;
+    private final List<CompletableFuture<SpriteInfo>> tasks;
+    private final CompletableFuture<Void> sizes;
+    private final BlockingQueue<CompletableFuture<SpriteInfo>> completed = new LinkedBlockingQueue<>();
+    private int taken = 0;
+
+    /**
+     * Create the decoder and start reading and decoding.
+     *
+     * @param infos    the sprites
+     * @param executor the executor, or {@code null} to decode on the calling thread
+     */
+    public SpriteDecoder(Collection<SpriteInfo> infos, @Nullable Executor executor) {
+        this.infos = List.copyOf(infos);
+        this.executor = executor;
+        if (executor == null) {
+            tasks = List.of();
+            sizes = null;
+            return;
+        }
+        tasks = new ArrayList<>(this.infos.size());
+        var reads = new CompletableFuture<?>[this.infos.size()];
+        for (int i = 0; i < this.infos.size(); i++) {
+            var info = this.infos.get(i);
+            var read = CompletableFuture.runAsync(info::read, executor);
+            reads[i] = read;
+            var task = read.thenApplyAsync(v -> {
+                info.decode();
+                return info;
+            }, executor);
+            tasks.add(task.whenComplete((r, t) -> completed.add(task)));
+        }
+        sizes = CompletableFuture.allOf(reads);
+    }
+
+    /**
+     * Waits until the sizes of all sprites are read.
+     */
+    public void awaitSizes() {
+        if (executor == null) {
+            for (var info : infos) {
+                info.read();
+            }
+            return;
+        }
+        try {
+            sizes.join();
+        } catch (CompletionException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public boolean hasNext() {
+        return taken < infos.size();
+    }
+
+    /**
+     * Gets the next decoded sprite, waiting if none is decoded. The caller frees the sprite.
+     *
+     * @return the decoded sprite
+     */
+    public SpriteInfo next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (executor == null) {
+            var info = infos.get(taken++);
+            info.decode();
+            return info;
+        }
+        CompletableFuture<SpriteInfo> task;
+        try {
+            task = completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while decoding the sprites", e);
+        }
+        ++taken;
+        try {
+            return task.join();
+        } catch (CompletionException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return infos.size();
+    }
+
+    /**
+     * Waits for the running tasks and frees the sprites not taken by {@link #next()}.
+     */
+    @Override
+    public void close() {
+        if (executor == null) {
+            taken = infos.size();
+            return;
+        }
+        for (var task : tasks) {
+            task.handle((r, t) -> null).join();
+        }
+        CompletableFuture<SpriteInfo> task;
+        while ((task = completed.poll()) != null) {
+            ++taken;
+            if (!task.isCompletedExceptionally()) {
+                task.join().free();
+            }
+        }
+    }
+}
@@ -60,14 +60,33 @@ public class SpriteInfo {
     }
 
     public void load() {
+        read();
+        decode();
+    }
+
+    /**
+     * Reads the resource and the sprite size without decoding.
+     *
+     * @since 0.2.0
+     */
+    public void read() {
         image = new NativeImage();
         image.defaultWidth(defaultWidth);
         image.defaultHeight(defaultHeight);
-        image.load(name, provider);
+        image.read(name, provider);
         width = image.width();
         height = image.height();
     }
 
+    /**
+     * Decodes the sprite {@link #read() read}.
+     *
+     * @since 0.2.0
+     */
+    public void decode() {
+        image.decode();
+    }
+
     public String name() {
         return name;
     }
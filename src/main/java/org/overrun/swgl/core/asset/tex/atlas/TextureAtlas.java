@@ -28,13 +28,17 @@ import org.overrun.swgl.core.asset.tex.ITextureMipmap;
 import org.overrun.swgl.core.asset.tex.Texture;
 import org.overrun.swgl.core.asset.tex.Texture2D;
 import org.overrun.swgl.core.asset.tex.TextureParam;
+import org.overrun.swgl.core.gl.GLPixelUnpackPool;
 import org.overrun.swgl.core.io.IFileProvider;
 import org.overrun.swgl.core.util.math.Numbers;
 
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.lwjgl.opengl.GL12C.*;
+import static org.lwjgl.system.MemoryUtil.*;
 
 /**
  * The texture atlas.
@@ -49,6 +53,8 @@ public class TextureAtlas extends Texture<TextureAtlas.UserPointer> {
     private Texture2D texture;
     private Map<String, AtlasSpriteSlot> slotMap;
     private TextureParam extraParam = null;
+    private IAtlasPacker packer = new MaxRectsPacker();
+    private Executor decodeExecutor = ForkJoinPool.commonPool();
 
     public TextureAtlas(int maxMipmapLevel) {
         this.maxMipmapLevel = maxMipmapLevel;
@@ -94,26 +100,28 @@ public class TextureAtlas extends Texture<TextureAtlas.UserPointer> {
     public void load(List<SpriteInfo> infoList) {
         if (infoList.size() == 0)
             return;
-        var infoMap = new HashMap<String, SpriteInfo>();
+        var infoMap = new LinkedHashMap<String, SpriteInfo>();
+        for (var info : infoList) {
+            infoMap.put(info.name(), info);
+        }
+        try (var decoder = new SpriteDecoder(infoMap.values(), decodeExecutor)) {
+            decoder.awaitSizes();
+            load(infoMap, decoder);
+        }
+    }
+
+    private void load(Map<String, SpriteInfo> infoMap, SpriteDecoder decoder) {
         slotMap = new HashMap<>();
         boolean nonPot = false;
-        for (var info : infoList) {
-            info.load();
+        for (var info : infoMap.values()) {
             int w = info.width(), h = info.height();
             if (w < minSpriteWidth) minSpriteWidth = w;
             if (h < minSpriteHeight) minSpriteHeight = h;
             if (!Numbers.isPoT(w) || !Numbers.isPoT(h))
                 nonPot = true;
-            infoMap.put(info.name(), info);
             slotMap.put(info.name(), new AtlasSpriteSlot(w, h));
         }
 
-        var slots = slotMap.values();
-        var packer = new GrowingPacker();
-        packer.fit(slots);
-        packer.root.w = Numbers.toPoT(packer.root.w);
-        packer.root.h = Numbers.toPoT(packer.root.h);
-
         if (maxMipmapLevel == 0 || nonPot) {
             mipmapLevel = 0;
         } else {
@@ -121,6 +129,17 @@ public class TextureAtlas extends Texture<TextureAtlas.UserPointer> {
             if (maxMipmapLevel > 0 && mipmapLevel > maxMipmapLevel)
                 mipmapLevel = maxMipmapLevel;
         }
+
+        var stats = packer.pack(new ArrayList<>(slotMap.values()), 1 << mipmapLevel);
+        for (var slot : slotMap.values()) {
+            if (slot.rotated) {
+                throw new IllegalStateException("The rotated sprites are not supported by the atlas; disable the rotation of the packer");
+            }
+        }
+        final int width = Math.max(stats.width(), 1);
+        final int height = Math.max(stats.height(), 1);
+        final int extrusion = packer.extrusion();
+
         texture = new Texture2D();
         texture.setParam(new TextureParam()
             .minLod(0)
@@ -134,28 +153,42 @@ public class TextureAtlas extends Texture<TextureAtlas.UserPointer> {
                 glTexImage2D(GL_TEXTURE_2D,
                     lvl,
                     GL_RGBA,
-                    packer.root.w >> lvl,
-                    packer.root.h >> lvl,
+                    width >> lvl,
+                    height >> lvl,
                     0,
                     GL_RGBA,
                     GL_UNSIGNED_BYTE,
                     (ByteBuffer) null);
             }
-            for (var e : slotMap.entrySet()) {
-                var slot = e.getValue();
+            var pool = Texture2D.getPixelUnpackPool();
+            if (pool.isPresent()) {
+                stageSprites(pool.get(), target, decoder, extrusion);
+                return;
+            }
+            // Upload each sprite once it is decoded
+            while (decoder.hasNext()) {
+                var info = decoder.next();
+                var slot = slotMap.get(info.name());
                 if (slot.fit != null) {
-                    var info = infoMap.get(e.getKey());
+                    var pixels = info.buffer();
+                    if (extrusion > 0) {
+                        pixels = memAlloc(extrudedSize(slot, extrusion));
+                        extrude(memAddress(info.buffer()), slot.w, slot.h, extrusion, memAddress(pixels));
+                    }
                     glTexSubImage2D(target,
                         0,
-                        slot.fit.x,
-                        slot.fit.y,
-                        slot.w,
-                        slot.h,
+                        slot.fit.x - extrusion,
+                        slot.fit.y - extrusion,
+                        slot.w + extrusion * 2,
+                        slot.h + extrusion * 2,
                         GL_RGBA,
                         GL_UNSIGNED_BYTE,
-                        info.buffer());
-                    info.free();
+                        pixels);
+                    if (extrusion > 0) {
+                        memFree(pixels);
+                    }
                 }
+                info.free();
             }
         };
         if (mipmapLevel <= 0) {
@@ -166,7 +199,79 @@ public class TextureAtlas extends Texture<TextureAtlas.UserPointer> {
                 ITextureMipmap.DEFAULT.set(target, buffer);
             });
         }
-        texture.loadEmpty(packer.root.w, packer.root.h);
+        texture.loadEmpty(width, height);
+    }
+
+    private static int extrudedSize(AtlasSpriteSlot slot, int extrusion) {
+        return (slot.w + extrusion * 2) * (slot.h + extrusion * 2) * 4;
+    }
+
+    /**
+     * Copies the RGBA pixels with the edges repeated for the extrusion on each side.
+     */
+    private static void extrude(long src, int w, int h, int extrusion, long dst) {
+        final int ew = w + extrusion * 2;
+        final long rowBytes = (long) w * 4;
+        for (int y = 0, eh = h + extrusion * 2; y < eh; y++) {
+            final long srcRow = src + Math.max(0, Math.min(h - 1, y - extrusion)) * rowBytes;
+            final long dstRow = dst + (long) y * ew * 4;
+            final int left = memGetInt(srcRow);
+            final int right = memGetInt(srcRow + rowBytes - 4);
+            for (int x = 0; x < extrusion; x++) {
+                memPutInt(dstRow + x * 4L, left);
+                memPutInt(dstRow + (long) (extrusion + w + x) * 4, right);
+            }
+            memCopy(srcRow, dstRow + extrusion * 4L, rowBytes);
+        }
+    }
+
+    /**
+     * Copies the sprites into one staging buffer once they are decoded, and updates the texture from it.
+     */
+    private void stageSprites(GLPixelUnpackPool pool, int target, SpriteDecoder decoder, int extrusion) {
+        var offsets = new HashMap<String, Long>();
+        long size = 0;
+        for (var e : slotMap.entrySet()) {
+            var slot = e.getValue();
+            if (slot.fit != null) {
+                offsets.put(e.getKey(), size);
+                size += extrudedSize(slot, extrusion);
+            }
+        }
+        if (size <= 0) {
+            while (decoder.hasNext()) {
+                decoder.next().free();
+            }
+            return;
+        }
+        var staging = pool.acquire(size);
+        final long address = memAddress(staging.buffer());
+        while (decoder.hasNext()) {
+            var info = decoder.next();
+            var slot = slotMap.get(info.name());
+            if (slot.fit != null) {
+                final long dst = address + offsets.get(info.name());
+                if (extrusion > 0) {
+                    extrude(memAddress(info.buffer()), slot.w, slot.h, extrusion, dst);
+                } else {
+                    memCopy(memAddress(info.buffer()), dst, (long) slot.w * slot.h * 4);
+                }
+            }
+            info.free();
+        }
+        for (var e : offsets.entrySet()) {
+            var slot = slotMap.get(e.getKey());
+            staging.texSubImage2D(target,
+                0,
+                slot.fit.x - extrusion,
+                slot.fit.y - extrusion,
+                slot.w + extrusion * 2,
+                slot.h + extrusion * 2,
+                GL_RGBA,
+                GL_UNSIGNED_BYTE,
+                e.getValue());
+        }
+        staging.submit();
     }
 
     /**
@@ -186,6 +291,33 @@ public class TextureAtlas extends Texture<TextureAtlas.UserPointer> {
             throw new NullPointerException("Atlas not loaded!");
     }
 
+    public Executor decodeExecutor() {
+        return decodeExecutor;
+    }
+
+    /**
+     * Set the executor to read and decode the sprites.
+     *
+     * @param decodeExecutor the executor; default to {@link ForkJoinPool#commonPool()};
+     *                       {@code null} to decode on the loading thread
+     */
+    public void decodeExecutor(Executor decodeExecutor) {
+        this.decodeExecutor = decodeExecutor;
+    }
+
+    public IAtlasPacker packer() {
+        return packer;
+    }
+
+    /**
+     * Set the packer. The rotation of the packer must be disabled.
+     *
+     * @param packer the packer; default to {@link MaxRectsPacker}
+     */
+    public void packer(IAtlasPacker packer) {
+        this.packer = packer;
+    }
+
     public TextureParam extraParam() {
         return extraParam;
     }
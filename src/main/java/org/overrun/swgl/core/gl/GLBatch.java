@@ -25,13 +25,16 @@
 package org.overrun.swgl.core.gl;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.lwjgl.BufferUtils;
 import org.overrun.swgl.core.model.IModel;
 import org.overrun.swgl.core.model.VertexLayout;
+import org.overrun.swgl.core.util.NativeByteList;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -48,10 +51,12 @@ import static org.lwjgl.system.MemoryUtil.*;
 public class GLBatch implements ITessCallback, AutoCloseable {
     private static GLBatch globalInstance;
     private VertexLayout layout;
-    private final List<GLVertex> vertexInfoList = new ArrayList<>();
+    private final NativeByteList stagedVertices = new NativeByteList();
     private final GLVertex vertexInfo = new GLVertex();
+    private final GLVertex stagedVertex = new GLVertex();
     private ByteBuffer buffer;
     private IntBuffer indexBuffer;
+    private ShortBuffer shortIndexBuffer;
     private int lastWrittenBytes = 0;
     private int writtenBytes = 0;
     private int lastVertexCount = 0;
@@ -62,10 +67,25 @@ public class GLBatch implements ITessCallback, AutoCloseable {
     private boolean drawing = false;
     private boolean hasColor = false, hasTexture = false, hasNormal = false;
     private final boolean useMemUtil;
+    private boolean directWrite;
     /**
      * The addend to expand the batch.
      */
     private double expandAddend = 0.6180339887498949; // golden ratio (Math.sqrt(5.0) - 1.0) * 0.5
+    /**
+     * The ratio of the used bytes to the capacity under which a frame is under-used.
+     */
+    private double shrinkRatio = 0.25;
+    /**
+     * The count of consecutive under-used frames before shrinking.
+     */
+    private int shrinkDelay = 120;
+    private int vtUnderusedFrames = 0, ixUnderusedFrames = 0;
+    private int vtWindowPeak = 0, ixWindowPeak = 0;
+    private int vtFramePeak = 0, ixFramePeak = 0;
+    private int vtShrinkTarget = -1, ixShrinkTarget = -1;
+    private long peakBytes = 0;
+    private GLBufferPool pool;
 
     /**
      * Create a batch using {@link org.lwjgl.system.MemoryUtil MemoryUtil}.
@@ -84,7 +104,23 @@ public class GLBatch implements ITessCallback, AutoCloseable {
      * @see #GLBatch() GLBatch()
      */
     public GLBatch(boolean useMemUtil) {
+        this(useMemUtil, false);
+    }
+
+    /**
+     * Create a batch.
+     *
+     * @param useMemUtil  Use {@link org.lwjgl.system.MemoryUtil MemoryUtil} if {@code true};
+     *                    otherwise use {@link BufferUtils}. Defaults to {@code true}.
+     * @param directWrite Write the vertices into the buffer on {@link #emit()} if {@code true}.
+     *                    Defaults to {@code false}.
+     * @see #setDirectWrite(boolean)
+     * @since 0.2.0
+     */
+    public GLBatch(boolean useMemUtil, boolean directWrite) {
         this.useMemUtil = useMemUtil;
+        this.directWrite = directWrite;
+        this.pool = useMemUtil ? GLBufferPool.getShared() : null;
     }
 
     /**
@@ -134,6 +170,145 @@ public class GLBatch implements ITessCallback, AutoCloseable {
         return expandAddend;
     }
 
+    /**
+     * Set the shrink policy.
+     * <p>
+     * On {@link #newFrame() each frame}, a buffer is under-used if the peak usage of the batches
+     * in the frame is less than {@code shrinkRatio} of its capacity. After {@code shrinkDelay}
+     * consecutive under-used frames, the buffer shrinks to the peak usage of these frames
+     * plus the {@link #setExpandAddend(double) expand addend}. So a single spike frame doesn't
+     * pin a huge buffer forever, and a fluctuating usage doesn't cause reallocating every frame.
+     * </p>
+     *
+     * @param shrinkRatio the ratio in {@code [0, 1)}; {@code 0} to never shrink. Defaults to {@code 0.25}.
+     * @param shrinkDelay the frame count. Must be positive. Defaults to {@code 120}.
+     * @since 0.2.0
+     */
+    public void setShrinkPolicy(double shrinkRatio, int shrinkDelay) {
+        if (shrinkRatio < 0.0 || shrinkRatio >= 1.0) {
+            throw new IllegalArgumentException("shrinkRatio must be in [0, 1)");
+        }
+        if (shrinkDelay <= 0) {
+            throw new IllegalArgumentException("shrinkDelay must be greater than 0");
+        }
+        this.shrinkRatio = shrinkRatio;
+        this.shrinkDelay = shrinkDelay;
+        vtUnderusedFrames = 0;
+        ixUnderusedFrames = 0;
+        vtShrinkTarget = -1;
+        ixShrinkTarget = -1;
+    }
+
+    /**
+     * Get the shrink ratio.
+     *
+     * @return the shrink ratio
+     * @see #setShrinkPolicy(double, int)
+     * @since 0.2.0
+     */
+    public double getShrinkRatio() {
+        return shrinkRatio;
+    }
+
+    /**
+     * Get the shrink delay in frames.
+     *
+     * @return the shrink delay
+     * @see #setShrinkPolicy(double, int)
+     * @since 0.2.0
+     */
+    public int getShrinkDelay() {
+        return shrinkDelay;
+    }
+
+    /**
+     * Set the pool to allocate the native buffers from. Only used if this batch
+     * uses {@link org.lwjgl.system.MemoryUtil MemoryUtil}.
+     *
+     * @param pool the pool; or {@code null} to allocate directly.
+     *             Defaults to {@link GLBufferPool#getShared() the shared pool}.
+     * @since 0.2.0
+     */
+    public void setBufferPool(@Nullable GLBufferPool pool) {
+        this.pool = useMemUtil ? pool : null;
+    }
+
+    /**
+     * Get the pool to allocate the native buffers from.
+     *
+     * @return the pool
+     * @since 0.2.0
+     */
+    @Nullable
+    public GLBufferPool getBufferPool() {
+        return pool;
+    }
+
+    /**
+     * Get the current bytes of the buffers held by this batch.
+     *
+     * @return the current bytes
+     * @since 0.2.0
+     */
+    public long getCurrentBytes() {
+        long bytes = stagedVertices.capacity();
+        if (buffer != null)
+            bytes += buffer.capacity();
+        if (indexBuffer != null)
+            bytes += (long) indexBuffer.capacity() << 2;
+        if (shortIndexBuffer != null)
+            bytes += (long) shortIndexBuffer.capacity() << 1;
+        return bytes;
+    }
+
+    /**
+     * Get the peak of {@link #getCurrentBytes() the current bytes}.
+     *
+     * @return the peak bytes
+     * @since 0.2.0
+     */
+    public long getPeakBytes() {
+        return peakBytes;
+    }
+
+    /**
+     * Resets {@link #getPeakBytes() the peak bytes} to the current bytes.
+     *
+     * @since 0.2.0
+     */
+    public void resetPeakBytes() {
+        peakBytes = getCurrentBytes();
+    }
+
+    /**
+     * Set the direct-write mode.
+     * <p>
+     * In direct-write mode, {@link #emit()} writes the current vertex into the
+     * off-heap buffer at the layout offsets instead of staging a {@link GLVertex} record,
+     * and {@link #getVertexInfoList()} stays empty.
+     * </p>
+     *
+     * @param directWrite {@code true} to write the vertices directly
+     * @throws IllegalStateException if the batch is drawing
+     * @since 0.2.0
+     */
+    public void setDirectWrite(boolean directWrite) {
+        if (drawing) {
+            throw new IllegalStateException("Couldn't change the direct-write mode while drawing!");
+        }
+        this.directWrite = directWrite;
+    }
+
+    /**
+     * Get the direct-write mode.
+     *
+     * @return {@code true} if the vertices are written on emitting
+     * @since 0.2.0
+     */
+    public boolean isDirectWrite() {
+        return directWrite;
+    }
+
     /**
      * Begin drawing by a vertex layout.
      * <p>
@@ -145,26 +320,23 @@ public class GLBatch implements ITessCallback, AutoCloseable {
      */
     public void begin(@NotNull VertexLayout layout, int initialCount) {
         this.layout = layout;
+        // Default in 16 vertices
+        final int initialBytes = Math.max(initialCount, 16) * layout.getStride();
         if (buffer == null) {
-            // Default in 16 vertices
-            final int count = Math.max(initialCount, 16);
-            if (useMemUtil)
-                buffer = memAlloc(count * layout.getStride());
-            else
-                buffer = BufferUtils.createByteBuffer(count * layout.getStride());
+            buffer = allocate(initialBytes);
         } else {
             buffer.clear();
-            if (buffer.capacity() < initialCount) {
-                if (useMemUtil)
-                    buffer = memRealloc(buffer, initialCount);
-                else
-                    buffer = BufferUtils.createByteBuffer(initialCount);
+            applyShrink(initialBytes);
+            if (buffer.capacity() < initialBytes) {
+                free(buffer);
+                buffer = allocate(initialBytes);
             }
         }
         if (indexBuffer != null) {
             indexBuffer.clear();
         }
-        vertexInfoList.clear();
+        updatePeakBytes();
+        stagedVertices.clear();
         lastWrittenBytes = writtenBytes;
         writtenBytes = 0;
         lastVertexCount = 0;
@@ -187,11 +359,18 @@ public class GLBatch implements ITessCallback, AutoCloseable {
      * Flip buffers and end drawing.
      */
     public void end() {
-        buffer = (ByteBuffer) tryGrowBuffer(buffer, layout.getStride() * vertexInfoList.size());
-        for (var vertexInfo : vertexInfoList) {
-            layout.forEachFormat((format, offset, index) ->
-                vertexInfo.processBuffer(format, buffer));
-            writtenBytes += layout.getStride();
+        if (!stagedVertices.isEmpty()) {
+            final var writer = layout.getWriter();
+            final int stride = writer.getStride();
+            final int count = (int) (stagedVertices.size() / GLVertex.BYTES);
+            buffer = (ByteBuffer) tryGrowBuffer(buffer, stride * count);
+            int pos = buffer.position();
+            for (int i = 0; i < count; i++) {
+                writer.write(stagedVertex.load(stagedVertices.address() + (long) i * GLVertex.BYTES), buffer, pos);
+                pos += stride;
+            }
+            buffer.position(pos);
+            writtenBytes += stride * count;
         }
         if (buffer.position() > 0) {
             buffer.flip();
@@ -199,9 +378,28 @@ public class GLBatch implements ITessCallback, AutoCloseable {
         if (indexBuffer != null && indexBuffer.position() > 0) {
             indexBuffer.flip();
         }
+        compactIndices();
+        updatePeakBytes();
+        vtFramePeak = Math.max(vtFramePeak, writtenBytes);
+        ixFramePeak = Math.max(ixFramePeak, indexCount);
         drawing = false;
     }
 
+    private void compactIndices() {
+        if (indexCount <= 0 || getIndexType() != GLDataType.UNSIGNED_SHORT)
+            return;
+        if (shortIndexBuffer == null || shortIndexBuffer.capacity() < indexCount) {
+            free(shortIndexBuffer);
+            shortIndexBuffer = allocate(indexCount << 1).asShortBuffer();
+            updatePeakBytes();
+        }
+        shortIndexBuffer.clear();
+        for (int i = 0; i < indexCount; i++) {
+            shortIndexBuffer.put(i, (short) indexBuffer.get(i));
+        }
+        shortIndexBuffer.limit(indexCount);
+    }
+
     /**
      * Set current vertex 3d..
      *
@@ -344,32 +542,128 @@ public class GLBatch implements ITessCallback, AutoCloseable {
         return this;
     }
 
+    ///// Allocation /////
+
+    private ByteBuffer allocate(int bytes) {
+        if (!useMemUtil)
+            return BufferUtils.createByteBuffer(bytes);
+        if (pool != null) {
+            final int size = GLBufferPool.classSize(bytes);
+            return memByteBuffer(pool.acquire(size), size);
+        }
+        return memAlloc(bytes);
+    }
+
+    private void free(@Nullable Buffer buffer) {
+        if (!useMemUtil || buffer == null)
+            return;
+        final long address = memAddress0(buffer);
+        if (pool != null) {
+            final long bytes = buffer instanceof IntBuffer ? (long) buffer.capacity() << 2
+                : buffer instanceof ShortBuffer ? (long) buffer.capacity() << 1
+                : buffer.capacity();
+            pool.release(address, bytes);
+        } else {
+            nmemFree(address);
+        }
+    }
+
     private Buffer tryGrowBuffer(Buffer buffer, int len) {
         if (buffer.position() + len >= buffer.capacity()) {
             int increment = Math.max(len, (int) (buffer.capacity() * expandAddend));
             // Grows buffer for (1+expandAddend)x or len
             int sz = buffer.capacity() + increment;
+            Buffer result = buffer;
             if (buffer instanceof IntBuffer b) {
-                if (useMemUtil)
-                    return memRealloc(b, sz);
-                return BufferUtils.createIntBuffer(sz).put(b);
+                result = allocate(sz << 2).asIntBuffer().put(b.flip());
+            } else if (buffer instanceof ByteBuffer b) {
+                result = allocate(sz).put(b.flip());
             }
-            if (buffer instanceof ByteBuffer b) {
-                if (useMemUtil)
-                    return memRealloc(b, sz);
-                return BufferUtils.createByteBuffer(sz).put(b);
+            if (result != buffer) {
+                free(buffer);
+                updatePeakBytes();
             }
+            return result;
         }
         return buffer;
     }
 
+    private void applyShrink(int initialBytes) {
+        if (vtShrinkTarget >= 0) {
+            final int sz = Math.max(vtShrinkTarget, initialBytes);
+            if (sz < buffer.capacity()) {
+                free(buffer);
+                buffer = allocate(sz);
+            }
+            vtShrinkTarget = -1;
+        }
+        if (ixShrinkTarget >= 0 && indexBuffer != null) {
+            final int sz = Math.max(ixShrinkTarget, 2);
+            if (sz < indexBuffer.capacity()) {
+                free(indexBuffer);
+                indexBuffer = allocate(sz << 2).asIntBuffer();
+                free(shortIndexBuffer);
+                shortIndexBuffer = null;
+            }
+        }
+        ixShrinkTarget = -1;
+    }
+
+    /**
+     * Ends the frame for the {@link #setShrinkPolicy(double, int) shrink policy}.
+     * <p>
+     * The peak usage of the batches {@link #end() ended} in the frame is compared to
+     * the capacity, and the buffers shrink on the next {@link #begin(VertexLayout, int) beginning}
+     * after enough under-used frames. A batch never shrinks if this method is not called.
+     * </p>
+     *
+     * @since 0.2.0
+     */
+    public void newFrame() {
+        final int vtPeak = vtFramePeak, ixPeak = ixFramePeak;
+        vtFramePeak = 0;
+        ixFramePeak = 0;
+        if (shrinkRatio <= 0.0 || buffer == null)
+            return;
+        // The vertex buffer
+        if (vtPeak < buffer.capacity() * shrinkRatio) {
+            vtWindowPeak = Math.max(vtWindowPeak, vtPeak);
+            if (++vtUnderusedFrames >= shrinkDelay) {
+                vtShrinkTarget = (int) (vtWindowPeak * (1.0 + expandAddend));
+                vtUnderusedFrames = 0;
+                vtWindowPeak = 0;
+            }
+        } else {
+            vtUnderusedFrames = 0;
+            vtWindowPeak = 0;
+            vtShrinkTarget = -1;
+        }
+        // The index buffer
+        if (indexBuffer == null)
+            return;
+        if (ixPeak < indexBuffer.capacity() * shrinkRatio) {
+            ixWindowPeak = Math.max(ixWindowPeak, ixPeak);
+            if (++ixUnderusedFrames >= shrinkDelay) {
+                ixShrinkTarget = (int) (ixWindowPeak * (1.0 + expandAddend));
+                ixUnderusedFrames = 0;
+                ixWindowPeak = 0;
+            }
+        } else {
+            ixUnderusedFrames = 0;
+            ixWindowPeak = 0;
+            ixShrinkTarget = -1;
+        }
+    }
+
+    private void updatePeakBytes() {
+        peakBytes = Math.max(peakBytes, getCurrentBytes());
+    }
+
     private void createIB(int len) {
         if (indexBuffer == null) {
             final int sz = Math.max(len, 2);
-            if (useMemUtil)
-                indexBuffer = memAllocInt(sz);
-            else
-                indexBuffer = BufferUtils.createIntBuffer(sz);
+            indexBuffer = allocate(sz << 2).asIntBuffer();
+            updatePeakBytes();
         } else {
             indexBuffer = (IntBuffer) tryGrowBuffer(indexBuffer, len);
         }
@@ -430,7 +724,16 @@ public class GLBatch implements ITessCallback, AutoCloseable {
      * Emit a vertex with the vertex layout.
      */
     public void emit() {
-        vertexInfoList.add(new GLVertex(vertexInfo));
+        if (directWrite) {
+            final int stride = layout.getStride();
+            buffer = (ByteBuffer) tryGrowBuffer(buffer, stride);
+            final int pos = buffer.position();
+            layout.getWriter().write(vertexInfo, buffer, pos);
+            buffer.position(pos + stride);
+            writtenBytes += stride;
+        } else {
+            vertexInfo.store(stagedVertices.append(GLVertex.BYTES));
+        }
         ++vertexCount;
     }
 
@@ -470,6 +773,16 @@ public class GLBatch implements ITessCallback, AutoCloseable {
         indexCount += buf.limit();
     }
 
+    /**
+     * Gets the layout of the last {@link #begin(VertexLayout) begin}.
+     *
+     * @return the vertex layout
+     * @since 0.2.0
+     */
+    public VertexLayout getLayout() {
+        return layout;
+    }
+
     /**
      * Gets the written bytes. It's usually the {@link ByteBuffer#limit() buffer limit}.
      *
@@ -505,6 +818,32 @@ public class GLBatch implements ITessCallback, AutoCloseable {
         return indexCount;
     }
 
+    /**
+     * Get the smallest index type that can index all vertices of this batch.
+     *
+     * @return {@link GLDataType#UNSIGNED_SHORT} if the vertex count is not greater
+     * than 65536; otherwise {@link GLDataType#UNSIGNED_INT}
+     * @since 0.2.0
+     */
+    public GLDataType getIndexType() {
+        return vertexCount <= 0x10000 ? GLDataType.UNSIGNED_SHORT : GLDataType.UNSIGNED_INT;
+    }
+
+    /**
+     * Get the index data in {@link #getIndexType() the smallest index type}
+     * off-heap. Only valid after {@link #end()}.
+     *
+     * @return the index data in bytes, or {@code null} if no index; don't modify it
+     * @since 0.2.0
+     */
+    public ByteBuffer getCompactIndexBuffer() {
+        if (indexCount <= 0)
+            return null;
+        if (getIndexType() == GLDataType.UNSIGNED_SHORT)
+            return memByteBuffer(memAddress(shortIndexBuffer), indexCount << 1);
+        return memByteBuffer(memAddress(indexBuffer), indexCount << 2);
+    }
+
     /**
      * Return {@code true} if the vertex buffer of this batch is expanded.
      * <h4>Example</h4>
@@ -597,12 +936,21 @@ public class GLBatch implements ITessCallback, AutoCloseable {
     }
 
     /**
-     * Get the vertex info list.
+     * Get a copy of the staged vertices. It's always empty in {@link #isDirectWrite() direct-write mode}.
+     * <p>
+     * The vertices are staged as {@link GLVertex#store(long) records} off-heap,
+     * so this method creates the objects; avoid calling it per frame.
+     * </p>
      *
      * @return the list
      */
     public List<GLVertex> getVertexInfoList() {
-        return vertexInfoList;
+        final int count = (int) (stagedVertices.size() / GLVertex.BYTES);
+        var list = new ArrayList<GLVertex>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(new GLVertex().load(stagedVertices.address() + (long) i * GLVertex.BYTES));
+        }
+        return list;
     }
 
     @Override
@@ -610,11 +958,12 @@ public class GLBatch implements ITessCallback, AutoCloseable {
         if (destroyed)
             return;
         destroyed = true;
-        if (useMemUtil) {
-            memFree(buffer);
-            buffer = null;
-            memFree(indexBuffer);
-            indexBuffer = null;
-        }
+        stagedVertices.close();
+        free(buffer);
+        buffer = null;
+        free(indexBuffer);
+        indexBuffer = null;
+        free(shortIndexBuffer);
+        shortIndexBuffer = null;
     }
 }
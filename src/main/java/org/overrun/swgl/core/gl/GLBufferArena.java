@@ -0,0 +1,351 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL31C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The suballocator handing out slices of large shared GL buffers, the arenas.
+ * <p>
+ * Each arena is managed by a {@link GLTlsfAllocator}, so the freed slices are reused
+ * without reallocating the GL buffers. When the fragmentation of an arena passes the threshold,
+ * its live slices are compacted with {@code glCopyBufferSubData}; the slices are updated in place,
+ * so the users should read {@link Slice#getBuffer()} and {@link Slice#getOffset()} when drawing.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLBufferArena implements AutoCloseable {
+    private final int target;
+    private final int usage;
+    private final long arenaSize;
+    private final List<Arena> arenas = new ArrayList<>();
+    private float compactThreshold = 0.5f;
+    private int compactionCount = 0;
+    private long movedBytes = 0;
+
+    private final class Arena {
+        private final GLTlsfAllocator allocator;
+        private final Map<Long, Slice> slices = new HashMap<>();
+        private int buffer;
+
+        private Arena(long size) {
+            allocator = new GLTlsfAllocator(size);
+            buffer = createBuffer(allocator.capacity());
+        }
+    }
+
+    /**
+     * The slice of an arena.
+     *
+     * @author squid233
+     * @since 0.2.0
+     */
+    public final class Slice {
+        private final Arena arena;
+        private final long size;
+        private long offset;
+        private boolean freed = false;
+
+        private Slice(Arena arena, long offset, long size) {
+            this.arena = arena;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        /**
+         * Gets the id of the GL buffer containing this slice. Changed after compaction.
+         *
+         * @return the buffer id
+         */
+        public int getBuffer() {
+            return arena.buffer;
+        }
+
+        /**
+         * Gets the offset in bytes in the buffer. Changed after compaction.
+         *
+         * @return the offset
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Gets the requested size in bytes.
+         *
+         * @return the size
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isFreed() {
+            return freed;
+        }
+
+        /**
+         * Uploads the data from the position to the limit.
+         *
+         * @param dstOffset the offset in this slice
+         * @param data      the data
+         */
+        public void upload(long dstOffset, ByteBuffer data) {
+            final long length = data.remaining();
+            if (dstOffset < 0 || dstOffset + length > size) {
+                throw new IndexOutOfBoundsException("Range [" + dstOffset + ", " + (dstOffset + length) + ") out of slice size " + size);
+            }
+            GLStateMgr.bindBuffer(GL_COPY_WRITE_BUFFER, arena.buffer);
+            nglBufferSubData(GL_COPY_WRITE_BUFFER, offset + dstOffset, length, memAddress(data));
+        }
+
+        /**
+         * Returns this slice to the arena.
+         */
+        public void free() {
+            GLBufferArena.this.free(this);
+        }
+    }
+
+    /**
+     * Create the buffer arena.
+     *
+     * @param target    the target the buffers are used with, such as {@code GL_ARRAY_BUFFER}
+     * @param usage     the buffer usage
+     * @param arenaSize the size of an arena in bytes
+     */
+    public GLBufferArena(int target, int usage, long arenaSize) {
+        this.target = target;
+        this.usage = usage;
+        this.arenaSize = arenaSize;
+    }
+
+    private int createBuffer(long size) {
+        final int buffer = glGenBuffers();
+        GLStateMgr.bindBuffer(GL_COPY_WRITE_BUFFER, buffer);
+        glBufferData(GL_COPY_WRITE_BUFFER, size, usage);
+        return buffer;
+    }
+
+    private static void deleteBuffer(int buffer) {
+        GLStateMgr.onBufferDeleted(buffer);
+        glDeleteBuffers(buffer);
+    }
+
+    private Slice allocate(Arena arena, long size) {
+        final long offset = arena.allocator.allocate(size);
+        if (offset == -1)
+            return null;
+        var slice = new Slice(arena, offset, size);
+        arena.slices.put(offset, slice);
+        return slice;
+    }
+
+    /**
+     * Allocate a slice. A slice greater than the arena size gets a dedicated arena.
+     *
+     * @param size the size in bytes
+     * @return the slice
+     */
+    public Slice allocate(long size) {
+        for (var arena : arenas) {
+            var slice = allocate(arena, size);
+            if (slice != null) return slice;
+        }
+        final long rounded = GLTlsfAllocator.roundSize(size);
+        for (var arena : arenas) {
+            if (arena.allocator.free() >= rounded
+                && arena.allocator.fragmentation() >= compactThreshold) {
+                compact(arena);
+                var slice = allocate(arena, size);
+                if (slice != null) return slice;
+            }
+        }
+        var arena = new Arena(Math.max(arenaSize, rounded));
+        arenas.add(arena);
+        return allocate(arena, size);
+    }
+
+    /**
+     * Returns the slice to the arena. An empty arena is released if it is not the only one.
+     *
+     * @param slice the slice
+     */
+    public void free(Slice slice) {
+        if (slice.freed)
+            return;
+        slice.freed = true;
+        final var arena = slice.arena;
+        arena.slices.remove(slice.offset);
+        arena.allocator.free(slice.offset);
+        if (arena.slices.isEmpty() && arenas.size() > 1) {
+            arenas.remove(arena);
+            deleteBuffer(arena.buffer);
+        }
+    }
+
+    private void compact(Arena arena) {
+        // copies into a new buffer, since the moved ranges may overlap in the same buffer
+        final int src = arena.buffer;
+        final int dst = createBuffer(arena.allocator.capacity());
+        GLStateMgr.bindBuffer(GL_COPY_READ_BUFFER, src);
+        var moved = new HashMap<Long, Long>();
+        arena.allocator.defragment((from, to, size) -> moved.put(from, to));
+        var slices = new ArrayList<>(arena.slices.values());
+        arena.slices.clear();
+        for (var slice : slices) {
+            final long to = moved.getOrDefault(slice.offset, slice.offset);
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, slice.offset, to, slice.size);
+            if (to != slice.offset) movedBytes += slice.size;
+            slice.offset = to;
+            arena.slices.put(to, slice);
+        }
+        arena.buffer = dst;
+        deleteBuffer(src);
+        ++compactionCount;
+    }
+
+    /**
+     * Compacts the arenas whose fragmentation passes the threshold.
+     *
+     * @return the count of the compacted arenas
+     */
+    public int compact() {
+        int count = 0;
+        for (var arena : arenas) {
+            if (arena.allocator.fragmentation() >= compactThreshold) {
+                compact(arena);
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sets the fragmentation threshold for compaction. Default is {@code 0.5}.
+     *
+     * @param compactThreshold the threshold in {@code [0, 1]}
+     */
+    public void setCompactThreshold(float compactThreshold) {
+        this.compactThreshold = compactThreshold;
+    }
+
+    public float getCompactThreshold() {
+        return compactThreshold;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Metrics
+    ///////////////////////////////////////////////////////////////////////////
+
+    public int getTarget() {
+        return target;
+    }
+
+    public int getArenaCount() {
+        return arenas.size();
+    }
+
+    /**
+     * Gets the total capacity of the arenas in bytes.
+     *
+     * @return the capacity
+     */
+    public long getCapacity() {
+        long capacity = 0;
+        for (var arena : arenas) capacity += arena.allocator.capacity();
+        return capacity;
+    }
+
+    /**
+     * Gets the total bytes of the live slices, rounded to the granularity.
+     *
+     * @return the used bytes
+     */
+    public long getUsed() {
+        long used = 0;
+        for (var arena : arenas) used += arena.allocator.used();
+        return used;
+    }
+
+    public int getSliceCount() {
+        int count = 0;
+        for (var arena : arenas) count += arena.slices.size();
+        return count;
+    }
+
+    /**
+     * Gets the occupancy of all arenas, {@code used / capacity}.
+     *
+     * @return the occupancy in {@code [0, 1]}
+     */
+    public float getOccupancy() {
+        final long capacity = getCapacity();
+        return capacity == 0 ? 0.0f : (float) getUsed() / capacity;
+    }
+
+    /**
+     * Gets the fragmentation of all arenas, {@code 1 - sum(largestFree) / sum(free)}.
+     *
+     * @return the fragmentation in {@code [0, 1]}
+     */
+    public float getFragmentation() {
+        long free = 0, largest = 0;
+        for (var arena : arenas) {
+            free += arena.allocator.free();
+            largest += arena.allocator.largestFree();
+        }
+        return free == 0 ? 0.0f : 1.0f - (float) largest / free;
+    }
+
+    public int getCompactionCount() {
+        return compactionCount;
+    }
+
+    /**
+     * Gets the bytes moved by the compactions.
+     *
+     * @return the moved bytes
+     */
+    public long getMovedBytes() {
+        return movedBytes;
+    }
+
+    @Override
+    public void close() {
+        for (var arena : arenas) {
+            deleteBuffer(arena.buffer);
+        }
+        arenas.clear();
+    }
+}
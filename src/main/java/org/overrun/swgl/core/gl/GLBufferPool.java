@@ -0,0 +1,219 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import java.util.Arrays;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The pool of size-classed native memory blocks, shared between the {@link GLBatch batches}.
+ * <p>
+ * The sizes are rounded up to the power-of-two classes from {@link #MIN_CLASS_SIZE}
+ * to {@link #MAX_CLASS_SIZE}. The released blocks are retained for reuse until the
+ * retained bytes reach the limit, then they are freed. The blocks larger than
+ * {@link #MAX_CLASS_SIZE} are never pooled.
+ * </p>
+ * <p>
+ * The pool is thread-safe.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLBufferPool {
+    /**
+     * The min class size in bytes.
+     */
+    public static final int MIN_CLASS_SIZE = 1 << 8;
+    /**
+     * The max class size in bytes.
+     */
+    public static final int MAX_CLASS_SIZE = 1 << 26;
+    /**
+     * The default limit of the retained bytes.
+     */
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 64L << 20;
+    private static final int MIN_SHIFT = 8;
+    private static final int CLASS_COUNT = 26 - MIN_SHIFT + 1;
+    private static GLBufferPool shared;
+    private final long[][] freeBlocks = new long[CLASS_COUNT][];
+    private final int[] freeCounts = new int[CLASS_COUNT];
+    private final long maxRetainedBytes;
+    private long retainedBytes = 0;
+    private long hits = 0, misses = 0;
+
+    /**
+     * Create a pool.
+     *
+     * @param maxRetainedBytes the max bytes of the retained blocks
+     */
+    public GLBufferPool(long maxRetainedBytes) {
+        if (maxRetainedBytes < 0)
+            throw new IllegalArgumentException("maxRetainedBytes must be non-negative");
+        this.maxRetainedBytes = maxRetainedBytes;
+        Arrays.setAll(freeBlocks, i -> new long[4]);
+    }
+
+    /**
+     * Create a pool with {@link #DEFAULT_MAX_RETAINED_BYTES the default limit}.
+     */
+    public GLBufferPool() {
+        this(DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    /**
+     * Get the shared pool.
+     *
+     * @return the shared pool
+     */
+    public static synchronized GLBufferPool getShared() {
+        if (shared == null)
+            shared = new GLBufferPool();
+        return shared;
+    }
+
+    /**
+     * Get the class size of the bytes.
+     *
+     * @param bytes the requested bytes
+     * @return the class size; or the bytes itself if it is larger than {@link #MAX_CLASS_SIZE}
+     */
+    public static int classSize(int bytes) {
+        if (bytes <= MIN_CLASS_SIZE)
+            return MIN_CLASS_SIZE;
+        if (bytes > MAX_CLASS_SIZE)
+            return bytes;
+        return Integer.highestOneBit(bytes - 1) << 1;
+    }
+
+    private static int classIndex(long size) {
+        if (size < MIN_CLASS_SIZE || size > MAX_CLASS_SIZE || Long.bitCount(size) != 1)
+            return -1;
+        return Long.numberOfTrailingZeros(size) - MIN_SHIFT;
+    }
+
+    /**
+     * Acquires a memory block of {@link #classSize(int) the class size}.
+     *
+     * @param bytes the requested bytes
+     * @return the address of the block; must be {@link #release(long, long) released}
+     */
+    public long acquire(int bytes) {
+        int size = classSize(bytes);
+        int index = classIndex(size);
+        if (index >= 0) {
+            synchronized (this) {
+                if (freeCounts[index] > 0) {
+                    ++hits;
+                    retainedBytes -= size;
+                    return freeBlocks[index][--freeCounts[index]];
+                }
+                ++misses;
+            }
+        } else {
+            synchronized (this) {
+                ++misses;
+            }
+        }
+        return nmemAllocChecked(size);
+    }
+
+    /**
+     * Releases a memory block. The block is retained if its size is a class size and
+     * the retained bytes don't exceed the limit; otherwise it is freed.
+     *
+     * @param address the address of the block
+     * @param size    the size of the block in bytes
+     */
+    public void release(long address, long size) {
+        if (address == NULL)
+            return;
+        int index = classIndex(size);
+        if (index >= 0) {
+            synchronized (this) {
+                if (retainedBytes + size <= maxRetainedBytes) {
+                    var blocks = freeBlocks[index];
+                    if (freeCounts[index] == blocks.length)
+                        freeBlocks[index] = blocks = Arrays.copyOf(blocks, blocks.length << 1);
+                    blocks[freeCounts[index]++] = address;
+                    retainedBytes += size;
+                    return;
+                }
+            }
+        }
+        nmemFree(address);
+    }
+
+    /**
+     * Frees all retained blocks.
+     */
+    public synchronized void trim() {
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            var blocks = freeBlocks[i];
+            for (int j = 0, c = freeCounts[i]; j < c; j++) {
+                nmemFree(blocks[j]);
+            }
+            freeCounts[i] = 0;
+        }
+        retainedBytes = 0;
+    }
+
+    /**
+     * Get the max bytes of the retained blocks.
+     *
+     * @return the limit
+     */
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    /**
+     * Get the bytes of the retained blocks.
+     *
+     * @return the retained bytes
+     */
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * Get the count of the acquisitions reusing a retained block.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the count of the acquisitions allocating a new block.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
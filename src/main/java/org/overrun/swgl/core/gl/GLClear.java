@@ -43,7 +43,6 @@ public class GLClear {
         COLOR_BUFFER_BIT = GL_COLOR_BUFFER_BIT,
         DEPTH_BUFFER_BIT = GL_DEPTH_BUFFER_BIT,
         STENCIL_BUFFER_BIT = GL_STENCIL_BUFFER_BIT;
-    private static final float[] clearColor = {0.0f, 0.0f, 0.0f, 0.0f};
     private static double clearDepth = 1.0;
     private static int clearStencil = 1;
 
@@ -65,16 +64,7 @@ public class GLClear {
      * @param a Alpha value
      */
     public static void clearColor(float r, float g, float b, float a) {
-        if (isNonEqual(clearColor[0], r)
-            || isNonEqual(clearColor[1], g)
-            || isNonEqual(clearColor[2], b)
-            || isNonEqual(clearColor[3], a)) {
-            clearColor[0] = r;
-            clearColor[1] = g;
-            clearColor[2] = b;
-            clearColor[3] = a;
-            glClearColor(r, g, b, a);
-        }
+        GLStateMgr.setClearColor(r, g, b, a);
     }
 
     /**
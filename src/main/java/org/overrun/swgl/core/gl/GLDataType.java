@@ -25,6 +25,8 @@
 package org.overrun.swgl.core.gl;
 
 import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL30C.GL_HALF_FLOAT;
+import static org.lwjgl.opengl.GL33C.GL_INT_2_10_10_10_REV;
 
 /**
  * The GL types enum.
@@ -64,16 +66,34 @@ public enum GLDataType {
     /**
      * A double type with length 8
      */
-    DOUBLE("Double", Double.BYTES, GL_DOUBLE);
+    DOUBLE("Double", Double.BYTES, GL_DOUBLE),
+    /**
+     * A half float type with length 2
+     *
+     * @since 0.2.0
+     */
+    HALF_FLOAT("Half Float", Short.BYTES, GL_HALF_FLOAT),
+    /**
+     * A packed signed 10-10-10-2 type with length 4 for all components
+     *
+     * @since 0.2.0
+     */
+    INT_2_10_10_10_REV("Int 2_10_10_10 Rev", Integer.BYTES, GL_INT_2_10_10_10_REV, true);
 
     private final String name;
     private final int bytes;
     private final int dataType;
+    private final boolean packed;
 
-    GLDataType(String name, int bytes, int dataType) {
+    GLDataType(String name, int bytes, int dataType, boolean packed) {
         this.name = name;
         this.bytes = bytes;
         this.dataType = dataType;
+        this.packed = packed;
+    }
+
+    GLDataType(String name, int bytes, int dataType) {
+        this(name, bytes, dataType, false);
     }
 
     /**
@@ -95,14 +115,24 @@ public enum GLDataType {
     }
 
     /**
-     * Get count * size
+     * Is this type packing all components into a single value.
+     *
+     * @return is packed
+     * @since 0.2.0
+     */
+    public boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * Get count * size, or size if this type is {@link #isPacked() packed}.
      *
      * @param count count
      * @return data length
      * @since 0.2.0
      */
     public int getLength(int count) {
-        return count * getBytes();
+        return packed ? getBytes() : count * getBytes();
     }
 
     @Override
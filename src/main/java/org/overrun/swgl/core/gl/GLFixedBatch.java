@@ -31,6 +31,7 @@ import org.overrun.swgl.core.model.VertexLayout;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.Optional;
 
 import static org.lwjgl.system.MemoryUtil.*;
@@ -49,6 +50,7 @@ public class GLFixedBatch implements ITessCallback, AutoCloseable {
     private final int size, indexSize;
     private final ByteBuffer buffer;
     private final IntBuffer indexBuffer;
+    private final ShortBuffer shortIndexBuffer;
     private int writtenBytes = 0;
     private int lastVertexCount = 0;
     private int vertexCount = 0;
@@ -83,16 +85,22 @@ public class GLFixedBatch implements ITessCallback, AutoCloseable {
         this.useMemUtil = useMemUtil;
         if (useMemUtil) {
             buffer = memAlloc(size);
-            if (indexSize > 0)
+            if (indexSize > 0) {
                 indexBuffer = memAllocInt(indexSize);
-            else
+                shortIndexBuffer = memAllocShort(indexSize);
+            } else {
                 indexBuffer = null;
+                shortIndexBuffer = null;
+            }
         } else {
             buffer = BufferUtils.createByteBuffer(size);
-            if (indexSize > 0)
+            if (indexSize > 0) {
                 indexBuffer = BufferUtils.createIntBuffer(indexSize);
-            else
+                shortIndexBuffer = BufferUtils.createShortBuffer(indexSize);
+            } else {
                 indexBuffer = null;
+                shortIndexBuffer = null;
+            }
         }
         vertexInfoList = new GLVertex[size];
     }
@@ -136,12 +144,13 @@ public class GLFixedBatch implements ITessCallback, AutoCloseable {
      * Flip buffers and end drawing.
      */
     public void end() {
+        final var writer = layout.getWriter();
         for (var vertexInfo : vertexInfoList) {
             // not filled
             if (vertexInfo == null) break;
-            layout.forEachFormat((format, offset, index) ->
-                vertexInfo.processBuffer(format, buffer));
-            writtenBytes += layout.getStride();
+            writer.write(vertexInfo, buffer, buffer.position());
+            buffer.position(buffer.position() + writer.getStride());
+            writtenBytes += writer.getStride();
         }
         if (buffer.position() > 0) {
             buffer.flip();
@@ -149,6 +158,13 @@ public class GLFixedBatch implements ITessCallback, AutoCloseable {
         if (indexBuffer != null && indexBuffer.position() > 0) {
             indexBuffer.flip();
         }
+        if (indexCount > 0 && getIndexType() == GLDataType.UNSIGNED_SHORT) {
+            shortIndexBuffer.clear();
+            for (int i = 0; i < indexCount; i++) {
+                shortIndexBuffer.put(i, (short) indexBuffer.get(i));
+            }
+            shortIndexBuffer.limit(indexCount);
+        }
     }
 
     /**
@@ -414,6 +430,32 @@ public class GLFixedBatch implements ITessCallback, AutoCloseable {
         return indexCount;
     }
 
+    /**
+     * Get the smallest index type that can index all vertices of this batch.
+     *
+     * @return {@link GLDataType#UNSIGNED_SHORT} if the vertex count is not greater
+     * than 65536; otherwise {@link GLDataType#UNSIGNED_INT}
+     * @since 0.2.0
+     */
+    public GLDataType getIndexType() {
+        return vertexCount <= 0x10000 ? GLDataType.UNSIGNED_SHORT : GLDataType.UNSIGNED_INT;
+    }
+
+    /**
+     * Get the index data in {@link #getIndexType() the smallest index type}
+     * off-heap. Only valid after {@link #end()}.
+     *
+     * @return the index data in bytes, or {@code null} if no index; don't modify it
+     * @since 0.2.0
+     */
+    public ByteBuffer getCompactIndexBuffer() {
+        if (indexCount <= 0)
+            return null;
+        if (getIndexType() == GLDataType.UNSIGNED_SHORT)
+            return memByteBuffer(memAddress(shortIndexBuffer), indexCount << 1);
+        return memByteBuffer(memAddress(indexBuffer), indexCount << 2);
+    }
+
     /**
      * Return {@code true} if the batch has color.
      *
@@ -449,6 +491,7 @@ public class GLFixedBatch implements ITessCallback, AutoCloseable {
         if (useMemUtil) {
             memFree(buffer);
             memFree(indexBuffer);
+            memFree(shortIndexBuffer);
         }
     }
 }
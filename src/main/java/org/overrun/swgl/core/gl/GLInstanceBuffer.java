@@ -0,0 +1,347 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import org.overrun.swgl.core.util.IntArrayList;
+import org.overrun.swgl.core.util.NativeByteList;
+
+import static org.lwjgl.opengl.GL33C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The per-instance attribute stream drawn with the instanced draw calls.
+ * <p>
+ * The instance data are packed into a growable off-heap list by the {@link IPacker packer},
+ * and uploaded to a GL buffer orphaned on each upload. The attributes start at {@code firstAttrib},
+ * after the per-vertex attributes of the mesh, and have the divisor {@code 1}.
+ * The buffer is attached to each vertex array once, on the first draw with it bound.
+ * The attached vertex arrays are forgotten when any vertex array is deleted through
+ * {@link GLStateMgr#onVertexArrayDeleted(int)}; if a vertex array is deleted by calling
+ * GL directly, {@link #detach(int) detach} it, or its id reused by GL is never attached.
+ * </p>
+ * <h4>Example</h4>
+ * <pre>{@code var instances = new GLInstanceBuffer<Sprite>(3, (sprite, address) -> {
+ *         sprite.transform().getToAddress(address);
+ *         // color and UV rectangle
+ *     },
+ *     GLInstanceBuffer.Attrib.MAT4F, GLInstanceBuffer.Attrib.C4UB, GLInstanceBuffer.Attrib.V4F);
+ * // each frame
+ * instances.clear();
+ * for (var sprite : sprites) instances.add(sprite);
+ * instances.upload();
+ * GLStateMgr.bindVertexArray(quadVao);
+ * instances.drawElements(GLDrawMode.TRIANGLES, 6, GLDataType.UNSIGNED_INT, 0L);}</pre>
+ *
+ * @param <T> the instance type
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLInstanceBuffer<T> implements AutoCloseable {
+    private final int firstAttrib;
+    private final IPacker<T> packer;
+    private final Attrib[] attribs;
+    private final int[] offsets;
+    private final int stride;
+    private final NativeByteList data = new NativeByteList();
+    private final IGLBuffer.Single buffer;
+    private final IntArrayList attachedArrays = new IntArrayList();
+    private int vertexArrayDeletions = GLStateMgr.getVertexArrayDeletions();
+    private long bufferCapacity = 0;
+    private int count = 0;
+
+    /**
+     * The instance packer.
+     *
+     * @param <T> the instance type
+     * @author squid233
+     * @since 0.2.0
+     */
+    @FunctionalInterface
+    public interface IPacker<T> {
+        /**
+         * Writes the instance to the address.
+         *
+         * @param instance the instance
+         * @param address  the address of {@link #getStride() stride} bytes
+         */
+        void pack(T instance, long address);
+    }
+
+    /**
+     * The per-instance attribute.
+     *
+     * @param size       the component count of a column, 1 to 4
+     * @param type       the component type
+     * @param normalized whether the integer components are normalized
+     * @param columns    the count of the attribute locations, such as 4 for {@code mat4}
+     * @author squid233
+     * @since 0.2.0
+     */
+    public record Attrib(int size, GLDataType type, boolean normalized, int columns) {
+        /**
+         * The {@code float}.
+         */
+        public static final Attrib F1 = new Attrib(1, GLDataType.FLOAT, false, 1);
+        /**
+         * The {@code vec2}.
+         */
+        public static final Attrib V2F = new Attrib(2, GLDataType.FLOAT, false, 1);
+        /**
+         * The {@code vec3}.
+         */
+        public static final Attrib V3F = new Attrib(3, GLDataType.FLOAT, false, 1);
+        /**
+         * The {@code vec4}, such as the atlas UV rectangle.
+         */
+        public static final Attrib V4F = new Attrib(4, GLDataType.FLOAT, false, 1);
+        /**
+         * The normalized RGBA color in 4 bytes.
+         */
+        public static final Attrib C4UB = new Attrib(4, GLDataType.UNSIGNED_BYTE, true, 1);
+        /**
+         * The {@code mat4} transform in 4 attribute locations.
+         */
+        public static final Attrib MAT4F = new Attrib(4, GLDataType.FLOAT, false, 4);
+
+        public Attrib {
+            if (size < 1 || size > 4) {
+                throw new IllegalArgumentException("Invalid component count " + size);
+            }
+            if (columns < 1) {
+                throw new IllegalArgumentException("Invalid column count " + columns);
+            }
+        }
+
+        /**
+         * Gets the byte length of a column.
+         *
+         * @return the byte length
+         */
+        public int columnBytes() {
+            return type.getLength(size);
+        }
+
+        /**
+         * Gets the byte length of the attribute.
+         *
+         * @return the byte length
+         */
+        public int bytes() {
+            return columnBytes() * columns;
+        }
+    }
+
+    /**
+     * Create the instance buffer.
+     *
+     * @param firstAttrib the attribute index of the first attribute
+     * @param packer      the instance packer
+     * @param attribs     the attributes in the order of the locations
+     */
+    public GLInstanceBuffer(int firstAttrib, IPacker<T> packer, Attrib... attribs) {
+        this.firstAttrib = firstAttrib;
+        this.packer = packer;
+        this.attribs = attribs.clone();
+        offsets = new int[attribs.length];
+        int offset = 0;
+        for (int i = 0; i < attribs.length; i++) {
+            offsets[i] = offset;
+            offset += attribs[i].bytes();
+        }
+        stride = offset;
+        buffer = new IGLBuffer.Single().layout(GL_ARRAY_BUFFER, GL_STREAM_DRAW);
+    }
+
+    /**
+     * Packs and adds an instance.
+     *
+     * @param instance the instance
+     * @return this
+     */
+    public GLInstanceBuffer<T> add(T instance) {
+        packer.pack(instance, next());
+        return this;
+    }
+
+    /**
+     * Adds an instance to be written directly without the packer.
+     *
+     * @return the address of {@link #getStride() stride} bytes
+     */
+    public long next() {
+        ++count;
+        return data.append(stride);
+    }
+
+    /**
+     * Removes all instances.
+     */
+    public void clear() {
+        data.clear();
+        count = 0;
+    }
+
+    /**
+     * Uploads the instances to the GL buffer. The buffer is orphaned and grown if needed.
+     */
+    public void upload() {
+        final long bytes = data.size();
+        buffer.bind();
+        if (bytes > bufferCapacity) {
+            bufferCapacity = Math.max(bytes, bufferCapacity + (bufferCapacity >> 1));
+        }
+        // orphan the old storage, so the GPU can still read it
+        buffer.data(bufferCapacity);
+        if (bytes > 0) {
+            nglBufferSubData(GL_ARRAY_BUFFER, 0L, bytes, data.address());
+        }
+    }
+
+    /**
+     * Sets the attribute pointers in the bound vertex array.
+     * Called automatically on the first draw with a vertex array.
+     */
+    public void attach() {
+        buffer.bind();
+        int location = firstAttrib;
+        for (int i = 0; i < attribs.length; i++) {
+            final var attrib = attribs[i];
+            for (int c = 0; c < attrib.columns(); c++) {
+                glEnableVertexAttribArray(location);
+                glVertexAttribPointer(location,
+                    attrib.size(),
+                    attrib.type().getDataType(),
+                    attrib.normalized(),
+                    stride,
+                    offsets[i] + (long) c * attrib.columnBytes());
+                glVertexAttribDivisor(location, 1);
+                ++location;
+            }
+        }
+        final int vao = GLStateMgr.getVertexArray();
+        if (attachedArrays.indexOf(vao) == -1) {
+            attachedArrays.add(vao);
+        }
+    }
+
+    /**
+     * Forgets that the buffer is attached to the vertex array, so the next draw with it
+     * bound attaches the buffer again. Call this if the vertex array is deleted without
+     * {@link GLStateMgr#onVertexArrayDeleted(int)}.
+     *
+     * @param vao the vertex array id
+     */
+    public void detach(int vao) {
+        final int index = attachedArrays.indexOf(vao);
+        if (index != -1) {
+            attachedArrays.removeAt(index);
+        }
+    }
+
+    private void ensureAttached() {
+        final int deletions = GLStateMgr.getVertexArrayDeletions();
+        if (deletions != vertexArrayDeletions) {
+            // the ids may be reused
+            vertexArrayDeletions = deletions;
+            attachedArrays.clear();
+        }
+        if (attachedArrays.indexOf(GLStateMgr.getVertexArray()) == -1) {
+            attach();
+        }
+    }
+
+    /**
+     * Draws the elements of the bound vertex array for each instance.
+     *
+     * @param mode    the draw mode
+     * @param count   the index count of a mesh
+     * @param type    the index type
+     * @param indices the offset of the indices in bytes
+     */
+    public void drawElements(GLDrawMode mode, int count, GLDataType type, long indices) {
+        if (this.count == 0)
+            return;
+        ensureAttached();
+        glDrawElementsInstanced(mode.getGlType(), count, type.getDataType(), indices, this.count);
+    }
+
+    /**
+     * Draws the vertices of the bound vertex array for each instance.
+     *
+     * @param mode  the draw mode
+     * @param first the first vertex
+     * @param count the vertex count of a mesh
+     */
+    public void drawArrays(GLDrawMode mode, int first, int count) {
+        if (this.count == 0)
+            return;
+        ensureAttached();
+        glDrawArraysInstanced(mode.getGlType(), first, count, this.count);
+    }
+
+    /**
+     * Gets the count of the attribute locations used.
+     *
+     * @return the location count
+     */
+    public int getAttribCount() {
+        int c = 0;
+        for (var attrib : attribs) {
+            c += attrib.columns();
+        }
+        return c;
+    }
+
+    public int getFirstAttrib() {
+        return firstAttrib;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public int getOffset(int attrib) {
+        return offsets[attrib];
+    }
+
+    /**
+     * Gets the count of the instances.
+     *
+     * @return the instance count
+     */
+    public int size() {
+        return count;
+    }
+
+    public IGLBuffer.Single getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void close() {
+        data.close();
+        buffer.close();
+    }
+}
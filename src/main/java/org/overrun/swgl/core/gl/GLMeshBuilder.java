@@ -0,0 +1,299 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import org.lwjgl.opengl.GL15C;
+import org.overrun.swgl.core.model.VertexLayout;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * The thread-safe mesh builder.
+ * <p>
+ * Each task is built on the executor with a {@link GLBatch} arena owned by
+ * the task until the result is uploaded. The completed batches are queued,
+ * and the render thread uploads them with {@link #upload(Uploader, int)},
+ * which returns the arenas to the pool.
+ * </p>
+ * <h4>Example</h4>
+ * <pre>{@code var builder = new GLMeshBuilder<Chunk>(ForkJoinPool.commonPool());
+ * // any thread
+ * builder.submit(chunk, layout, chunk::tessellate);
+ * // render thread, every frame
+ * builder.upload((chunk, result) -> result.upload(chunk.vbo, chunk.ebo), 8);}</pre>
+ *
+ * @param <T> the key type to identify the meshes
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLMeshBuilder<T> implements AutoCloseable {
+    private final Executor executor;
+    private final Queue<GLBatch> idleArenas = new ConcurrentLinkedQueue<>();
+    private final Queue<GLBatch> allArenas = new ConcurrentLinkedQueue<>();
+    private final Queue<Result<T>> completed = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Create the mesh builder.
+     *
+     * @param executor the executor to build the meshes
+     */
+    public GLMeshBuilder(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * The uploader to upload the built mesh on the render thread.
+     *
+     * @param <T> the key type
+     * @author squid233
+     * @since 0.2.0
+     */
+    @FunctionalInterface
+    public interface Uploader<T> {
+        /**
+         * Upload the built mesh.
+         * <p>
+         * The result is only valid in this method.
+         * </p>
+         *
+         * @param key    the mesh key
+         * @param result the built mesh
+         */
+        void upload(T key, Result<T> result);
+    }
+
+    /**
+     * The built mesh.
+     *
+     * @param <T> the key type
+     * @author squid233
+     * @since 0.2.0
+     */
+    public static final class Result<T> {
+        private final T key;
+        private final GLBatch batch;
+
+        private Result(T key, GLBatch batch) {
+            this.key = key;
+            this.batch = batch;
+        }
+
+        /**
+         * Get the mesh key.
+         *
+         * @return the key
+         */
+        public T key() {
+            return key;
+        }
+
+        /**
+         * Get the batch the mesh built with.
+         *
+         * @return the batch; don't modify it
+         */
+        public GLBatch batch() {
+            return batch;
+        }
+
+        /**
+         * Get the vertex buffer.
+         *
+         * @return the vertex buffer
+         */
+        public ByteBuffer vertexBuffer() {
+            return batch.getBuffer();
+        }
+
+        /**
+         * Get the index buffer.
+         *
+         * @return the index buffer, or {@code null} if no index
+         */
+        public IntBuffer indexBuffer() {
+            return batch.getIndexCount() > 0 ? batch.getIndexBuffer().orElse(null) : null;
+        }
+
+        /**
+         * Get the index type of {@link #compactIndexBuffer()}.
+         *
+         * @return the index type
+         */
+        public GLDataType indexType() {
+            return batch.getIndexType();
+        }
+
+        /**
+         * Get the index data in {@link #indexType() the smallest index type}.
+         *
+         * @return the index data, or {@code null} if no index
+         */
+        public ByteBuffer compactIndexBuffer() {
+            return batch.getCompactIndexBuffer();
+        }
+
+        /**
+         * Upload the vertex and index data into the buffers with {@code glBufferData}.
+         * The indices are uploaded in {@link #indexType() the smallest index type}.
+         *
+         * @param vbo the vertex buffer object
+         * @param ebo the element buffer object; ignored if no index
+         */
+        public void upload(IGLBuffer vbo, IGLBuffer ebo) {
+            vbo.bind().data(vertexBuffer(), GL15C::glBufferData);
+            var ib = compactIndexBuffer();
+            if (ib != null && ebo != null) {
+                ebo.bind().data(ib, GL15C::glBufferData);
+            }
+        }
+    }
+
+    private GLBatch acquire() {
+        var batch = idleArenas.poll();
+        if (batch == null) {
+            batch = new GLBatch(true, true);
+            allArenas.add(batch);
+        }
+        return batch;
+    }
+
+    private void release(GLBatch batch) {
+        idleArenas.add(batch);
+        // close() may have drained the queue before the add
+        if (closed && idleArenas.remove(batch)) {
+            batch.close();
+        }
+    }
+
+    /**
+     * Submit a mesh to build on the executor. This method is thread-safe.
+     *
+     * @param key     the mesh key
+     * @param layout  the vertex layout
+     * @param builder the action to emit the vertices into the batch;
+     *                {@link GLBatch#begin(VertexLayout) begin} and
+     *                {@link GLBatch#end() end} are called by this builder
+     * @return the future completed when the mesh is built and queued
+     */
+    public CompletableFuture<Void> submit(T key, VertexLayout layout, Consumer<GLBatch> builder) {
+        if (closed) {
+            throw new IllegalStateException("The mesh builder is closed!");
+        }
+        return CompletableFuture.runAsync(() -> {
+            final var batch = acquire();
+            try {
+                batch.begin(layout);
+                builder.accept(batch);
+                batch.end();
+            } catch (Throwable t) {
+                release(batch);
+                throw t;
+            }
+            final var result = new Result<>(key, batch);
+            completed.add(result);
+            if (closed && completed.remove(result)) {
+                batch.close();
+            }
+        }, executor);
+    }
+
+    /**
+     * Upload the built meshes. Call this on the render thread.
+     *
+     * @param uploader the uploader
+     * @param maxCount the max count of the meshes to upload in this call;
+     *                 non-positive for all
+     * @return the count of the uploaded meshes
+     */
+    public int upload(Uploader<T> uploader, int maxCount) {
+        int count = 0;
+        Result<T> result;
+        while ((maxCount <= 0 || count < maxCount) && (result = completed.poll()) != null) {
+            try {
+                uploader.upload(result.key(), result);
+            } finally {
+                release(result.batch());
+            }
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Upload all built meshes. Call this on the render thread.
+     *
+     * @param uploader the uploader
+     * @return the count of the uploaded meshes
+     */
+    public int upload(Uploader<T> uploader) {
+        return upload(uploader, 0);
+    }
+
+    /**
+     * Get the count of the built meshes waiting for uploading.
+     *
+     * @return the pending count
+     */
+    public int pendingCount() {
+        return completed.size();
+    }
+
+    /**
+     * Get the count of the batch arenas created by this builder.
+     *
+     * @return the arena count
+     */
+    public int arenaCount() {
+        return allArenas.size();
+    }
+
+    /**
+     * Close this builder and free the arenas. The meshes not uploaded are dropped.
+     * <p>
+     * The arenas held by running tasks are freed when the tasks finish.
+     * </p>
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        Result<T> result;
+        while ((result = completed.poll()) != null) {
+            result.batch().close();
+        }
+        GLBatch batch;
+        while ((batch = idleArenas.poll()) != null) {
+            batch.close();
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.gl;
+
+import org.jetbrains.annotations.Nullable;
+import org.overrun.swgl.core.model.VertexLayout;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL32C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The retained geometry cache. It replaces the display lists of the immediate mode.
+ * <p>
+ * {@link #record(GLBatch, GLDrawMode) Recording} snapshots an ended {@link GLBatch}
+ * by uploading its vertex and index data directly into slices of two shared {@link GLBufferArena}s,
+ * so no buffer is created per entry. The draw mode, the vertex layout and the index type are kept
+ * in the {@link Entry}.
+ * </p>
+ * <p>
+ * An entry can be re-recorded in place, keeping its slices if the new data fits,
+ * or partially updated with {@link #update(Entry, int, ByteBuffer)}.
+ * Each entry has a vertex array whose pointers are set again only when its slices are moved.
+ * The attributes are bound in the order of the layout, from {@code 0}.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLMeshCache implements AutoCloseable {
+    /**
+     * The default arena size of the vertices, in bytes.
+     */
+    public static final long DEFAULT_VERTEX_ARENA_SIZE = 4 << 20;
+    /**
+     * The default arena size of the indices, in bytes.
+     */
+    public static final long DEFAULT_INDEX_ARENA_SIZE = 1 << 20;
+    private final GLBufferArena vertexArena;
+    private final GLBufferArena indexArena;
+    private final List<Entry> entries = new ArrayList<>();
+    private long uploadedBytes = 0;
+
+    /**
+     * The retained geometry.
+     *
+     * @author squid233
+     * @since 0.2.0
+     */
+    public final class Entry {
+        private VertexLayout layout;
+        private GLDrawMode drawMode;
+        private int vertexCount, indexCount;
+        private GLDataType indexType;
+        private GLBufferArena.Slice vertexSlice, indexSlice;
+        private int vao = 0;
+        private int boundBuffer = 0, boundIndexBuffer = 0, boundAttribs = 0;
+        private long boundOffset = -1;
+        private boolean deleted = false;
+
+        private Entry() {
+        }
+
+        public VertexLayout getLayout() {
+            return layout;
+        }
+
+        public GLDrawMode getDrawMode() {
+            return drawMode;
+        }
+
+        public int getVertexCount() {
+            return vertexCount;
+        }
+
+        public int getIndexCount() {
+            return indexCount;
+        }
+
+        /**
+         * Gets the index type.
+         *
+         * @return the index type, or {@code null} if no index
+         */
+        @Nullable
+        public GLDataType getIndexType() {
+            return indexType;
+        }
+
+        public GLBufferArena.Slice getVertexSlice() {
+            return vertexSlice;
+        }
+
+        @Nullable
+        public GLBufferArena.Slice getIndexSlice() {
+            return indexSlice;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        /**
+         * Draws this entry.
+         */
+        public void draw() {
+            GLMeshCache.this.draw(this);
+        }
+
+        /**
+         * Deletes this entry and frees its slices.
+         */
+        public void delete() {
+            GLMeshCache.this.delete(this);
+        }
+    }
+
+    /**
+     * Create the mesh cache with the default arena sizes.
+     */
+    public GLMeshCache() {
+        this(DEFAULT_VERTEX_ARENA_SIZE, DEFAULT_INDEX_ARENA_SIZE);
+    }
+
+    /**
+     * Create the mesh cache.
+     *
+     * @param vertexArenaSize the arena size of the vertices in bytes
+     * @param indexArenaSize  the arena size of the indices in bytes
+     */
+    public GLMeshCache(long vertexArenaSize, long indexArenaSize) {
+        vertexArena = new GLBufferArena(GL_ARRAY_BUFFER, GL_STATIC_DRAW, vertexArenaSize);
+        indexArena = new GLBufferArena(GL_ELEMENT_ARRAY_BUFFER, GL_STATIC_DRAW, indexArenaSize);
+    }
+
+    private void checkAlive(Entry entry) {
+        if (entry.deleted) {
+            throw new IllegalStateException("The entry is deleted");
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Recording
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Records an ended batch into a new entry.
+     *
+     * @param batch the batch
+     * @param mode  the draw mode
+     * @return the entry
+     */
+    public Entry record(GLBatch batch, GLDrawMode mode) {
+        var entry = new Entry();
+        record(entry, batch, mode);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Re-records an ended batch into an entry. The slices are kept if the new data fits.
+     *
+     * @param entry the entry
+     * @param batch the batch
+     * @param mode  the draw mode
+     */
+    public void record(Entry entry, GLBatch batch, GLDrawMode mode) {
+        checkAlive(entry);
+        final var layout = batch.getLayout();
+        if (layout == null) {
+            throw new IllegalStateException("The batch is never begun");
+        }
+        final int vertexCount = batch.getVertexCount();
+        final int vertexBytes = vertexCount * layout.getStride();
+        entry.vertexSlice = reserve(vertexArena, entry.vertexSlice, vertexBytes);
+        if (vertexBytes > 0) {
+            upload(entry.vertexSlice, 0, memAddress0(batch.getBuffer()), vertexBytes);
+        }
+
+        final var indices = batch.getCompactIndexBuffer();
+        if (indices != null) {
+            entry.indexSlice = reserve(indexArena, entry.indexSlice, indices.remaining());
+            upload(entry.indexSlice, 0, memAddress(indices), indices.remaining());
+            entry.indexType = batch.getIndexType();
+        } else {
+            if (entry.indexSlice != null) {
+                entry.indexSlice.free();
+                entry.indexSlice = null;
+            }
+            entry.indexType = null;
+        }
+
+        if (entry.layout != null && !entry.layout.equals(layout)) {
+            entry.boundOffset = -1;
+        }
+        entry.layout = layout;
+        entry.drawMode = mode;
+        entry.vertexCount = vertexCount;
+        entry.indexCount = indices != null ? batch.getIndexCount() : 0;
+    }
+
+    /**
+     * Updates a range of the vertices of an entry in place. The data must be in the layout of the entry.
+     *
+     * @param entry       the entry
+     * @param firstVertex the first vertex to update
+     * @param vertices    the vertex data from the position to the limit
+     */
+    public void update(Entry entry, int firstVertex, ByteBuffer vertices) {
+        checkAlive(entry);
+        final int stride = entry.layout.getStride();
+        final int length = vertices.remaining();
+        if (firstVertex < 0 || length % stride != 0 || firstVertex + length / stride > entry.vertexCount) {
+            throw new IllegalArgumentException("Vertices [" + firstVertex + ", " + (firstVertex + length / stride)
+                                               + ") out of the recorded " + entry.vertexCount + " vertices");
+        }
+        upload(entry.vertexSlice, (long) firstVertex * stride, memAddress(vertices), length);
+    }
+
+    private static GLBufferArena.Slice reserve(GLBufferArena arena, GLBufferArena.Slice slice, long size) {
+        // Keeps a zero-sized slice to make the entry drawable as nothing
+        final long required = Math.max(size, 1);
+        if (slice != null) {
+            if (required <= slice.getSize())
+                return slice;
+            slice.free();
+        }
+        return arena.allocate(required);
+    }
+
+    private void upload(GLBufferArena.Slice slice, long dstOffset, long address, int length) {
+        slice.upload(dstOffset, memByteBuffer(address, length));
+        uploadedBytes += length;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Drawing
+    ///////////////////////////////////////////////////////////////////////////
+
+    private void prepare(Entry entry) {
+        final var vs = entry.vertexSlice;
+        final var is = entry.indexSlice;
+        final int indexBuffer = is != null ? is.getBuffer() : 0;
+        if (entry.vao == 0) {
+            entry.vao = glGenVertexArrays();
+        }
+        GLStateMgr.bindVertexArray(entry.vao);
+        if (entry.boundBuffer == vs.getBuffer()
+            && entry.boundOffset == vs.getOffset()
+            && entry.boundIndexBuffer == indexBuffer) {
+            return;
+        }
+        // Disable the attributes left by the old layout
+        final int attribs = entry.layout.getAttribCount();
+        for (int i = attribs; i < entry.boundAttribs; i++) {
+            glDisableVertexAttribArray(i);
+        }
+        final long base = vs.getOffset();
+        final int stride = entry.layout.getStride();
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, vs.getBuffer());
+        entry.layout.forEachFormat((format, offset, index) -> {
+            glEnableVertexAttribArray(index);
+            glVertexAttribPointer(index,
+                format.getLength(),
+                format.getDataType().getDataType(),
+                format.isNormalized(),
+                stride,
+                base + offset);
+        });
+        GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+        entry.boundBuffer = vs.getBuffer();
+        entry.boundOffset = base;
+        entry.boundIndexBuffer = indexBuffer;
+        entry.boundAttribs = attribs;
+    }
+
+    /**
+     * Draws an entry with the current program.
+     *
+     * @param entry the entry
+     */
+    public void draw(Entry entry) {
+        checkAlive(entry);
+        if (entry.vertexCount <= 0)
+            return;
+        prepare(entry);
+        final int mode = entry.drawMode.getGlType();
+        if (entry.indexCount > 0) {
+            glDrawElements(mode, entry.indexCount, entry.indexType.getDataType(), entry.indexSlice.getOffset());
+        } else if (entry.drawMode == GLDrawMode.QUADS) {
+            final int quads = entry.vertexCount / 4;
+            var type = GLQuadIndexBuffer.bind(quads);
+            glDrawElements(GL_TRIANGLES, GLQuadIndexBuffer.indexCount(quads), type.getDataType(), 0L);
+        } else {
+            glDrawArrays(mode, 0, entry.vertexCount);
+        }
+        GLStateMgr.bindVertexArray(0);
+    }
+
+    /**
+     * Deletes an entry and frees its slices.
+     *
+     * @param entry the entry
+     */
+    public void delete(Entry entry) {
+        if (entry.deleted)
+            return;
+        entry.deleted = true;
+        entries.remove(entry);
+        entry.vertexSlice.free();
+        if (entry.indexSlice != null)
+            entry.indexSlice.free();
+        if (entry.vao != 0) {
+            GLStateMgr.onVertexArrayDeleted(entry.vao);
+            glDeleteVertexArrays(entry.vao);
+            entry.vao = 0;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Metrics
+    ///////////////////////////////////////////////////////////////////////////
+
+    public GLBufferArena getVertexArena() {
+        return vertexArena;
+    }
+
+    public GLBufferArena getIndexArena() {
+        return indexArena;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the bytes uploaded since the last {@link #resetUploadedBytes() reset}.
+     *
+     * @return the uploaded bytes
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public void resetUploadedBytes() {
+        uploadedBytes = 0;
+    }
+
+    @Override
+    public void close() {
+        for (var entry : entries.toArray(Entry[]::new)) {
+            delete(entry);
+        }
+        vertexArena.close();
+        indexArena.close();
+    }
+}
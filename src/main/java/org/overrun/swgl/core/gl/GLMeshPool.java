@@ -0,0 +1,431 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.opengl.GL;
+import org.overrun.swgl.core.model.VertexLayout;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL43C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The pool of the static meshes sharing the buffers and the vertex array of a {@link VertexLayout}.
+ * <p>
+ * The vertex and index ranges are suballocated by {@link GLRangeAllocator}s, in units of vertices and indices.
+ * {@link #draw(GLDrawMode)} draws all visible meshes with one {@code glMultiDrawElementsIndirect}
+ * call, or {@code glMultiDrawElementsBaseVertex} if the indirect draw is not supported.
+ * The indices of a mesh are relative to its first vertex.
+ * </p>
+ * <p>
+ * When the free space is fragmented, the pool is defragmented; when it is full, the buffers are grown.
+ * Both copy the data on the GPU.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLMeshPool implements AutoCloseable {
+    private static final int COMMAND_INTS = 5;
+    private final VertexLayout layout;
+    private final int stride;
+    private final GLRangeAllocator vertexAllocator;
+    private final GLRangeAllocator indexAllocator;
+    private final List<Mesh> meshes = new ArrayList<>();
+    private final boolean indirect;
+    private int vao, vbo, ebo, indirectBuffer;
+    private long indirectCapacity = 0;
+    private IntBuffer commands, counts, baseVertices;
+    private PointerBuffer indexOffsets;
+    private int lastDrawCount = 0;
+
+    /**
+     * The mesh in the pool.
+     *
+     * @author squid233
+     * @since 0.2.0
+     */
+    public final class Mesh {
+        private long baseVertex, firstIndex;
+        private final int vertexCount, indexCount;
+        private boolean visible = true;
+        private boolean removed = false;
+
+        private Mesh(long baseVertex, int vertexCount, long firstIndex, int indexCount) {
+            this.baseVertex = baseVertex;
+            this.vertexCount = vertexCount;
+            this.firstIndex = firstIndex;
+            this.indexCount = indexCount;
+        }
+
+        public int getBaseVertex() {
+            return (int) baseVertex;
+        }
+
+        public int getVertexCount() {
+            return vertexCount;
+        }
+
+        public int getFirstIndex() {
+            return (int) firstIndex;
+        }
+
+        public int getIndexCount() {
+            return indexCount;
+        }
+
+        public boolean isVisible() {
+            return visible;
+        }
+
+        /**
+         * Sets whether this mesh is drawn.
+         *
+         * @param visible is visible
+         * @return this
+         */
+        public Mesh setVisible(boolean visible) {
+            this.visible = visible;
+            return this;
+        }
+
+        public boolean isRemoved() {
+            return removed;
+        }
+
+        /**
+         * Removes this mesh from the pool and frees the ranges.
+         */
+        public void remove() {
+            GLMeshPool.this.remove(this);
+        }
+    }
+
+    /**
+     * Create the mesh pool.
+     *
+     * @param layout         the vertex layout
+     * @param vertexCapacity the initial vertex capacity
+     * @param indexCapacity  the initial index capacity
+     */
+    public GLMeshPool(VertexLayout layout, int vertexCapacity, int indexCapacity) {
+        this.layout = layout;
+        stride = layout.getStride();
+        vertexAllocator = new GLRangeAllocator(vertexCapacity);
+        indexAllocator = new GLRangeAllocator(indexCapacity);
+        indirect = GL.getCapabilities().glMultiDrawElementsIndirect != NULL;
+        vbo = createBuffer((long) vertexCapacity * stride);
+        ebo = createBuffer((long) indexCapacity << 2);
+        vao = glGenVertexArrays();
+        setupVertexArray();
+    }
+
+    private static int createBuffer(long size) {
+        final int buffer = glGenBuffers();
+        GLStateMgr.bindBuffer(GL_COPY_WRITE_BUFFER, buffer);
+        glBufferData(GL_COPY_WRITE_BUFFER, size, GL_STATIC_DRAW);
+        return buffer;
+    }
+
+    private static void deleteBuffer(int buffer) {
+        GLStateMgr.onBufferDeleted(buffer);
+        glDeleteBuffers(buffer);
+    }
+
+    private void setupVertexArray() {
+        GLStateMgr.bindVertexArray(vao);
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        layout.beginDraw();
+        GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+        GLStateMgr.bindVertexArray(0);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Allocation
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static long allocate(GLRangeAllocator allocator, long size, Runnable defragment, Runnable grow) {
+        long offset = allocator.allocate(size);
+        if (offset == -1 && allocator.free() >= size) {
+            defragment.run();
+            offset = allocator.allocate(size);
+        }
+        if (offset == -1) {
+            grow.run();
+            offset = allocator.allocate(size);
+            if (offset == -1) {
+                throw new IllegalStateException("Failed to allocate " + size + " units after growing to " + allocator.capacity());
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Adds a mesh.
+     *
+     * @param vertices the vertex data in the layout, from the position to the limit
+     * @param indices  the indices relative to the first vertex of the mesh, from the position to the limit
+     * @return the mesh
+     * @throws IllegalArgumentException if the vertex data is not a multiple of the stride,
+     *                                  or the vertices or the indices are empty
+     */
+    public Mesh add(ByteBuffer vertices, IntBuffer indices) {
+        final int vertexBytes = vertices.remaining();
+        if (vertexBytes % stride != 0) {
+            throw new IllegalArgumentException("Vertex data size " + vertexBytes + " is not a multiple of the stride " + stride);
+        }
+        final int vertexCount = vertexBytes / stride;
+        final int indexCount = indices.remaining();
+        if (vertexCount == 0 || indexCount == 0) {
+            throw new IllegalArgumentException("The mesh must have vertices and indices; got " + vertexCount + " vertices and " + indexCount + " indices");
+        }
+        final long baseVertex = allocate(vertexAllocator, vertexCount,
+            this::defragmentVertices,
+            () -> growVertices(vertexCount));
+        final long firstIndex;
+        try {
+            firstIndex = allocate(indexAllocator, indexCount,
+                this::defragmentIndices,
+                () -> growIndices(indexCount));
+        } catch (RuntimeException e) {
+            vertexAllocator.free(baseVertex);
+            throw e;
+        }
+        GLStateMgr.bindBuffer(GL_COPY_WRITE_BUFFER, vbo);
+        nglBufferSubData(GL_COPY_WRITE_BUFFER, baseVertex * stride, vertexBytes, memAddress(vertices));
+        GLStateMgr.bindBuffer(GL_COPY_WRITE_BUFFER, ebo);
+        nglBufferSubData(GL_COPY_WRITE_BUFFER, firstIndex << 2, (long) indexCount << 2, memAddress(indices));
+        var mesh = new Mesh(baseVertex, vertexCount, firstIndex, indexCount);
+        meshes.add(mesh);
+        return mesh;
+    }
+
+    /**
+     * Removes the mesh and frees the ranges.
+     *
+     * @param mesh the mesh
+     */
+    public void remove(Mesh mesh) {
+        if (mesh.removed)
+            return;
+        mesh.removed = true;
+        meshes.remove(mesh);
+        vertexAllocator.free(mesh.baseVertex);
+        indexAllocator.free(mesh.firstIndex);
+    }
+
+    private int copyBuffer(int src, long newSize, long srcSize) {
+        final int dst = createBuffer(newSize);
+        GLStateMgr.bindBuffer(GL_COPY_READ_BUFFER, src);
+        glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, 0L, 0L, srcSize);
+        deleteBuffer(src);
+        return dst;
+    }
+
+    private void growVertices(long needed) {
+        final long old = vertexAllocator.capacity();
+        // the free ranges may be fragmented; only the new tail is known to be contiguous
+        final long capacity = Math.max(old << 1, old + needed);
+        vbo = copyBuffer(vbo, capacity * stride, old * stride);
+        vertexAllocator.grow(capacity);
+        setupVertexArray();
+    }
+
+    private void growIndices(long needed) {
+        final long old = indexAllocator.capacity();
+        final long capacity = Math.max(old << 1, old + needed);
+        ebo = copyBuffer(ebo, capacity << 2, old << 2);
+        indexAllocator.grow(capacity);
+        setupVertexArray();
+    }
+
+    private int defragment(GLRangeAllocator allocator, int buffer, int unitBytes, boolean vertices) {
+        var byOffset = new HashMap<Long, Mesh>(meshes.size() * 2);
+        for (var mesh : meshes) {
+            byOffset.put(vertices ? mesh.baseVertex : mesh.firstIndex, mesh);
+        }
+        // packs into a new buffer, since the copied ranges may overlap in the same buffer
+        final int dst = createBuffer(allocator.capacity() * unitBytes);
+        GLStateMgr.bindBuffer(GL_COPY_READ_BUFFER, buffer);
+        var offsets = new HashMap<Mesh, Long>(meshes.size() * 2);
+        allocator.defragment((from, to, size) -> offsets.put(byOffset.get(from), to));
+        for (var mesh : meshes) {
+            final long from = vertices ? mesh.baseVertex : mesh.firstIndex;
+            final long to = offsets.getOrDefault(mesh, from);
+            final long size = vertices ? mesh.vertexCount : mesh.indexCount;
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, from * unitBytes, to * unitBytes, size * unitBytes);
+            if (vertices) mesh.baseVertex = to;
+            else mesh.firstIndex = to;
+        }
+        deleteBuffer(buffer);
+        return dst;
+    }
+
+    private void defragmentVertices() {
+        vbo = defragment(vertexAllocator, vbo, stride, true);
+        setupVertexArray();
+    }
+
+    private void defragmentIndices() {
+        ebo = defragment(indexAllocator, ebo, 4, false);
+        setupVertexArray();
+    }
+
+    /**
+     * Packs the meshes to the front of the buffers.
+     */
+    public void defragment() {
+        defragmentVertices();
+        defragmentIndices();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Draw
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static IntBuffer ensure(IntBuffer buffer, int capacity) {
+        if (buffer == null) return memAllocInt(Math.max(capacity, 64));
+        if (buffer.capacity() < capacity) return memRealloc(buffer, Math.max(capacity, buffer.capacity() << 1));
+        return buffer;
+    }
+
+    /**
+     * Draws all visible meshes in one call.
+     *
+     * @param mode the draw mode
+     * @return the count of the drawn meshes
+     */
+    public int draw(GLDrawMode mode) {
+        int drawCount = 0;
+        for (var mesh : meshes) {
+            if (mesh.visible) ++drawCount;
+        }
+        lastDrawCount = drawCount;
+        if (drawCount == 0)
+            return 0;
+        GLStateMgr.bindVertexArray(vao);
+        if (indirect) {
+            commands = ensure(commands, drawCount * COMMAND_INTS);
+            commands.clear();
+            for (var mesh : meshes) {
+                if (!mesh.visible) continue;
+                // DrawElementsIndirectCommand
+                commands.put(mesh.indexCount)
+                    .put(1)
+                    .put((int) mesh.firstIndex)
+                    .put((int) mesh.baseVertex)
+                    .put(0);
+            }
+            commands.flip();
+            if (indirectBuffer == 0) indirectBuffer = glGenBuffers();
+            GLStateMgr.bindBuffer(GL_DRAW_INDIRECT_BUFFER, indirectBuffer);
+            final long bytes = (long) commands.remaining() << 2;
+            if (bytes > indirectCapacity) {
+                indirectCapacity = Math.max(bytes, indirectCapacity << 1);
+            }
+            glBufferData(GL_DRAW_INDIRECT_BUFFER, indirectCapacity, GL_STREAM_DRAW);
+            glBufferSubData(GL_DRAW_INDIRECT_BUFFER, 0L, commands);
+            glMultiDrawElementsIndirect(mode.getGlType(), GL_UNSIGNED_INT, 0L, drawCount, 0);
+        } else {
+            counts = ensure(counts, drawCount);
+            baseVertices = ensure(baseVertices, drawCount);
+            if (indexOffsets == null || indexOffsets.capacity() < drawCount) {
+                if (indexOffsets != null) memFree(indexOffsets);
+                indexOffsets = memAllocPointer(Math.max(drawCount, 64));
+            }
+            counts.clear();
+            baseVertices.clear();
+            indexOffsets.clear();
+            for (var mesh : meshes) {
+                if (!mesh.visible) continue;
+                counts.put(mesh.indexCount);
+                baseVertices.put((int) mesh.baseVertex);
+                indexOffsets.put(mesh.firstIndex << 2);
+            }
+            counts.flip();
+            baseVertices.flip();
+            indexOffsets.flip();
+            glMultiDrawElementsBaseVertex(mode.getGlType(), counts, GL_UNSIGNED_INT, indexOffsets, baseVertices);
+        }
+        GLStateMgr.bindVertexArray(0);
+        return drawCount;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Getters
+    ///////////////////////////////////////////////////////////////////////////
+
+    public VertexLayout getLayout() {
+        return layout;
+    }
+
+    public List<Mesh> getMeshes() {
+        return meshes;
+    }
+
+    public GLRangeAllocator getVertexAllocator() {
+        return vertexAllocator;
+    }
+
+    public GLRangeAllocator getIndexAllocator() {
+        return indexAllocator;
+    }
+
+    /**
+     * Check if the multi-draw indirect is used.
+     *
+     * @return is indirect
+     */
+    public boolean isIndirect() {
+        return indirect;
+    }
+
+    public int getLastDrawCount() {
+        return lastDrawCount;
+    }
+
+    public int getVertexArray() {
+        return vao;
+    }
+
+    @Override
+    public void close() {
+        GLStateMgr.onVertexArrayDeleted(vao);
+        glDeleteVertexArrays(vao);
+        deleteBuffer(vbo);
+        deleteBuffer(ebo);
+        if (indirectBuffer != 0) deleteBuffer(indirectBuffer);
+        memFree(commands);
+        memFree(counts);
+        memFree(baseVertices);
+        memFree(indexOffsets);
+    }
+}
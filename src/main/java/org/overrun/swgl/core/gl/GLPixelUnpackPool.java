@@ -0,0 +1,377 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.core.gl;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL32C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The pool of the pixel buffer objects to stage the texture uploads.
+ * <p>
+ * The pixels are copied into a {@code GL_PIXEL_UNPACK_BUFFER}, and the texture is updated
+ * from the buffer, so the driver doesn't block to read the client memory.
+ * After {@link Staging#submit() submitting}, a fence is inserted; the buffer is reused
+ * only after the fence is signaled. If all buffers are in flight and the pool is full,
+ * the oldest fence is waited, counted as a stall.
+ * </p>
+ * <h4>Example</h4>
+ * <pre>{@code var pool = new GLPixelUnpackPool();
+ * // one upload
+ * pool.texSubImage2D(GL_TEXTURE_2D, 0, x, y, w, h, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+ * // several uploads sharing one buffer
+ * var staging = pool.acquire(size0 + size1);
+ * staging.buffer().put(pixels0).put(pixels1);
+ * staging.texSubImage2D(GL_TEXTURE_2D, 0, x0, y0, w0, h0, GL_RGBA, GL_UNSIGNED_BYTE, 0)
+ *     .texSubImage2D(GL_TEXTURE_2D, 0, x1, y1, w1, h1, GL_RGBA, GL_UNSIGNED_BYTE, size0)
+ *     .submit();}</pre>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLPixelUnpackPool implements AutoCloseable {
+    /**
+     * The default max count of the buffers.
+     */
+    public static final int DEFAULT_MAX_BUFFERS = 4;
+    /**
+     * The min size of a buffer, in bytes.
+     */
+    public static final long MIN_BUFFER_SIZE = 64 << 10;
+    private final IGLFenceSource fenceSource;
+    private final int maxBuffers;
+    private final List<Pbo> idle = new ArrayList<>();
+    private final Deque<InFlight> inFlight = new ArrayDeque<>();
+    private final List<Pbo> all = new ArrayList<>();
+    @Nullable
+    private Staging current = null;
+    private int stallCount = 0;
+    private long stagedBytes = 0;
+
+    private record Pbo(IGLBuffer.Single buffer, long capacity) {
+    }
+
+    private record InFlight(Pbo pbo, long fence) {
+    }
+
+    /**
+     * The buffer acquired to stage the pixels.
+     *
+     * @author squid233
+     * @since 0.2.0
+     */
+    public final class Staging {
+        private final Pbo pbo;
+        private final IGLBuffer.Single buffer;
+        private final long size;
+        @Nullable
+        private ByteBuffer mapped;
+
+        private Staging(Pbo pbo, long size) {
+            this.pbo = pbo;
+            this.buffer = pbo.buffer();
+            this.size = size;
+            buffer.bind();
+            mapped = buffer.mapRange(0, size,
+                GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT | GL_MAP_UNSYNCHRONIZED_BIT);
+        }
+
+        /**
+         * Gets the mapped buffer to write the pixels into. Invalid after the first texture update.
+         *
+         * @return the mapped buffer
+         */
+        public ByteBuffer buffer() {
+            if (mapped == null) {
+                throw new IllegalStateException("The staging buffer is unmapped");
+            }
+            return mapped;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        private void unmap() {
+            buffer.bind();
+            if (mapped != null) {
+                buffer.unmap();
+                mapped = null;
+            }
+        }
+
+        /**
+         * {@code glTexSubImage2D} from the staged pixels.
+         *
+         * @param target the texture target
+         * @param level  the mipmap level
+         * @param x      the x offset
+         * @param y      the y offset
+         * @param width  the width
+         * @param height the height
+         * @param format the pixel format
+         * @param type   the pixel type
+         * @param offset the offset of the pixels in this staging buffer
+         * @return this
+         */
+        public Staging texSubImage2D(int target, int level, int x, int y, int width, int height,
+                                     int format, int type, long offset) {
+            unmap();
+            glTexSubImage2D(target, level, x, y, width, height, format, type, offset);
+            return this;
+        }
+
+        /**
+         * {@code glTexImage2D} from the staged pixels.
+         *
+         * @param target         the texture target
+         * @param level          the mipmap level
+         * @param internalFormat the internal format
+         * @param width          the width
+         * @param height         the height
+         * @param format         the pixel format
+         * @param type           the pixel type
+         * @param offset         the offset of the pixels in this staging buffer
+         * @return this
+         */
+        public Staging texImage2D(int target, int level, int internalFormat, int width, int height,
+                                  int format, int type, long offset) {
+            unmap();
+            glTexImage2D(target, level, internalFormat, width, height, 0, format, type, offset);
+            return this;
+        }
+
+        /**
+         * Unbinds the buffer and fences the updates. This staging is invalid after submitting.
+         */
+        public void submit() {
+            unmap();
+            buffer.unbind();
+            inFlight.addLast(new InFlight(pbo, fenceSource.fence()));
+            stagedBytes += size;
+            current = null;
+        }
+    }
+
+    /**
+     * Create the pool.
+     *
+     * @param maxBuffers  the max count of the buffers
+     * @param fenceSource the fence source
+     */
+    public GLPixelUnpackPool(int maxBuffers, IGLFenceSource fenceSource) {
+        if (maxBuffers <= 0) {
+            throw new IllegalArgumentException("The max buffer count must be positive; got " + maxBuffers);
+        }
+        this.maxBuffers = maxBuffers;
+        this.fenceSource = fenceSource;
+    }
+
+    /**
+     * Create the pool with {@link #DEFAULT_MAX_BUFFERS} buffers and GL fences.
+     */
+    public GLPixelUnpackPool() {
+        this(DEFAULT_MAX_BUFFERS, IGLFenceSource.DEFAULT);
+    }
+
+    /**
+     * Moves the buffers whose fences are signaled to the idle list.
+     */
+    public void recycle() {
+        InFlight f;
+        while ((f = inFlight.peekFirst()) != null && fenceSource.isSignaled(f.fence())) {
+            retire(inFlight.pollFirst());
+        }
+    }
+
+    private void retire(InFlight f) {
+        fenceSource.delete(f.fence());
+        idle.add(f.pbo());
+    }
+
+    private Pbo pickIdle(long size) {
+        Pbo best = null;
+        for (var pbo : idle) {
+            if (pbo.capacity() >= size && (best == null || pbo.capacity() < best.capacity())) {
+                best = pbo;
+            }
+        }
+        if (best != null) {
+            idle.remove(best);
+        }
+        return best;
+    }
+
+    private Pbo create(long size) {
+        long capacity = MIN_BUFFER_SIZE;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        var buffer = new IGLBuffer.Single();
+        buffer.layout(GL_PIXEL_UNPACK_BUFFER, GL_STREAM_DRAW).bind().data(capacity).unbind();
+        var pbo = new Pbo(buffer, capacity);
+        all.add(pbo);
+        return pbo;
+    }
+
+    private void destroy(Pbo pbo) {
+        all.remove(pbo);
+        pbo.buffer().delete();
+    }
+
+    /**
+     * Acquires a staging buffer. Only one staging can be acquired at a time.
+     *
+     * @param size the size in bytes
+     * @return the staging buffer
+     */
+    public Staging acquire(long size) {
+        if (current != null) {
+            throw new IllegalStateException("The last staging buffer is not submitted");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("The size must be positive; got " + size);
+        }
+        recycle();
+        var pbo = pickIdle(size);
+        while (pbo == null) {
+            if (all.size() < maxBuffers) {
+                pbo = create(size);
+            } else if (!idle.isEmpty()) {
+                // All idle buffers are too small
+                destroy(idle.remove(0));
+            } else {
+                var f = inFlight.pollFirst();
+                fenceSource.await(f.fence());
+                ++stallCount;
+                retire(f);
+                pbo = pickIdle(size);
+            }
+        }
+        current = new Staging(pbo, size);
+        return current;
+    }
+
+    private Staging stage(ByteBuffer pixels) {
+        final int length = pixels.remaining();
+        var staging = acquire(length);
+        memCopy(memAddress(pixels), memAddress(staging.buffer()), length);
+        return staging;
+    }
+
+    /**
+     * {@code glTexSubImage2D} staged by this pool.
+     *
+     * @param target the texture target
+     * @param level  the mipmap level
+     * @param x      the x offset
+     * @param y      the y offset
+     * @param width  the width
+     * @param height the height
+     * @param format the pixel format
+     * @param type   the pixel type
+     * @param pixels the pixels from the position to the limit
+     */
+    public void texSubImage2D(int target, int level, int x, int y, int width, int height,
+                              int format, int type, ByteBuffer pixels) {
+        stage(pixels).texSubImage2D(target, level, x, y, width, height, format, type, 0L).submit();
+    }
+
+    /**
+     * {@code glTexImage2D} staged by this pool. If the pixels are {@code null}, the texture is
+     * allocated without staging.
+     *
+     * @param target         the texture target
+     * @param level          the mipmap level
+     * @param internalFormat the internal format
+     * @param width          the width
+     * @param height         the height
+     * @param format         the pixel format
+     * @param type           the pixel type
+     * @param pixels         the pixels from the position to the limit
+     */
+    public void texImage2D(int target, int level, int internalFormat, int width, int height,
+                           int format, int type, @Nullable ByteBuffer pixels) {
+        if (pixels == null || !pixels.hasRemaining()) {
+            glTexImage2D(target, level, internalFormat, width, height, 0, format, type, (ByteBuffer) null);
+            return;
+        }
+        stage(pixels).texImage2D(target, level, internalFormat, width, height, format, type, 0L).submit();
+    }
+
+    public int getMaxBuffers() {
+        return maxBuffers;
+    }
+
+    public int getBufferCount() {
+        return all.size();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets the count of the blocking waits for the fences.
+     *
+     * @return the stall count
+     */
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Gets the total bytes staged.
+     *
+     * @return the staged bytes
+     */
+    public long getStagedBytes() {
+        return stagedBytes;
+    }
+
+    /**
+     * Waits all fences and deletes the buffers.
+     */
+    @Override
+    public void close() {
+        InFlight f;
+        while ((f = inFlight.pollFirst()) != null) {
+            fenceSource.await(f.fence());
+            fenceSource.delete(f.fence());
+        }
+        for (var pbo : all) {
+            pbo.buffer().delete();
+        }
+        all.clear();
+        idle.clear();
+        current = null;
+    }
+}
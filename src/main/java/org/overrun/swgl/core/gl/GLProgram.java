@@ -27,11 +27,10 @@ package org.overrun.swgl.core.gl;
 import org.overrun.swgl.core.model.VertexFormat;
 import org.overrun.swgl.core.model.VertexLayout;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Supplier;
 
-import static org.lwjgl.opengl.GL20C.*;
+import static org.lwjgl.opengl.GL31C.*;
 
 /**
  * The OpenGL program wrapper.
@@ -41,7 +40,10 @@ import static org.lwjgl.opengl.GL20C.*;
  */
 public class GLProgram implements AutoCloseable {
     private final Map<CharSequence, Integer> attribLocations = new HashMap<>();
+    private final Map<String, Integer> attribBindings = new TreeMap<>();
     private final Map<CharSequence, GLUniform> uniformMap = new HashMap<>();
+    private final List<GLUniform> uniforms = new ArrayList<>();
+    private int uploadCount = 0, skippedUploadCount = 0;
     private VertexLayout layout;
     private Supplier<VertexLayout> layoutSupplier;
     /**
@@ -153,6 +155,18 @@ public class GLProgram implements AutoCloseable {
     public void bindAttribLoc(int index, CharSequence name) {
         glBindAttribLocation(id, index, name);
         attribLocations.put(name, index);
+        attribBindings.put(name.toString(), index);
+    }
+
+    /**
+     * Get the attribute locations {@link #bindAttribLoc(int, CharSequence) bound} before linking,
+     * sorted by the names.
+     *
+     * @return the unmodifiable view of the attribute bindings
+     * @since 0.2.0
+     */
+    public Map<String, Integer> getAttribBindings() {
+        return Collections.unmodifiableMap(attribBindings);
     }
 
     /**
@@ -228,6 +242,11 @@ public class GLProgram implements AutoCloseable {
 
     /**
      * Create a uniform.
+     * <p>
+     * The created uniform has a stable {@link GLUniform#getSlot() slot}
+     * that can be used to get the uniform with {@link #getUniform(int)}.
+     * Recreating a uniform with the same name reuses the slot.
+     * </p>
      *
      * @param name The uniform name.
      * @param type The uniform type.
@@ -243,10 +262,41 @@ public class GLProgram implements AutoCloseable {
                                                + this
                                                + "!");
         var uniform = new GLUniform(loc, type);
-        uniformMap.put(name, uniform);
+        var prev = uniformMap.put(name, uniform);
+        if (prev != null) {
+            uniform.slot = prev.slot;
+            uniforms.set(prev.slot, uniform);
+            prev.close();
+        } else {
+            uniform.slot = uniforms.size();
+            uniforms.add(uniform);
+        }
         return uniform;
     }
 
+    /**
+     * Get the slot of the uniform.
+     *
+     * @param name The uniform name.
+     * @return The slot or -1 if not created.
+     * @since 0.2.0
+     */
+    public int getUniformSlot(CharSequence name) {
+        var uniform = uniformMap.get(name);
+        return uniform != null ? uniform.slot : -1;
+    }
+
+    /**
+     * Get the uniform by the slot.
+     *
+     * @param slot The uniform slot.
+     * @return The uniform.
+     * @since 0.2.0
+     */
+    public GLUniform getUniform(int slot) {
+        return uniforms.get(slot);
+    }
+
     /**
      * Get the uniform.
      *
@@ -274,11 +324,68 @@ public class GLProgram implements AutoCloseable {
      * Update all dirty uniforms.
      */
     public void updateUniforms() {
-        for (var uni : uniformMap.values()) {
-            uni.upload();
+        for (int i = 0, sz = uniforms.size(); i < sz; i++) {
+            var uni = uniforms.get(i);
+            if (uni.isDirty()) {
+                uni.upload();
+                ++uploadCount;
+            } else {
+                ++skippedUploadCount;
+            }
         }
     }
 
+    /**
+     * Gets the count of the uploaded uniforms since the last {@link #resetUniformCounters() reset}.
+     *
+     * @return the upload count
+     * @since 0.2.0
+     */
+    public int getUploadCount() {
+        return uploadCount;
+    }
+
+    /**
+     * Gets the count of the skipped uploads of the unchanged uniforms
+     * since the last {@link #resetUniformCounters() reset}.
+     *
+     * @return the skipped upload count
+     * @since 0.2.0
+     */
+    public int getSkippedUploadCount() {
+        return skippedUploadCount;
+    }
+
+    /**
+     * Resets the upload counters.
+     *
+     * @since 0.2.0
+     */
+    public void resetUniformCounters() {
+        uploadCount = 0;
+        skippedUploadCount = 0;
+    }
+
+    /**
+     * Binds the uniform block of this program to the binding point of the block.
+     *
+     * @param block the uniform block
+     * @throws IllegalArgumentException if this program has no such block
+     * @since 0.2.0
+     */
+    public void bindUniformBlock(GLUniformBlock block) {
+        int index = glGetUniformBlockIndex(id, block.getName());
+        if (index == GL_INVALID_INDEX)
+            throw new IllegalArgumentException("Couldn't found uniform block '"
+                                               + block.getName()
+                                               + "' for program "
+                                               + id
+                                               + "#"
+                                               + this
+                                               + "!");
+        glUniformBlockBinding(id, index, block.getBinding());
+    }
+
     /**
      * Get the program id.
      *
@@ -290,7 +397,7 @@ public class GLProgram implements AutoCloseable {
 
     @Override
     public void close() {
-        for (var uni : uniformMap.values()) {
+        for (var uni : uniforms) {
             uni.close();
         }
         glDeleteProgram(id);
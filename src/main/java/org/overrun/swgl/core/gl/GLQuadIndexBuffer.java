@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The shared index buffer for drawing {@link GLDrawMode#QUADS quads} as triangles.
+ * <p>
+ * The buffer holds the pre-generated indices {@code 0, 1, 2, 2, 3, 0} of each quad,
+ * offset by 4 per quad. It grows lazily, and uses {@link GLDataType#UNSIGNED_SHORT
+ * unsigned short} indices until the vertices exceed 65536.
+ * </p>
+ * <h4>Example</h4>
+ * <pre>{@code var type = GLQuadIndexBuffer.bind(vertexCount / 4);
+ * glDrawElements(GL_TRIANGLES, GLQuadIndexBuffer.indexCount(vertexCount / 4), type.getDataType(), 0L);}</pre>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLQuadIndexBuffer {
+    private static final int MIN_QUADS = 256;
+    private static final int MAX_SHORT_QUADS = 0x10000 / 4;
+    private static IGLBuffer.Single buffer;
+    private static int quadCapacity = 0;
+    private static GLDataType indexType = GLDataType.UNSIGNED_SHORT;
+
+    /**
+     * Get the index count to draw the quads.
+     *
+     * @param quadCount the quad count
+     * @return the index count
+     */
+    public static int indexCount(int quadCount) {
+        return quadCount * 6;
+    }
+
+    private static void grow(int quadCount) {
+        int newCapacity = Math.max(Math.max(quadCount, quadCapacity * 2), MIN_QUADS);
+        // Don't switch to int indices only because of the doubling
+        if (quadCount <= MAX_SHORT_QUADS && newCapacity > MAX_SHORT_QUADS)
+            newCapacity = MAX_SHORT_QUADS;
+        final var type = newCapacity <= MAX_SHORT_QUADS ? GLDataType.UNSIGNED_SHORT : GLDataType.UNSIGNED_INT;
+        final int count = indexCount(newCapacity);
+        final var data = memAlloc(type.getLength(count));
+        final long address = memAddress(data);
+        for (int q = 0, i = 0; q < newCapacity; q++) {
+            final int v = q * 4;
+            if (type == GLDataType.UNSIGNED_SHORT) {
+                final long a = address + ((long) i << 1);
+                memPutShort(a, (short) v);
+                memPutShort(a + 2, (short) (v + 1));
+                memPutShort(a + 4, (short) (v + 2));
+                memPutShort(a + 6, (short) (v + 2));
+                memPutShort(a + 8, (short) (v + 3));
+                memPutShort(a + 10, (short) v);
+            } else {
+                final long a = address + ((long) i << 2);
+                memPutInt(a, v);
+                memPutInt(a + 4, v + 1);
+                memPutInt(a + 8, v + 2);
+                memPutInt(a + 12, v + 2);
+                memPutInt(a + 16, v + 3);
+                memPutInt(a + 20, v);
+            }
+            i += 6;
+        }
+        if (buffer == null)
+            buffer = new IGLBuffer.Single().layout(GL_ELEMENT_ARRAY_BUFFER, GL_STATIC_DRAW);
+        buffer.bind();
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, data, GL_STATIC_DRAW);
+        memFree(data);
+        quadCapacity = newCapacity;
+        indexType = type;
+    }
+
+    /**
+     * Bind the buffer to {@code GL_ELEMENT_ARRAY_BUFFER} and ensure it can draw
+     * the quads. The buffer is bound to the current vertex array.
+     *
+     * @param quadCount the quad count to draw
+     * @return the index type of the buffer
+     */
+    public static GLDataType bind(int quadCount) {
+        if (buffer == null || quadCount > quadCapacity) {
+            grow(quadCount);
+        } else {
+            buffer.bind();
+        }
+        return indexType;
+    }
+
+    /**
+     * Get the current capacity in quads.
+     *
+     * @return the quad capacity
+     */
+    public static int getQuadCapacity() {
+        return quadCapacity;
+    }
+
+    /**
+     * Get the current index type.
+     *
+     * @return the index type
+     */
+    public static GLDataType getIndexType() {
+        return indexType;
+    }
+
+    /**
+     * Delete the buffer. Call this before the context is destroyed; the next
+     * {@link #bind(int) bind} creates a new buffer.
+     * {@link org.overrun.swgl.core.gl.ims.GLImmeMode#lglDestroyContext() lglDestroyContext} calls this.
+     */
+    public static void destroy() {
+        if (buffer != null) {
+            buffer.close();
+            buffer = null;
+        }
+        quadCapacity = 0;
+        indexType = GLDataType.UNSIGNED_SHORT;
+    }
+}
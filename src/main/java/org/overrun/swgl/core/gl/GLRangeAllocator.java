@@ -0,0 +1,266 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The free-list allocator for the ranges of a large shared buffer.
+ * <p>
+ * The free ranges are kept sorted by offset; an allocation takes the best-fit free range,
+ * and a freed range is coalesced with its free neighbours.
+ * {@link #defragment(IRelocation) Defragmenting} packs the allocated ranges to the front.
+ * </p>
+ * <p>
+ * This class doesn't call GL; the units of the offsets and sizes are up to the users,
+ * such as bytes, vertices or indices.
+ * </p>
+ *
+ * @author squid233
+ * @see GLMeshPool
+ * @since 0.2.0
+ */
+public class GLRangeAllocator {
+    private final TreeMap<Long, Long> freeRanges = new TreeMap<>();
+    private final TreeMap<Long, Long> allocatedRanges = new TreeMap<>();
+    private long capacity;
+    private long used = 0;
+
+    /**
+     * The relocation of an allocated range.
+     *
+     * @author squid233
+     * @since 0.2.0
+     */
+    @FunctionalInterface
+    public interface IRelocation {
+        /**
+         * Moves a range. Called in the ascending order of the offsets; {@code to} is not greater than {@code from}.
+         *
+         * @param from the old offset
+         * @param to   the new offset
+         * @param size the size
+         */
+        void move(long from, long to, long size);
+    }
+
+    /**
+     * Create the range allocator.
+     *
+     * @param capacity the capacity
+     */
+    public GLRangeAllocator(long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        if (capacity > 0) {
+            freeRanges.put(0L, capacity);
+        }
+    }
+
+    private static long alignUp(long value, long alignment) {
+        if (alignment <= 1)
+            return value;
+        final long rem = value % alignment;
+        return rem == 0 ? value : value + alignment - rem;
+    }
+
+    private void addFree(long offset, long size) {
+        if (size <= 0)
+            return;
+        var prev = freeRanges.floorEntry(offset);
+        if (prev != null && prev.getKey() + prev.getValue() == offset) {
+            offset = prev.getKey();
+            size += prev.getValue();
+        }
+        var next = freeRanges.get(offset + size);
+        if (next != null) {
+            freeRanges.remove(offset + size);
+            size += next;
+        }
+        freeRanges.put(offset, size);
+    }
+
+    /**
+     * Allocate a range.
+     *
+     * @param size      the size
+     * @param alignment the alignment of the offset
+     * @return the offset, or {@code -1} if no free range fits
+     */
+    public long allocate(long size, long alignment) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be greater than 0: " + size);
+        }
+        Map.Entry<Long, Long> best = null;
+        long bestWaste = Long.MAX_VALUE;
+        for (var e : freeRanges.entrySet()) {
+            final long start = e.getKey();
+            final long end = start + e.getValue();
+            final long offset = alignUp(start, alignment);
+            if (offset + size <= end) {
+                final long waste = end - start - size;
+                if (waste < bestWaste) {
+                    best = e;
+                    bestWaste = waste;
+                    if (waste == 0) break;
+                }
+            }
+        }
+        if (best == null)
+            return -1;
+        final long start = best.getKey();
+        final long end = start + best.getValue();
+        final long offset = alignUp(start, alignment);
+        freeRanges.remove(start);
+        if (offset > start) freeRanges.put(start, offset - start);
+        if (offset + size < end) freeRanges.put(offset + size, end - offset - size);
+        allocatedRanges.put(offset, size);
+        used += size;
+        return offset;
+    }
+
+    /**
+     * Allocate a range without alignment.
+     *
+     * @param size the size
+     * @return the offset, or {@code -1} if no free range fits
+     */
+    public long allocate(long size) {
+        return allocate(size, 1);
+    }
+
+    /**
+     * Free the allocated range.
+     *
+     * @param offset the offset of the range
+     * @throws IllegalArgumentException if the offset is not allocated
+     */
+    public void free(long offset) {
+        var size = allocatedRanges.remove(offset);
+        if (size == null) {
+            throw new IllegalArgumentException("Range at " + offset + " is not allocated");
+        }
+        used -= size;
+        addFree(offset, size);
+    }
+
+    /**
+     * Grows the capacity. The new space is appended to the end.
+     *
+     * @param newCapacity the new capacity
+     */
+    public void grow(long newCapacity) {
+        if (newCapacity <= capacity)
+            return;
+        final long old = capacity;
+        capacity = newCapacity;
+        addFree(old, newCapacity - old);
+    }
+
+    /**
+     * Packs the allocated ranges to the front without changing their order,
+     * leaving one free range at the end.
+     *
+     * @param relocation the action called for each moved range
+     * @return the count of the moved ranges
+     */
+    public int defragment(IRelocation relocation) {
+        var ranges = new TreeMap<>(allocatedRanges);
+        allocatedRanges.clear();
+        freeRanges.clear();
+        long offset = 0;
+        int moved = 0;
+        for (var e : ranges.entrySet()) {
+            final long from = e.getKey();
+            final long size = e.getValue();
+            if (from != offset) {
+                relocation.move(from, offset, size);
+                ++moved;
+            }
+            allocatedRanges.put(offset, size);
+            offset += size;
+        }
+        if (offset < capacity) {
+            freeRanges.put(offset, capacity - offset);
+        }
+        return moved;
+    }
+
+    /**
+     * Gets the size of the allocated range.
+     *
+     * @param offset the offset of the range
+     * @return the size, or {@code -1} if not allocated
+     */
+    public long sizeOf(long offset) {
+        return allocatedRanges.getOrDefault(offset, -1L);
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long used() {
+        return used;
+    }
+
+    public long free() {
+        return capacity - used;
+    }
+
+    /**
+     * Gets the size of the largest free range.
+     *
+     * @return the largest free size
+     */
+    public long largestFree() {
+        long max = 0;
+        for (long size : freeRanges.values()) {
+            max = Math.max(max, size);
+        }
+        return max;
+    }
+
+    public int freeRangeCount() {
+        return freeRanges.size();
+    }
+
+    public int allocationCount() {
+        return allocatedRanges.size();
+    }
+
+    /**
+     * Gets the external fragmentation, {@code 1 - largestFree / free}.
+     *
+     * @return the fragmentation in {@code [0, 1]}
+     */
+    public float fragmentation() {
+        final long free = free();
+        return free == 0 ? 0.0f : 1.0f - (float) largestFree() / free;
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * The deferred render queue that sorts the draws to minimize the state changes.
+ * <p>
+ * Each submitted draw records a 64-bit sort key and a payload. On {@link #flush()},
+ * the commands are radix-sorted by the keys and replayed into an {@link IGLDrawBackend};
+ * the program, texture and vertex array binds are only issued when they change.
+ * </p>
+ * <h2>Sort key</h2>
+ * The keys are compared as unsigned. From the highest bit:
+ * <ul>
+ *     <li>4 bits layer</li>
+ *     <li>1 bit translucency; the opaque draws go first</li>
+ *     <li>opaque: 12 bits program, 16 bits texture, 12 bits vertex array,
+ *     19 bits depth from front to back</li>
+ *     <li>translucent: 19 bits depth from back to front, 12 bits program,
+ *     16 bits texture, 12 bits vertex array</li>
+ * </ul>
+ * The ids are truncated to the bits. It only makes the sorting less effective, because
+ * the real ids are kept in the payload.
+ * <h2>Example</h2>
+ * <pre>{@code queue.command()
+ *     .program(program.getId())
+ *     .vertexArray(vao)
+ *     .texture(0, texture.getId())
+ *     .depth(viewDepth)
+ *     .drawElements(GLDrawMode.TRIANGLES, count, GLDataType.UNSIGNED_INT, 0L);
+ * // ...
+ * var stats = queue.flush();}</pre>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLRenderQueue {
+    /**
+     * The max texture units of a command.
+     */
+    public static final int MAX_TEXTURE_UNITS = 4;
+    /**
+     * The max layer.
+     */
+    public static final int MAX_LAYER = 15;
+    private static final int DEPTH_BITS = 19;
+    private static final int DEPTH_MAX = (1 << DEPTH_BITS) - 1;
+    private static final int DRAW_ARRAYS = -1;
+    private final IGLDrawBackend backend;
+    private final Command command = new Command();
+    private int size = 0;
+    private long[] keys = new long[64];
+    private int[] programs = new int[64];
+    private int[] vertexArrays = new int[64];
+    private int[] textures = new int[64 * MAX_TEXTURE_UNITS];
+    private int[] modes = new int[64];
+    private int[] counts = new int[64];
+    private int[] indexTypes = new int[64];
+    private long[] offsets = new long[64];
+    private Runnable[] setups = new Runnable[64];
+    private int[] order = new int[64];
+    private int[] orderTemp = new int[64];
+    private long[] sortKeys = new long[64];
+    private long[] sortKeysTemp = new long[64];
+    private final int[] histogram = new int[256];
+    private final int[] boundTextures = new int[MAX_TEXTURE_UNITS];
+    private Stats lastStats = new Stats(0, 0, 0, 0);
+
+    /**
+     * The stats of a flush.
+     *
+     * @param draws                the draw calls
+     * @param programSwitches      the program binds
+     * @param textureSwitches      the texture binds
+     * @param vertexArraySwitches the vertex array binds
+     * @author squid233
+     * @since 0.2.0
+     */
+    public record Stats(int draws,
+                        int programSwitches,
+                        int textureSwitches,
+                        int vertexArraySwitches) {
+    }
+
+    /**
+     * The command being recorded. Reused by the queue.
+     *
+     * @author squid233
+     * @since 0.2.0
+     */
+    public final class Command {
+        private int layer, program, vertexArray;
+        private boolean translucent;
+        private float depth;
+        private final int[] textures = new int[MAX_TEXTURE_UNITS];
+        private long key;
+        private boolean customKey;
+        private Runnable setup;
+
+        private Command() {
+        }
+
+        private Command reset() {
+            layer = 0;
+            program = 0;
+            vertexArray = 0;
+            translucent = false;
+            depth = 0.0f;
+            Arrays.fill(textures, -1);
+            customKey = false;
+            setup = null;
+            return this;
+        }
+
+        /**
+         * Set the layer.
+         *
+         * @param layer the layer in {@code [0, 15]}
+         * @return this
+         */
+        public Command layer(int layer) {
+            if (layer < 0 || layer > MAX_LAYER)
+                throw new IllegalArgumentException("The layer must be in [0, " + MAX_LAYER + "], got " + layer);
+            this.layer = layer;
+            return this;
+        }
+
+        /**
+         * Set the translucency.
+         *
+         * @param translucent is translucent
+         * @return this
+         */
+        public Command translucent(boolean translucent) {
+            this.translucent = translucent;
+            return this;
+        }
+
+        /**
+         * Set the depth.
+         *
+         * @param depth the normalized view depth in {@code [0, 1]}, clamped
+         * @return this
+         */
+        public Command depth(float depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        public Command program(int program) {
+            this.program = program;
+            return this;
+        }
+
+        public Command vertexArray(int vertexArray) {
+            this.vertexArray = vertexArray;
+            return this;
+        }
+
+        /**
+         * Set the 2D texture of the unit.
+         *
+         * @param unit    the texture unit in {@code [0, MAX_TEXTURE_UNITS)}
+         * @param texture the texture id
+         * @return this
+         */
+        public Command texture(int unit, int texture) {
+            if (unit < 0 || unit >= MAX_TEXTURE_UNITS)
+                throw new IllegalArgumentException("The texture unit must be in [0, " + MAX_TEXTURE_UNITS + "), got " + unit);
+            textures[unit] = texture;
+            return this;
+        }
+
+        /**
+         * Set the action invoked after binding and before drawing, e.g. uploading the uniforms.
+         *
+         * @param setup the action
+         * @return this
+         */
+        public Command setup(@Nullable Runnable setup) {
+            this.setup = setup;
+            return this;
+        }
+
+        /**
+         * Overrides the computed sort key.
+         *
+         * @param key the sort key
+         * @return this
+         */
+        public Command key(long key) {
+            this.key = key;
+            customKey = true;
+            return this;
+        }
+
+        private long computeKey() {
+            return customKey ? key : sortKey(layer, translucent, program, Math.max(textures[0], 0), vertexArray, depth);
+        }
+
+        /**
+         * Submits the command drawing the arrays.
+         *
+         * @param mode  the draw mode
+         * @param first the first vertex
+         * @param count the vertex count
+         * @return the queue
+         */
+        public GLRenderQueue drawArrays(GLDrawMode mode, int first, int count) {
+            return submit(this, mode.getGlType(), count, DRAW_ARRAYS, first);
+        }
+
+        /**
+         * Submits the command drawing the elements.
+         *
+         * @param mode    the draw mode
+         * @param count   the index count
+         * @param type    the index type
+         * @param indices the byte offset in the index buffer
+         * @return the queue
+         */
+        public GLRenderQueue drawElements(GLDrawMode mode, int count, GLDataType type, long indices) {
+            return submit(this, mode.getGlType(), count, type.getDataType(), indices);
+        }
+    }
+
+    /**
+     * Create a queue with the backend.
+     *
+     * @param backend the backend to replay into
+     */
+    public GLRenderQueue(IGLDrawBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Create a queue with {@link IGLDrawBackend#DEFAULT the default backend}.
+     */
+    public GLRenderQueue() {
+        this(IGLDrawBackend.DEFAULT);
+    }
+
+    /**
+     * Computes the sort key.
+     *
+     * @param layer       the layer in {@code [0, 15]}
+     * @param translucent is translucent
+     * @param program     the program id
+     * @param texture     the texture id of unit 0
+     * @param vertexArray the vertex array id
+     * @param depth       the normalized view depth in {@code [0, 1]}, clamped
+     * @return the sort key
+     */
+    public static long sortKey(int layer,
+                               boolean translucent,
+                               int program,
+                               int texture,
+                               int vertexArray,
+                               float depth) {
+        long d = (long) (Math.max(0.0f, Math.min(1.0f, depth)) * DEPTH_MAX);
+        long key = ((long) (layer & 0xf) << 60);
+        if (translucent) {
+            return key | (1L << 59)
+                | ((DEPTH_MAX - d) << 40)
+                | ((long) (program & 0xfff) << 28)
+                | ((long) (texture & 0xffff) << 12)
+                | (vertexArray & 0xfff);
+        }
+        return key
+            | ((long) (program & 0xfff) << 47)
+            | ((long) (texture & 0xffff) << 31)
+            | ((long) (vertexArray & 0xfff) << 19)
+            | d;
+    }
+
+    /**
+     * Begins recording a command.
+     *
+     * @return the command, reused by the queue
+     */
+    public Command command() {
+        return command.reset();
+    }
+
+    private GLRenderQueue submit(Command cmd, int mode, int count, int indexType, long offset) {
+        ensureCapacity(size + 1);
+        final int i = size++;
+        keys[i] = cmd.computeKey();
+        programs[i] = cmd.program;
+        vertexArrays[i] = cmd.vertexArray;
+        System.arraycopy(cmd.textures, 0, textures, i * MAX_TEXTURE_UNITS, MAX_TEXTURE_UNITS);
+        modes[i] = mode;
+        counts[i] = count;
+        indexTypes[i] = indexType;
+        offsets[i] = offset;
+        setups[i] = cmd.setup;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int n = Math.max(capacity, keys.length << 1);
+            keys = Arrays.copyOf(keys, n);
+            programs = Arrays.copyOf(programs, n);
+            vertexArrays = Arrays.copyOf(vertexArrays, n);
+            textures = Arrays.copyOf(textures, n * MAX_TEXTURE_UNITS);
+            modes = Arrays.copyOf(modes, n);
+            counts = Arrays.copyOf(counts, n);
+            indexTypes = Arrays.copyOf(indexTypes, n);
+            offsets = Arrays.copyOf(offsets, n);
+            setups = Arrays.copyOf(setups, n);
+            order = new int[n];
+            orderTemp = new int[n];
+            sortKeys = new long[n];
+            sortKeysTemp = new long[n];
+        }
+    }
+
+    /**
+     * Sorts the commands by the keys with a stable LSD radix sort.
+     * The byte passes sharing the same value in all keys are skipped.
+     *
+     * @return the sorted command indices; valid until the next submitting
+     */
+    public int[] sort() {
+        final int n = size;
+        var src = order;
+        var dst = orderTemp;
+        var srcKeys = sortKeys;
+        var dstKeys = sortKeysTemp;
+        System.arraycopy(keys, 0, srcKeys, 0, n);
+        for (int i = 0; i < n; i++) {
+            src[i] = i;
+        }
+        for (int shift = 0; n > 0 && shift < 64; shift += 8) {
+            Arrays.fill(histogram, 0);
+            for (int i = 0; i < n; i++) {
+                ++histogram[(int) (srcKeys[i] >>> shift) & 0xff];
+            }
+            if (histogram[(int) (srcKeys[0] >>> shift) & 0xff] == n)
+                continue;
+            for (int b = 0, sum = 0; b < 256; b++) {
+                int c = histogram[b];
+                histogram[b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int p = histogram[(int) (srcKeys[i] >>> shift) & 0xff]++;
+                dst[p] = src[i];
+                dstKeys[p] = srcKeys[i];
+            }
+            var t = src;
+            src = dst;
+            dst = t;
+            var tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+        }
+        order = src;
+        orderTemp = dst;
+        sortKeys = srcKeys;
+        sortKeysTemp = dstKeys;
+        return src;
+    }
+
+    /**
+     * Sorts and replays all commands, then clears the queue.
+     *
+     * @return the stats of this flush
+     */
+    public Stats flush() {
+        var sorted = sort();
+        int draws = 0, programSwitches = 0, textureSwitches = 0, vertexArraySwitches = 0;
+        int curProgram = -1, curVertexArray = -1;
+        final var curTextures = boundTextures;
+        Arrays.fill(curTextures, -1);
+        for (int s = 0; s < size; s++) {
+            final int i = sorted[s];
+            if (programs[i] != curProgram) {
+                curProgram = programs[i];
+                backend.useProgram(curProgram);
+                ++programSwitches;
+            }
+            for (int u = 0; u < MAX_TEXTURE_UNITS; u++) {
+                int tex = textures[i * MAX_TEXTURE_UNITS + u];
+                if (tex >= 0 && tex != curTextures[u]) {
+                    curTextures[u] = tex;
+                    backend.bindTexture2D(u, tex);
+                    ++textureSwitches;
+                }
+            }
+            if (vertexArrays[i] != curVertexArray) {
+                curVertexArray = vertexArrays[i];
+                backend.bindVertexArray(curVertexArray);
+                ++vertexArraySwitches;
+            }
+            if (setups[i] != null)
+                setups[i].run();
+            if (indexTypes[i] == DRAW_ARRAYS)
+                backend.drawArrays(modes[i], (int) offsets[i], counts[i]);
+            else
+                backend.drawElements(modes[i], counts[i], indexTypes[i], offsets[i]);
+            ++draws;
+        }
+        if (size > 0)
+            backend.bindVertexArray(0);
+        clear();
+        return lastStats = new Stats(draws, programSwitches, textureSwitches, vertexArraySwitches);
+    }
+
+    /**
+     * Discards all commands.
+     */
+    public void clear() {
+        Arrays.fill(setups, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Get the count of the commands.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the sort key of the command.
+     *
+     * @param index the command index in submission order
+     * @return the key
+     */
+    public long getKey(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        return keys[index];
+    }
+
+    /**
+     * Get the stats of the last flush.
+     *
+     * @return the stats
+     */
+    public Stats getLastStats() {
+        return lastStats;
+    }
+}
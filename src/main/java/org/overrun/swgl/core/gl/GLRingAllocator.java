@@ -0,0 +1,271 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The fenced ring allocator for streaming buffers.
+ * <p>
+ * The allocator hands out byte ranges of a ring in order. The ranges allocated
+ * since the last {@link #commit()} are uncommitted; committing inserts one fence
+ * for all of them. A range is reused only after the fence of every segment
+ * overlapping it is signaled. The uncommitted ranges are never fenced nor reused,
+ * so commit once per frame or batch, after the draw calls using them are submitted.
+ * </p>
+ * <p>
+ * This class doesn't call GL; the fences are from the {@link IGLFenceSource}.
+ * </p>
+ *
+ * @author squid233
+ * @see GLStreamBuffer
+ * @since 0.2.0
+ */
+public class GLRingAllocator {
+    private final long capacity;
+    private final IGLFenceSource fenceSource;
+    private final Deque<Segment> inFlight = new ArrayDeque<>();
+    private final List<Range> uncommitted = new ArrayList<>();
+    private long head = 0;
+    private long segmentStart = 0;
+    private int waitCount = 0;
+    private int fenceCount = 0;
+
+    private record Range(long start, long end) {
+        boolean overlaps(long start, long end) {
+            return start < this.end && this.start < end;
+        }
+    }
+
+    /**
+     * The fenced range. The ranges committed together share the fence, and
+     * the last one of them deletes it.
+     */
+    private record Segment(long fence, Range range, boolean ownsFence) {
+    }
+
+    /**
+     * Create the ring allocator.
+     *
+     * @param capacity    the ring capacity in bytes
+     * @param fenceSource the fence source
+     */
+    public GLRingAllocator(long capacity, IGLFenceSource fenceSource) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        this.capacity = capacity;
+        this.fenceSource = fenceSource;
+    }
+
+    private static long alignUp(long value, long alignment) {
+        if (alignment <= 1)
+            return value;
+        final long rem = value % alignment;
+        return rem == 0 ? value : value + alignment - rem;
+    }
+
+    private void retire(Segment segment) {
+        if (segment.ownsFence()) {
+            fenceSource.delete(segment.fence());
+        }
+    }
+
+    private void retireSignaled() {
+        Segment segment;
+        while ((segment = inFlight.peekFirst()) != null
+               && fenceSource.isSignaled(segment.fence())) {
+            retire(inFlight.pollFirst());
+        }
+    }
+
+    /**
+     * Waits for the last in-flight segment overlapping the range, and retires
+     * it and all segments before it since the fences are signaled in order.
+     */
+    private void waitFor(long start, long end) {
+        Segment last = null;
+        for (var segment : inFlight) {
+            if (segment.range().overlaps(start, end)) {
+                last = segment;
+            }
+        }
+        if (last == null)
+            return;
+        if (!fenceSource.isSignaled(last.fence())) {
+            fenceSource.await(last.fence());
+            ++waitCount;
+        }
+        Segment segment;
+        do {
+            segment = inFlight.pollFirst();
+            retire(segment);
+        } while (segment != last);
+    }
+
+    private boolean wraps(long size, long alignment) {
+        return alignUp(head, alignment) + size > capacity;
+    }
+
+    private boolean overlapsUncommitted(long start, long end, boolean wrap) {
+        if (wrap && head > segmentStart && start < head && segmentStart < end) {
+            return true;
+        }
+        for (var range : uncommitted) {
+            if (range.overlaps(start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if a range can be allocated without overwriting the uncommitted ranges.
+     * If not, {@link #commit()} first.
+     *
+     * @param size      the size in bytes
+     * @param alignment the alignment of the offset in bytes
+     * @return {@code true} if the range can be allocated before committing
+     */
+    public boolean canAllocate(long size, long alignment) {
+        if (size > capacity)
+            return false;
+        final boolean wrap = wraps(size, alignment);
+        final long offset = wrap ? 0 : alignUp(head, alignment);
+        return !overlapsUncommitted(offset, offset + size, wrap);
+    }
+
+    /**
+     * Allocate a range. Blocks if the range is still used by the GPU.
+     *
+     * @param size      the size in bytes
+     * @param alignment the alignment of the offset in bytes
+     * @return the offset of the range
+     * @throws IllegalArgumentException if the size is greater than the capacity
+     * @throws IllegalStateException    if the range overlaps the uncommitted ranges
+     * @see #canAllocate(long, long)
+     */
+    public long allocate(long size, long alignment) {
+        if (size > capacity) {
+            throw new IllegalArgumentException("Size " + size + " is greater than the ring capacity " + capacity);
+        }
+        final boolean wrap = wraps(size, alignment);
+        final long offset = wrap ? 0 : alignUp(head, alignment);
+        final long end = offset + size;
+        if (overlapsUncommitted(offset, end, wrap)) {
+            throw new IllegalStateException("The range [" + offset + ", " + end + ") overlaps the uncommitted ranges; commit first");
+        }
+        if (wrap) {
+            // the ranges never cross the end of the ring
+            if (head > segmentStart) {
+                uncommitted.add(new Range(segmentStart, head));
+            }
+            segmentStart = 0;
+        }
+        waitFor(offset, end);
+        head = end;
+        return offset;
+    }
+
+    /**
+     * Fence the ranges allocated since the last commit with one fence. Call this
+     * after the draw calls using them are submitted, usually once per frame.
+     */
+    public void commit() {
+        if (head > segmentStart) {
+            uncommitted.add(new Range(segmentStart, head));
+        }
+        segmentStart = head;
+        if (!uncommitted.isEmpty()) {
+            final long fence = fenceSource.fence();
+            ++fenceCount;
+            for (int i = 0, sz = uncommitted.size(); i < sz; i++) {
+                inFlight.addLast(new Segment(fence, uncommitted.get(i), i == sz - 1));
+            }
+            uncommitted.clear();
+        }
+        retireSignaled();
+    }
+
+    /**
+     * Delete all fences without waiting. The ranges are considered free.
+     */
+    public void reset() {
+        Segment segment;
+        while ((segment = inFlight.pollFirst()) != null) {
+            retire(segment);
+        }
+        uncommitted.clear();
+        head = 0;
+        segmentStart = 0;
+    }
+    /**
+     * Get the ring capacity.
+     *
+     * @return the capacity in bytes
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the offset of the next allocation before aligning.
+     *
+     * @return the head offset
+     */
+    public long head() {
+        return head;
+    }
+
+    /**
+     * Get the count of the committed ranges waiting for their fences.
+     *
+     * @return the in-flight segment count
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Get the count of the blocking waits for the fences, i.e. stalls.
+     *
+     * @return the wait count
+     */
+    public int waitCount() {
+        return waitCount;
+    }
+
+    /**
+     * Get the count of the fences inserted.
+     *
+     * @return the fence count
+     */
+    public int fenceCount() {
+        return fenceCount;
+    }
+}
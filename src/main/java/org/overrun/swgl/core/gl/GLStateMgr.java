@@ -27,13 +27,113 @@ package org.overrun.swgl.core.gl;
 import org.jetbrains.annotations.ApiStatus;
 import org.lwjgl.opengl.GL;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.lwjgl.opengl.GL43C.*;
+import static org.overrun.swgl.core.gl.GLStateCategory.*;
+import static org.overrun.swgl.core.util.math.Numbers.isNonEqual;
 
 /**
+ * The OpenGL state cache that filters the redundant calls.
+ * <p>
+ * Each state change is counted as issued or elided by its {@link GLStateCategory category}.
+ * Call {@link #newFrame()} on each frame to roll the counters over.
+ * </p>
+ * <p>
+ * If the states are changed by calling GL directly, {@link #invalidate()} must be called
+ * to make the next calls issued.
+ * </p>
+ *
  * @author squid233
  * @since 0.1.0
  */
 public class GLStateMgr {
+    ///////////////////////////////////////////////////////////////////////////
+    // Counters
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final int CATEGORY_COUNT = GLStateCategory.values().length;
+    private static final int[] issued = new int[CATEGORY_COUNT];
+    private static final int[] elided = new int[CATEGORY_COUNT];
+    private static final int[] lastIssued = new int[CATEGORY_COUNT];
+    private static final int[] lastElided = new int[CATEGORY_COUNT];
+    private static long frameCount;
+
+    private static boolean count(GLStateCategory category, boolean changed) {
+        if (changed) ++issued[category.ordinal()];
+        else ++elided[category.ordinal()];
+        return changed;
+    }
+
+    /**
+     * Rolls the counters of the current frame over to the last frame.
+     *
+     * @since 0.2.0
+     */
+    public static void newFrame() {
+        System.arraycopy(issued, 0, lastIssued, 0, CATEGORY_COUNT);
+        System.arraycopy(elided, 0, lastElided, 0, CATEGORY_COUNT);
+        Arrays.fill(issued, 0);
+        Arrays.fill(elided, 0);
+        ++frameCount;
+    }
+
+    /**
+     * Get the count of the frames rolled over by {@link #newFrame()}.
+     *
+     * @return the frame count
+     * @since 0.2.0
+     */
+    public static long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Get the issued calls of the current frame.
+     *
+     * @param category the category
+     * @return the issued count
+     * @since 0.2.0
+     */
+    public static int getIssuedCount(GLStateCategory category) {
+        return issued[category.ordinal()];
+    }
+
+    /**
+     * Get the elided calls of the current frame.
+     *
+     * @param category the category
+     * @return the elided count
+     * @since 0.2.0
+     */
+    public static int getElidedCount(GLStateCategory category) {
+        return elided[category.ordinal()];
+    }
+
+    /**
+     * Get the issued calls of the last frame.
+     *
+     * @param category the category
+     * @return the issued count
+     * @since 0.2.0
+     */
+    public static int getLastIssuedCount(GLStateCategory category) {
+        return lastIssued[category.ordinal()];
+    }
+
+    /**
+     * Get the elided calls of the last frame.
+     *
+     * @param category the category
+     * @return the elided count
+     * @since 0.2.0
+     */
+    public static int getLastElidedCount(GLStateCategory category) {
+        return lastElided[category.ordinal()];
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Texture
     ///////////////////////////////////////////////////////////////////////////
@@ -92,7 +192,7 @@ public class GLStateMgr {
      * @param texture The texture id.
      */
     public static void bindTexture2D(int texture) {
-        if (texture2DStates[activeTexture].currentId() != texture) {
+        if (count(TEXTURE, texture2DStates[activeTexture].currentId() != texture)) {
             texture2DStates[activeTexture].setId(texture);
             glBindTexture(GL_TEXTURE_2D, texture);
         }
@@ -115,7 +215,7 @@ public class GLStateMgr {
      * @param unit The texture unit.
      */
     public static void activeTexture(int unit) {
-        if (activeTexture != unit) {
+        if (count(TEXTURE, activeTexture != unit)) {
             prevActiveTexture = activeTexture;
             activeTexture = unit;
             glActiveTexture(GL_TEXTURE0 + unit);
@@ -206,7 +306,7 @@ public class GLStateMgr {
      * Enable depth test.
      */
     public static void enableDepthTest() {
-        if (!depthTest) {
+        if (count(DEPTH, !depthTest)) {
             depthTest = true;
             glEnable(GL_DEPTH_TEST);
         }
@@ -216,7 +316,7 @@ public class GLStateMgr {
      * Disable depth test.
      */
     public static void disableDepthTest() {
-        if (depthTest) {
+        if (count(DEPTH, depthTest)) {
             depthTest = false;
             glDisable(GL_DEPTH_TEST);
         }
@@ -228,7 +328,7 @@ public class GLStateMgr {
      * @param func The depth func
      */
     public static void setDepthFunc(int func) {
-        if (depthFunc != func) {
+        if (count(DEPTH, depthFunc != func)) {
             depthFunc = func;
             glDepthFunc(func);
         }
@@ -245,7 +345,7 @@ public class GLStateMgr {
      * Enable cull face.
      */
     public static void enableCullFace() {
-        if (!cullFace) {
+        if (count(CULL_FACE, !cullFace)) {
             cullFace = true;
             glEnable(GL_CULL_FACE);
         }
@@ -255,7 +355,7 @@ public class GLStateMgr {
      * Disable cull face.
      */
     public static void disableCullFace() {
-        if (cullFace) {
+        if (count(CULL_FACE, cullFace)) {
             cullFace = false;
             glDisable(GL_CULL_FACE);
         }
@@ -267,7 +367,7 @@ public class GLStateMgr {
      * @param mode The cull face mode
      */
     public static void setCullFace(int mode) {
-        if (cullFaceMode != mode) {
+        if (count(CULL_FACE, cullFaceMode != mode)) {
             cullFaceMode = mode;
             glCullFace(mode);
         }
@@ -297,7 +397,7 @@ public class GLStateMgr {
      * Enable stencil test.
      */
     public static void enableStencilTest() {
-        if (!stencilTest) {
+        if (count(STENCIL, !stencilTest)) {
             stencilTest = true;
             glEnable(GL_STENCIL_TEST);
         }
@@ -307,7 +407,7 @@ public class GLStateMgr {
      * Disable stencil test.
      */
     public static void disableStencilTest() {
-        if (stencilTest) {
+        if (count(STENCIL, stencilTest)) {
             stencilTest = false;
             glDisable(GL_STENCIL_TEST);
         }
@@ -331,19 +431,19 @@ public class GLStateMgr {
     public static void stencilMaskSeparate(int face, int mask) {
         switch (face) {
             case GL_FRONT -> {
-                if (stencilWriteMask != mask) {
+                if (count(STENCIL, stencilWriteMask != mask)) {
                     stencilWriteMask = mask;
                     glStencilMaskSeparate(GL_FRONT, mask);
                 }
             }
             case GL_BACK -> {
-                if (stencilBackWriteMask != mask) {
+                if (count(STENCIL, stencilBackWriteMask != mask)) {
                     stencilBackWriteMask = mask;
                     glStencilMaskSeparate(GL_BACK, mask);
                 }
             }
             case GL_FRONT_AND_BACK -> {
-                if (stencilWriteMask != mask || stencilBackWriteMask != mask) {
+                if (count(STENCIL, stencilWriteMask != mask || stencilBackWriteMask != mask)) {
                     stencilWriteMask = mask;
                     stencilBackWriteMask = mask;
                     glStencilMask(mask);
@@ -374,9 +474,9 @@ public class GLStateMgr {
     public static void stencilFuncSeparate(int face, int func, int ref, int mask) {
         switch (face) {
             case GL_FRONT -> {
-                if (stencilFunc != func
+                if (count(STENCIL, stencilFunc != func
                     || stencilRef != ref
-                    || stencilValueMask != mask) {
+                    || stencilValueMask != mask)) {
                     stencilFunc = func;
                     stencilRef = ref;
                     stencilValueMask = mask;
@@ -384,9 +484,9 @@ public class GLStateMgr {
                 }
             }
             case GL_BACK -> {
-                if (stencilBackFunc != func
+                if (count(STENCIL, stencilBackFunc != func
                     || stencilBackRef != ref
-                    || stencilBackValueMask != mask) {
+                    || stencilBackValueMask != mask)) {
                     stencilBackFunc = func;
                     stencilBackRef = ref;
                     stencilBackValueMask = mask;
@@ -394,9 +494,9 @@ public class GLStateMgr {
                 }
             }
             case GL_FRONT_AND_BACK -> {
-                if (stencilFunc != func || stencilBackFunc != func
+                if (count(STENCIL, stencilFunc != func || stencilBackFunc != func
                     || stencilRef != ref || stencilBackRef != ref
-                    || stencilValueMask != mask || stencilBackValueMask != mask) {
+                    || stencilValueMask != mask || stencilBackValueMask != mask)) {
                     stencilFunc = func;
                     stencilBackFunc = func;
                     stencilRef = ref;
@@ -437,9 +537,9 @@ public class GLStateMgr {
     public static void stencilOpSeparate(int face, int sfail, int dpfail, int dppass) {
         switch (face) {
             case GL_FRONT -> {
-                if (stencilFail != sfail
+                if (count(STENCIL, stencilFail != sfail
                     || stencilPassDepthFail != dpfail
-                    || stencilPassDepthPass != dppass) {
+                    || stencilPassDepthPass != dppass)) {
                     stencilFail = sfail;
                     stencilPassDepthFail = dpfail;
                     stencilPassDepthPass = dppass;
@@ -447,9 +547,9 @@ public class GLStateMgr {
                 }
             }
             case GL_BACK -> {
-                if (stencilBackFail != sfail
+                if (count(STENCIL, stencilBackFail != sfail
                     || stencilBackPassDepthFail != dpfail
-                    || stencilBackPassDepthPass != dppass) {
+                    || stencilBackPassDepthPass != dppass)) {
                     stencilBackFail = sfail;
                     stencilBackPassDepthFail = dpfail;
                     stencilBackPassDepthPass = dppass;
@@ -457,9 +557,9 @@ public class GLStateMgr {
                 }
             }
             case GL_FRONT_AND_BACK -> {
-                if (stencilFail != sfail || stencilBackFail != sfail
+                if (count(STENCIL, stencilFail != sfail || stencilBackFail != sfail
                     || stencilPassDepthFail != dpfail || stencilBackPassDepthFail != dpfail
-                    || stencilPassDepthPass != dppass || stencilBackPassDepthPass != dppass) {
+                    || stencilPassDepthPass != dppass || stencilBackPassDepthPass != dppass)) {
                     stencilFail = sfail;
                     stencilBackFail = sfail;
                     stencilPassDepthFail = dpfail;
@@ -486,7 +586,7 @@ public class GLStateMgr {
      * Enable blend.
      */
     public static void enableBlend() {
-        if (!blend) {
+        if (count(BLEND, !blend)) {
             blend = true;
             glEnable(GL_BLEND);
         }
@@ -496,7 +596,7 @@ public class GLStateMgr {
      * Disable blend.
      */
     public static void disableBlend() {
-        if (blend) {
+        if (count(BLEND, blend)) {
             blend = false;
             glDisable(GL_BLEND);
         }
@@ -509,8 +609,8 @@ public class GLStateMgr {
      * @param dfactor The blend dst factor both RGB and alpha
      */
     public static void blendFunc(int sfactor, int dfactor) {
-        if (blendSFactorRGB != sfactor || blendSFactorAlpha != sfactor
-            || blendDFactorRGB != dfactor || blendDFactorAlpha != dfactor) {
+        if (count(BLEND, blendSFactorRGB != sfactor || blendSFactorAlpha != sfactor
+            || blendDFactorRGB != dfactor || blendDFactorAlpha != dfactor)) {
             blendSFactorRGB = blendSFactorAlpha = sfactor;
             blendDFactorRGB = blendDFactorAlpha = dfactor;
             glBlendFunc(sfactor, dfactor);
@@ -531,8 +631,8 @@ public class GLStateMgr {
         int sfactorAlpha,
         int dfactorAlpha
     ) {
-        if (blendSFactorRGB != sfactorRGB || blendSFactorAlpha != sfactorAlpha
-            || blendDFactorRGB != dfactorRGB || blendDFactorAlpha != dfactorAlpha) {
+        if (count(BLEND, blendSFactorRGB != sfactorRGB || blendSFactorAlpha != sfactorAlpha
+            || blendDFactorRGB != dfactorRGB || blendDFactorAlpha != dfactorAlpha)) {
             blendSFactorRGB = sfactorRGB;
             blendSFactorAlpha = sfactorAlpha;
             blendDFactorRGB = dfactorRGB;
@@ -583,7 +683,7 @@ public class GLStateMgr {
      * @param program The program id.
      */
     public static void useProgram(int program) {
-        if (programId != program) {
+        if (count(PROGRAM, programId != program)) {
             prevProgramId = programId;
             programId = program;
             glUseProgram(program);
@@ -609,6 +709,349 @@ public class GLStateMgr {
         return prevProgramId;
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Buffer
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final int[] bufferTargets = {
+        GL_ARRAY_BUFFER,
+        GL_ELEMENT_ARRAY_BUFFER,
+        GL_UNIFORM_BUFFER,
+        GL_SHADER_STORAGE_BUFFER,
+        GL_PIXEL_PACK_BUFFER,
+        GL_PIXEL_UNPACK_BUFFER,
+        GL_COPY_READ_BUFFER,
+        GL_COPY_WRITE_BUFFER,
+        GL_DRAW_INDIRECT_BUFFER,
+        GL_DISPATCH_INDIRECT_BUFFER,
+        GL_TEXTURE_BUFFER,
+        GL_TRANSFORM_FEEDBACK_BUFFER,
+        GL_ATOMIC_COUNTER_BUFFER
+    };
+    private static final int ELEMENT_ARRAY_SLOT = 1;
+    private static final int[] bufferBindings = new int[bufferTargets.length];
+    private static int uniformBufferOffsetAlignment = 256;
+
+    private static int bufferSlot(int target) {
+        for (int i = 0; i < bufferTargets.length; i++) {
+            if (bufferTargets[i] == target) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Binds a buffer to the target.
+     * <p>
+     * The element array buffer binding is a state of the vertex array,
+     * so it is forgotten when the vertex array changes.
+     * </p>
+     *
+     * @param target the buffer target
+     * @param buffer the buffer id
+     * @since 0.2.0
+     */
+    public static void bindBuffer(int target, int buffer) {
+        int slot = bufferSlot(target);
+        if (slot == -1) {
+            count(BUFFER, true);
+            glBindBuffer(target, buffer);
+        } else if (count(BUFFER, bufferBindings[slot] != buffer)) {
+            bufferBindings[slot] = buffer;
+            glBindBuffer(target, buffer);
+        }
+    }
+
+    /**
+     * Gets the buffer bound to the target.
+     *
+     * @param target the buffer target
+     * @return the buffer id, or {@code -1} if unknown
+     * @since 0.2.0
+     */
+    public static int getBufferBinding(int target) {
+        int slot = bufferSlot(target);
+        return slot == -1 ? -1 : bufferBindings[slot];
+    }
+
+    /**
+     * Forgets the buffer bound to the target.
+     * Call this after changing the binding by calling GL directly,
+     * such as {@code glBindBufferBase}.
+     *
+     * @param target the buffer target
+     * @since 0.2.0
+     */
+    public static void invalidateBuffer(int target) {
+        int slot = bufferSlot(target);
+        if (slot != -1) bufferBindings[slot] = -1;
+    }
+
+    /**
+     * Binds a range of the buffer to the indexed binding point of the target.
+     * This also binds the buffer to the generic binding point.
+     *
+     * @param target the buffer target
+     * @param index  the binding point index
+     * @param buffer the buffer id
+     * @param offset the offset in bytes
+     * @param size   the size in bytes
+     * @since 0.2.0
+     */
+    public static void bindBufferRange(int target, int index, int buffer, long offset, long size) {
+        count(BUFFER, true);
+        glBindBufferRange(target, index, buffer, offset, size);
+        int slot = bufferSlot(target);
+        if (slot != -1) bufferBindings[slot] = buffer;
+    }
+
+    /**
+     * Gets the alignment of the offset of the uniform buffer ranges.
+     *
+     * @return the alignment in bytes
+     * @since 0.2.0
+     */
+    public static int getUniformBufferOffsetAlignment() {
+        return uniformBufferOffsetAlignment;
+    }
+
+    /**
+     * Notifies that the buffer is deleted. GL unbinds the deleted buffer from all targets.
+     *
+     * @param buffer the buffer id
+     * @since 0.2.0
+     */
+    public static void onBufferDeleted(int buffer) {
+        for (int i = 0; i < bufferBindings.length; i++) {
+            if (bufferBindings[i] == buffer) bufferBindings[i] = 0;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Vertex array
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static int vertexArray = 0;
+    private static int vertexArrayDeletions = 0;
+
+    /**
+     * Binds a vertex array.
+     *
+     * @param array the vertex array id
+     * @since 0.2.0
+     */
+    public static void bindVertexArray(int array) {
+        if (count(VERTEX_ARRAY, vertexArray != array)) {
+            vertexArray = array;
+            bufferBindings[ELEMENT_ARRAY_SLOT] = -1;
+            glBindVertexArray(array);
+        }
+    }
+
+    /**
+     * Gets the bound vertex array.
+     *
+     * @return the vertex array id
+     * @since 0.2.0
+     */
+    public static int getVertexArray() {
+        return vertexArray;
+    }
+
+    /**
+     * Gets the count of the vertex arrays {@link #onVertexArrayDeleted(int) deleted}.
+     * The caches keyed by the vertex array ids are stale once it changes,
+     * since GL can reuse the deleted ids.
+     *
+     * @return the deletion count
+     * @since 0.2.0
+     */
+    public static int getVertexArrayDeletions() {
+        return vertexArrayDeletions;
+    }
+
+    /**
+     * Notifies that the vertex array is deleted.
+     *
+     * @param array the vertex array id
+     * @since 0.2.0
+     */
+    public static void onVertexArrayDeleted(int array) {
+        ++vertexArrayDeletions;
+        if (vertexArray == array) {
+            vertexArray = 0;
+            bufferBindings[ELEMENT_ARRAY_SLOT] = -1;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Viewport
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final int[] viewport = {0, 0, 0, 0};
+
+    /**
+     * Sets the viewport.
+     *
+     * @param x      the left
+     * @param y      the bottom
+     * @param width  the width
+     * @param height the height
+     * @since 0.2.0
+     */
+    public static void viewport(int x, int y, int width, int height) {
+        if (count(VIEWPORT, viewport[0] != x
+            || viewport[1] != y
+            || viewport[2] != width
+            || viewport[3] != height)) {
+            viewport[0] = x;
+            viewport[1] = y;
+            viewport[2] = width;
+            viewport[3] = height;
+            glViewport(x, y, width, height);
+        }
+    }
+
+    public static int getViewportX() {
+        return viewport[0];
+    }
+
+    public static int getViewportY() {
+        return viewport[1];
+    }
+
+    public static int getViewportWidth() {
+        return viewport[2];
+    }
+
+    public static int getViewportHeight() {
+        return viewport[3];
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Clear color
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final float[] clearColor = {0.0f, 0.0f, 0.0f, 0.0f};
+    private static boolean clearColorKnown = true;
+
+    /**
+     * Sets the clear color.
+     *
+     * @param r the red value
+     * @param g the green value
+     * @param b the blue value
+     * @param a the alpha value
+     * @since 0.2.0
+     */
+    public static void setClearColor(float r, float g, float b, float a) {
+        if (count(CLEAR_COLOR, !clearColorKnown
+            || isNonEqual(clearColor[0], r)
+            || isNonEqual(clearColor[1], g)
+            || isNonEqual(clearColor[2], b)
+            || isNonEqual(clearColor[3], a))) {
+            clearColor[0] = r;
+            clearColor[1] = g;
+            clearColor[2] = b;
+            clearColor[3] = a;
+            clearColorKnown = true;
+            glClearColor(r, g, b, a);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Mask
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static boolean colorMaskR = true, colorMaskG = true, colorMaskB = true, colorMaskA = true;
+    private static boolean depthMask = true;
+
+    /**
+     * Sets the color mask.
+     *
+     * @param r the red mask
+     * @param g the green mask
+     * @param b the blue mask
+     * @param a the alpha mask
+     * @since 0.2.0
+     */
+    public static void colorMask(boolean r, boolean g, boolean b, boolean a) {
+        if (count(MASK, colorMaskR != r
+            || colorMaskG != g
+            || colorMaskB != b
+            || colorMaskA != a)) {
+            colorMaskR = r;
+            colorMaskG = g;
+            colorMaskB = b;
+            colorMaskA = a;
+            glColorMask(r, g, b, a);
+        }
+    }
+
+    /**
+     * Sets the depth mask.
+     *
+     * @param flag the depth mask
+     * @since 0.2.0
+     */
+    public static void depthMask(boolean flag) {
+        if (count(MASK, depthMask != flag)) {
+            depthMask = flag;
+            glDepthMask(flag);
+        }
+    }
+
+    public static boolean getDepthMask() {
+        return depthMask;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Polygon offset
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static boolean polygonOffsetFill = false;
+    private static float polygonOffsetFactor = 0.0f;
+    private static float polygonOffsetUnits = 0.0f;
+
+    /**
+     * Enable polygon offset fill.
+     *
+     * @since 0.2.0
+     */
+    public static void enablePolygonOffsetFill() {
+        if (count(POLYGON_OFFSET, !polygonOffsetFill)) {
+            polygonOffsetFill = true;
+            glEnable(GL_POLYGON_OFFSET_FILL);
+        }
+    }
+
+    /**
+     * Disable polygon offset fill.
+     *
+     * @since 0.2.0
+     */
+    public static void disablePolygonOffsetFill() {
+        if (count(POLYGON_OFFSET, polygonOffsetFill)) {
+            polygonOffsetFill = false;
+            glDisable(GL_POLYGON_OFFSET_FILL);
+        }
+    }
+
+    /**
+     * Sets the polygon offset.
+     *
+     * @param factor the scale factor
+     * @param units  the units
+     * @since 0.2.0
+     */
+    public static void polygonOffset(float factor, float units) {
+        if (count(POLYGON_OFFSET, Float.compare(polygonOffsetFactor, factor) != 0
+            || Float.compare(polygonOffsetUnits, units) != 0)) {
+            polygonOffsetFactor = factor;
+            polygonOffsetUnits = units;
+            glPolygonOffset(factor, units);
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Line width
     ///////////////////////////////////////////////////////////////////////////
@@ -616,7 +1059,7 @@ public class GLStateMgr {
     private static float lineWidth = 1.0f;
 
     public static void lineWidth(float width) {
-        if (Float.compare(lineWidth, width) != 0) {
+        if (count(LINE_WIDTH, Float.compare(lineWidth, width) != 0)) {
             lineWidth = width;
             glLineWidth(width);
         }
@@ -626,6 +1069,152 @@ public class GLStateMgr {
         return lineWidth;
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // State stack
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final class Snapshot {
+        private int program, vertexArray, arrayBuffer, activeTexture;
+        private int[] textures;
+        private final int[] viewport = new int[4];
+        private final float[] clearColor = new float[4];
+        private boolean clearColorKnown;
+        private boolean colorMaskR, colorMaskG, colorMaskB, colorMaskA, depthMask;
+        private boolean depthTest, cullFace, blend, stencilTest, polygonOffsetFill;
+        private int depthFunc, cullFaceMode;
+        private int blendSFactorRGB, blendSFactorAlpha, blendDFactorRGB, blendDFactorAlpha;
+        private float polygonOffsetFactor, polygonOffsetUnits, lineWidth;
+    }
+
+    private static final List<Snapshot> stateStack = new ArrayList<>();
+    private static int stateStackDepth = 0;
+
+    /**
+     * Saves the current states to the stack.
+     * <p>
+     * The saved states are the program, the vertex array, the array buffer,
+     * the 2D textures, the viewport, the clear color, the masks,
+     * and the depth, cull face, blend, stencil test, polygon offset and line width states.
+     * </p>
+     *
+     * @since 0.2.0
+     */
+    public static void pushState() {
+        if (stateStackDepth == stateStack.size()) {
+            stateStack.add(new Snapshot());
+        }
+        var s = stateStack.get(stateStackDepth++);
+        s.program = programId;
+        s.vertexArray = vertexArray;
+        s.arrayBuffer = bufferBindings[0];
+        s.activeTexture = activeTexture;
+        if (texture2DStates != null) {
+            if (s.textures == null || s.textures.length != texture2DStates.length) {
+                s.textures = new int[texture2DStates.length];
+            }
+            for (int i = 0; i < texture2DStates.length; i++) {
+                s.textures[i] = texture2DStates[i].currentId();
+            }
+        }
+        System.arraycopy(viewport, 0, s.viewport, 0, 4);
+        System.arraycopy(clearColor, 0, s.clearColor, 0, 4);
+        s.clearColorKnown = clearColorKnown;
+        s.colorMaskR = colorMaskR;
+        s.colorMaskG = colorMaskG;
+        s.colorMaskB = colorMaskB;
+        s.colorMaskA = colorMaskA;
+        s.depthMask = depthMask;
+        s.depthTest = depthTest;
+        s.depthFunc = depthFunc;
+        s.cullFace = cullFace;
+        s.cullFaceMode = cullFaceMode;
+        s.blend = blend;
+        s.blendSFactorRGB = blendSFactorRGB;
+        s.blendSFactorAlpha = blendSFactorAlpha;
+        s.blendDFactorRGB = blendDFactorRGB;
+        s.blendDFactorAlpha = blendDFactorAlpha;
+        s.stencilTest = stencilTest;
+        s.polygonOffsetFill = polygonOffsetFill;
+        s.polygonOffsetFactor = polygonOffsetFactor;
+        s.polygonOffsetUnits = polygonOffsetUnits;
+        s.lineWidth = lineWidth;
+    }
+
+    /**
+     * Restores the states saved by the last {@link #pushState()}.
+     * Only the states that differ are issued.
+     *
+     * @throws IllegalStateException if the stack is empty
+     * @since 0.2.0
+     */
+    public static void popState() {
+        if (stateStackDepth == 0) {
+            throw new IllegalStateException("State stack underflow");
+        }
+        var s = stateStack.get(--stateStackDepth);
+        if (s.program != -1) useProgram(s.program);
+        if (s.vertexArray != -1) bindVertexArray(s.vertexArray);
+        if (s.arrayBuffer != -1) bindBuffer(GL_ARRAY_BUFFER, s.arrayBuffer);
+        if (texture2DStates != null && s.textures != null) {
+            for (int i = 0; i < s.textures.length; i++) {
+                if (s.textures[i] != -1 && texture2DStates[i].currentId() != s.textures[i]) {
+                    bindTexture2D(i, s.textures[i]);
+                }
+            }
+        }
+        if (s.activeTexture != -1) activeTexture(s.activeTexture);
+        if (s.viewport[2] != -1) viewport(s.viewport[0], s.viewport[1], s.viewport[2], s.viewport[3]);
+        if (s.clearColorKnown) setClearColor(s.clearColor[0], s.clearColor[1], s.clearColor[2], s.clearColor[3]);
+        colorMask(s.colorMaskR, s.colorMaskG, s.colorMaskB, s.colorMaskA);
+        depthMask(s.depthMask);
+        if (s.depthTest) enableDepthTest();
+        else disableDepthTest();
+        setDepthFunc(s.depthFunc);
+        if (s.cullFace) enableCullFace();
+        else disableCullFace();
+        setCullFace(s.cullFaceMode);
+        if (s.blend) enableBlend();
+        else disableBlend();
+        blendFuncSeparate(s.blendSFactorRGB, s.blendDFactorRGB, s.blendSFactorAlpha, s.blendDFactorAlpha);
+        if (s.stencilTest) enableStencilTest();
+        else disableStencilTest();
+        if (s.polygonOffsetFill) enablePolygonOffsetFill();
+        else disablePolygonOffsetFill();
+        polygonOffset(s.polygonOffsetFactor, s.polygonOffsetUnits);
+        lineWidth(s.lineWidth);
+    }
+
+    /**
+     * Gets the depth of the state stack.
+     *
+     * @return the count of the pushed states
+     * @since 0.2.0
+     */
+    public static int getStateStackDepth() {
+        return stateStackDepth;
+    }
+
+    /**
+     * Forgets the cached bindings, the viewport and the clear color,
+     * so the next calls are always issued.
+     * Call this after changing these states by calling GL directly.
+     *
+     * @since 0.2.0
+     */
+    public static void invalidate() {
+        programId = -1;
+        vertexArray = -1;
+        Arrays.fill(bufferBindings, -1);
+        if (texture2DStates != null) {
+            for (var state : texture2DStates) {
+                state.setId(-1);
+            }
+        }
+        activeTexture = -1;
+        Arrays.fill(viewport, -1);
+        clearColorKnown = false;
+    }
+
     private static boolean initialized = false;
 
     /**
@@ -642,6 +1231,8 @@ public class GLStateMgr {
             stencilBackWriteMask = glGetInteger(GL_STENCIL_BACK_WRITEMASK);
             stencilValueMask = glGetInteger(GL_STENCIL_VALUE_MASK);
             stencilBackValueMask = glGetInteger(GL_STENCIL_BACK_VALUE_MASK);
+            glGetIntegerv(GL_VIEWPORT, viewport);
+            uniformBufferOffsetAlignment = glGetInteger(GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT);
             texture2DStates = new GLTextureState[maxCombinedTextureImageUnits];
             for (int i = 0; i < maxCombinedTextureImageUnits; i++) {
                 texture2DStates[i] = new GLTextureState(GL_TEXTURE_2D);
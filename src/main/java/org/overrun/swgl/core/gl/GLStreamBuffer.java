@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import org.lwjgl.opengl.GL;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL44C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The streaming buffer for dynamic geometry that changes every frame.
+ * <p>
+ * The buffer is a ring of {@code frameCount} frames (triple-buffered by default)
+ * managed by a {@link GLRingAllocator}. The data is appended with
+ * persistent mapping where {@code glBufferStorage} is supported; otherwise
+ * with {@code glMapBufferRange} using the unsynchronized and invalidate-range flags.
+ * The fences keep the ranges still read by the GPU from being overwritten.
+ * </p>
+ * <h4>Example</h4>
+ * <pre>{@code var stream = new GLStreamBuffer(GL_ARRAY_BUFFER, 1 << 20);
+ * long offset = stream.append(batch.getBuffer(), 4);
+ * // set the attribute pointers with offset and draw
+ * // at the end of the frame
+ * stream.commit();}</pre>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLStreamBuffer implements AutoCloseable {
+    private static final int PERSISTENT_FLAGS = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+    private static final int STREAM_FLAGS = GL_MAP_WRITE_BIT | GL_MAP_UNSYNCHRONIZED_BIT | GL_MAP_INVALIDATE_RANGE_BIT;
+    private final IGLBuffer.Single buffer;
+    private final GLRingAllocator allocator;
+    private final boolean persistent;
+    private final long mappedAddress;
+    private boolean closed = false;
+
+    /**
+     * Create the streaming buffer. The buffer is left bound to the target.
+     *
+     * @param target      the buffer target
+     * @param frameSize   the size in bytes for a frame
+     * @param frameCount  the count of the frames in the ring
+     * @param fenceSource the fence source
+     */
+    public GLStreamBuffer(int target, long frameSize, int frameCount, IGLFenceSource fenceSource) {
+        final long capacity = frameSize * frameCount;
+        allocator = new GLRingAllocator(capacity, fenceSource);
+        buffer = new IGLBuffer.Single().layout(target, GL_STREAM_DRAW).bind();
+        persistent = hasBufferStorage();
+        if (persistent) {
+            glBufferStorage(target, capacity, PERSISTENT_FLAGS);
+            mappedAddress = memAddress(buffer.mapRange(0L, capacity, PERSISTENT_FLAGS));
+        } else {
+            buffer.data(capacity);
+            mappedAddress = NULL;
+        }
+    }
+
+    /**
+     * Create the triple-buffered streaming buffer with GL fences.
+     * The buffer is left bound to the target.
+     *
+     * @param target    the buffer target
+     * @param frameSize the size in bytes for a frame
+     */
+    public GLStreamBuffer(int target, long frameSize) {
+        this(target, frameSize, 3, IGLFenceSource.DEFAULT);
+    }
+
+    /**
+     * Check if this context supports to {@code glBufferStorage}.
+     *
+     * @return has glBufferStorage
+     */
+    public static boolean hasBufferStorage() {
+        return GL.getCapabilities().glBufferStorage != NULL;
+    }
+
+    private long append(long address, long size, long alignment) {
+        final long offset = allocator.allocate(size, alignment);
+        if (persistent) {
+            memCopy(address, mappedAddress + offset, size);
+        } else {
+            buffer.bind();
+            var mapped = buffer.mapRange(offset, size, STREAM_FLAGS);
+            memCopy(address, memAddress(mapped), size);
+            buffer.unmap();
+        }
+        return offset;
+    }
+
+    /**
+     * Append the data from the position to the limit.
+     *
+     * @param data      the data
+     * @param alignment the alignment of the offset in bytes
+     * @return the byte offset of the data in this buffer
+     */
+    public long append(ByteBuffer data, long alignment) {
+        return append(memAddress(data), data.remaining(), alignment);
+    }
+
+    /**
+     * Append the data from the position to the limit.
+     *
+     * @param data      the data
+     * @param alignment the alignment of the offset in bytes
+     * @return the byte offset of the data in this buffer
+     */
+    public long append(IntBuffer data, long alignment) {
+        return append(memAddress(data), Integer.toUnsignedLong(data.remaining()) << 2, alignment);
+    }
+
+    /**
+     * Fence the data appended since the last commit. Call this after the
+     * draw calls using them are submitted, usually once per frame.
+     */
+    public void commit() {
+        allocator.commit();
+    }
+
+    /**
+     * Check if the data can be appended without overwriting the data appended
+     * since the last commit. If not, {@link #commit()} first.
+     *
+     * @param size      the size in bytes
+     * @param alignment the alignment of the offset in bytes
+     * @return {@code true} if the data can be appended before committing
+     * @see GLRingAllocator#canAllocate(long, long)
+     */
+    public boolean canAppend(long size, long alignment) {
+        return allocator.canAllocate(size, alignment);
+    }
+
+    /**
+     * Check if the data can be appended once.
+     *
+     * @param size the size in bytes
+     * @return {@code true} if the size is not greater than the capacity
+     */
+    public boolean fits(long size) {
+        return size <= allocator.capacity();
+    }
+
+    /**
+     * Get the ring allocator.
+     *
+     * @return the allocator
+     */
+    public GLRingAllocator getAllocator() {
+        return allocator;
+    }
+
+    /**
+     * Get the GL buffer.
+     *
+     * @return the buffer
+     */
+    public IGLBuffer.Single getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Whether the buffer is persistently mapped.
+     *
+     * @return {@code true} if persistent mapping is used
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        allocator.reset();
+        if (persistent) {
+            buffer.bind().unmap();
+        }
+        buffer.close();
+    }
+}
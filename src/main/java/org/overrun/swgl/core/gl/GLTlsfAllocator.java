@@ -0,0 +1,355 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The two-level segregated fit (TLSF) allocator for the slices of a buffer arena.
+ * <p>
+ * The free blocks are kept in the lists segregated by the power of two of the size (first level)
+ * and the 16 linear subdivisions of it (second level), and 2 levels of bitmaps find a fitting list
+ * in constant time. A freed block is merged with its free physical neighbours immediately.
+ * </p>
+ * <p>
+ * The offsets and the sizes are rounded to {@value #GRANULARITY} bytes.
+ * This class doesn't call GL.
+ * </p>
+ *
+ * @author squid233
+ * @see GLBufferArena
+ * @since 0.2.0
+ */
+public class GLTlsfAllocator {
+    /**
+     * The granularity of the offsets and the sizes in bytes.
+     */
+    public static final int GRANULARITY = 16;
+    private static final int GRANULARITY_LOG2 = 4;
+    private static final int SL_LOG2 = 4;
+    private static final int SL_COUNT = 1 << SL_LOG2;
+    private static final int FL_COUNT = 64 - GRANULARITY_LOG2 - SL_LOG2;
+    private final long capacity;
+    private final Block[][] freeLists = new Block[FL_COUNT][SL_COUNT];
+    private final int[] slBitmaps = new int[FL_COUNT];
+    private final Map<Long, Block> allocated = new HashMap<>();
+    private long flBitmap = 0;
+    private Block first;
+    private long used = 0;
+    private int freeBlockCount = 0;
+
+    private static final class Block {
+        private long offset, size;
+        private boolean free;
+        private Block prevPhys, nextPhys;
+        private Block prevFree, nextFree;
+
+        private Block(long offset, long size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Create the allocator.
+     *
+     * @param capacity the capacity in bytes, rounded down to the granularity
+     */
+    public GLTlsfAllocator(long capacity) {
+        this.capacity = capacity & -GRANULARITY;
+        if (this.capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be at least " + GRANULARITY + ": " + capacity);
+        }
+        first = new Block(0, this.capacity);
+        insertFree(first);
+    }
+
+    /**
+     * Rounds the size up to the granularity.
+     *
+     * @param size the size in bytes
+     * @return the rounded size
+     */
+    public static long roundSize(long size) {
+        return (size + GRANULARITY - 1) & -GRANULARITY;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Free lists
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static int floorLog2(long value) {
+        return 63 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Maps the size to the first level index in the high 32 bits and the second level index in the low 32 bits.
+     */
+    private static long mapping(long size) {
+        final long units = size >>> GRANULARITY_LOG2;
+        if (units < SL_COUNT) {
+            return units;
+        }
+        final int f = floorLog2(units);
+        final long fl = f - SL_LOG2 + 1;
+        final long sl = (units >>> (f - SL_LOG2)) ^ SL_COUNT;
+        return fl << 32 | sl;
+    }
+
+    private void insertFree(Block block) {
+        final long m = mapping(block.size);
+        final int fl = (int) (m >>> 32);
+        final int sl = (int) m;
+        block.free = true;
+        block.prevFree = null;
+        block.nextFree = freeLists[fl][sl];
+        if (block.nextFree != null) block.nextFree.prevFree = block;
+        freeLists[fl][sl] = block;
+        slBitmaps[fl] |= 1 << sl;
+        flBitmap |= 1L << fl;
+        ++freeBlockCount;
+    }
+
+    private void removeFree(Block block) {
+        final long m = mapping(block.size);
+        final int fl = (int) (m >>> 32);
+        final int sl = (int) m;
+        if (block.prevFree != null) block.prevFree.nextFree = block.nextFree;
+        else freeLists[fl][sl] = block.nextFree;
+        if (block.nextFree != null) block.nextFree.prevFree = block.prevFree;
+        if (freeLists[fl][sl] == null) {
+            slBitmaps[fl] &= ~(1 << sl);
+            if (slBitmaps[fl] == 0) flBitmap &= ~(1L << fl);
+        }
+        block.free = false;
+        block.prevFree = null;
+        block.nextFree = null;
+        --freeBlockCount;
+    }
+
+    private Block findFree(long size) {
+        final long units = size >>> GRANULARITY_LOG2;
+        long searchSize = size;
+        if (units >= SL_COUNT) {
+            // round up to the next list, so any block in the list fits
+            searchSize += ((long) GRANULARITY << (floorLog2(units) - SL_LOG2)) - 1;
+        }
+        final long m = mapping(searchSize);
+        int fl = (int) (m >>> 32);
+        int sl = (int) m;
+        if (fl >= FL_COUNT) return null;
+        int slMap = slBitmaps[fl] & (-1 << sl);
+        if (slMap == 0) {
+            final long flMap = fl + 1 < 64 ? flBitmap & (-1L << (fl + 1)) : 0;
+            if (flMap == 0) return null;
+            fl = Long.numberOfTrailingZeros(flMap);
+            slMap = slBitmaps[fl];
+        }
+        sl = Integer.numberOfTrailingZeros(slMap);
+        return freeLists[fl][sl];
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Allocation
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Allocate a slice.
+     *
+     * @param size the size in bytes
+     * @return the offset, or {@code -1} if no free block fits
+     */
+    public long allocate(long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be greater than 0: " + size);
+        }
+        size = roundSize(size);
+        final Block block = findFree(size);
+        if (block == null)
+            return -1;
+        removeFree(block);
+        final long remain = block.size - size;
+        if (remain >= GRANULARITY) {
+            var rest = new Block(block.offset + size, remain);
+            rest.prevPhys = block;
+            rest.nextPhys = block.nextPhys;
+            if (block.nextPhys != null) block.nextPhys.prevPhys = rest;
+            block.nextPhys = rest;
+            block.size = size;
+            insertFree(rest);
+        }
+        allocated.put(block.offset, block);
+        used += block.size;
+        return block.offset;
+    }
+
+    /**
+     * Free the slice and merge it with the free neighbours.
+     *
+     * @param offset the offset of the slice
+     * @throws IllegalArgumentException if the offset is not allocated
+     */
+    public void free(long offset) {
+        var block = allocated.remove(offset);
+        if (block == null) {
+            throw new IllegalArgumentException("Slice at " + offset + " is not allocated");
+        }
+        used -= block.size;
+        var prev = block.prevPhys;
+        if (prev != null && prev.free) {
+            removeFree(prev);
+            prev.size += block.size;
+            prev.nextPhys = block.nextPhys;
+            if (block.nextPhys != null) block.nextPhys.prevPhys = prev;
+            block = prev;
+        }
+        var next = block.nextPhys;
+        if (next != null && next.free) {
+            removeFree(next);
+            block.size += next.size;
+            block.nextPhys = next.nextPhys;
+            if (next.nextPhys != null) next.nextPhys.prevPhys = block;
+        }
+        insertFree(block);
+    }
+
+    /**
+     * Packs the allocated slices to the front without changing their order,
+     * leaving one free block at the end.
+     *
+     * @param relocation the action called for each moved slice
+     * @return the count of the moved slices
+     */
+    public int defragment(GLRangeAllocator.IRelocation relocation) {
+        long offset = 0;
+        int moved = 0;
+        Block last = null;
+        allocated.clear();
+        for (int i = 0; i < FL_COUNT; i++) {
+            for (int j = 0; j < SL_COUNT; j++) {
+                freeLists[i][j] = null;
+            }
+            slBitmaps[i] = 0;
+        }
+        flBitmap = 0;
+        freeBlockCount = 0;
+        for (var block = first; block != null; block = block.nextPhys) {
+            if (block.free) continue;
+            if (block.offset != offset) {
+                relocation.move(block.offset, offset, block.size);
+                block.offset = offset;
+                ++moved;
+            }
+            block.prevPhys = last;
+            if (last != null) last.nextPhys = block;
+            else first = block;
+            allocated.put(offset, block);
+            offset += block.size;
+            last = block;
+        }
+        if (offset < capacity) {
+            var tail = new Block(offset, capacity - offset);
+            tail.prevPhys = last;
+            if (last != null) last.nextPhys = tail;
+            else first = tail;
+            insertFree(tail);
+        } else if (last != null) {
+            last.nextPhys = null;
+        }
+        return moved;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Metrics
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Gets the size of the allocated slice.
+     *
+     * @param offset the offset of the slice
+     * @return the rounded size, or {@code -1} if not allocated
+     */
+    public long sizeOf(long offset) {
+        var block = allocated.get(offset);
+        return block != null ? block.size : -1;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long used() {
+        return used;
+    }
+
+    public long free() {
+        return capacity - used;
+    }
+
+    /**
+     * Gets the size of the largest free block.
+     *
+     * @return the largest free size
+     */
+    public long largestFree() {
+        if (flBitmap == 0)
+            return 0;
+        final int fl = floorLog2(flBitmap);
+        final int sl = 31 - Integer.numberOfLeadingZeros(slBitmaps[fl]);
+        long max = 0;
+        for (var block = freeLists[fl][sl]; block != null; block = block.nextFree) {
+            max = Math.max(max, block.size);
+        }
+        return max;
+    }
+
+    public int freeBlockCount() {
+        return freeBlockCount;
+    }
+
+    public int allocationCount() {
+        return allocated.size();
+    }
+
+    /**
+     * Gets the external fragmentation, {@code 1 - largestFree / free}.
+     *
+     * @return the fragmentation in {@code [0, 1]}
+     */
+    public float fragmentation() {
+        final long free = free();
+        return free == 0 ? 0.0f : 1.0f - (float) largestFree() / free;
+    }
+
+    /**
+     * Gets the occupancy, {@code used / capacity}.
+     *
+     * @return the occupancy in {@code [0, 1]}
+     */
+    public float occupancy() {
+        return (float) used / capacity;
+    }
+}
@@ -38,14 +38,23 @@ import java.nio.ByteBuffer;
 import static org.lwjgl.system.MemoryUtil.*;
 
 /**
+ * The uniform with the staged value.
+ * <p>
+ * The setters compare the new value with the staged bytes,
+ * and the uniform is marked as dirty only if the value is changed.
+ * </p>
+ *
  * @author squid233
  * @since 0.1.0
  */
 public final class GLUniform implements AutoCloseable {
     private final int location;
     private final GLUniformType type;
+    private final ByteBuffer storage;
     private final ByteBuffer buffer;
+    private final ByteBuffer scratch;
     private boolean isDirty = true;
+    int slot = -1;
 
     /**
      * Construct the uniform.
@@ -56,7 +65,10 @@ public final class GLUniform implements AutoCloseable {
     public GLUniform(int location, GLUniformType type) {
         this.location = location;
         this.type = type;
-        buffer = memAlloc(type.getByteLength());
+        final int length = type.getByteLength();
+        storage = memCalloc(length << 1);
+        buffer = memSlice(storage, 0, length);
+        scratch = memSlice(storage, length, length);
         switch (type) {
             case M2F -> buffer
                 .putFloat(1).putFloat(0)
@@ -100,6 +112,17 @@ public final class GLUniform implements AutoCloseable {
         return location;
     }
 
+    /**
+     * Get the slot of this uniform in the program.
+     *
+     * @return The slot, or {@code -1} if this uniform is not created by a program.
+     * @see GLProgram#getUniform(int)
+     * @since 0.2.0
+     */
+    public int getSlot() {
+        return slot;
+    }
+
     /**
      * Get the uniform type.
      *
@@ -125,71 +148,126 @@ public final class GLUniform implements AutoCloseable {
         isDirty = true;
     }
 
+    private void setInt(int offset, int value) {
+        if (buffer.getInt(offset) != value) {
+            buffer.putInt(offset, value);
+            markDirty();
+        }
+    }
+
+    private void setFloat(int offset, float value) {
+        setInt(offset, Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Copies the first {@code length} bytes of the scratch to the staged bytes if they differ.
+     *
+     * @param length the byte length
+     */
+    private void commit(int length) {
+        final long src = memAddress(scratch);
+        final long dst = memAddress(buffer);
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if (memGetLong(src + i) != memGetLong(dst + i)) {
+                break;
+            }
+        }
+        for (; i + 4 <= length; i += 4) {
+            if (memGetInt(src + i) != memGetInt(dst + i)) {
+                memCopy(src + i, dst + i, length - i);
+                markDirty();
+                return;
+            }
+        }
+        // the tail of a byte buffer value
+        for (; i < length; i++) {
+            if (memGetByte(src + i) != memGetByte(dst + i)) {
+                memCopy(src + i, dst + i, length - i);
+                markDirty();
+                return;
+            }
+        }
+    }
+
     public void set(float value) {
-        markDirty();
-        buffer.putFloat(0, value);
+        setFloat(0, value);
     }
 
     public void set(float x, float y) {
-        markDirty();
-        buffer.putFloat(0, x).putFloat(4, y);
+        setFloat(0, x);
+        setFloat(4, y);
     }
 
     public void set(float x, float y, float z) {
-        markDirty();
-        buffer.putFloat(0, x).putFloat(4, y).putFloat(8, z);
+        setFloat(0, x);
+        setFloat(4, y);
+        setFloat(8, z);
     }
 
     public void set(float x, float y, float z, float w) {
-        markDirty();
-        buffer.putFloat(0, x).putFloat(4, y).putFloat(8, z).putFloat(12, w);
+        setFloat(0, x);
+        setFloat(4, y);
+        setFloat(8, z);
+        setFloat(12, w);
     }
 
     public void set(boolean value) {
-        markDirty();
-        buffer.putInt(0, value ? 1 : 0);
+        setInt(0, value ? 1 : 0);
     }
 
     public void set(int value) {
-        markDirty();
-        buffer.putInt(0, value);
+        setInt(0, value);
     }
 
     public void set(double value) {
-        markDirty();
-        buffer.putDouble(0, value);
+        scratch.putDouble(0, value);
+        commit(8);
     }
 
     public void set(Vector3fc value) {
-        markDirty();
-        value.get(buffer);
+        value.get(scratch);
+        commit(12);
     }
 
     public void set(Vector4fc value) {
-        markDirty();
-        value.get(buffer);
+        value.get(scratch);
+        commit(16);
     }
 
     public void set(Matrix3fc value) {
-        markDirty();
-        value.get(buffer);
+        value.get(scratch);
+        commit(36);
     }
 
     public void set(Matrix4fc value) {
-        markDirty();
-        value.get(buffer);
+        value.get(scratch);
+        commit(64);
     }
 
     public void set(float... values) {
-        markDirty();
         for (int i = 0; i < values.length; i++) {
-            buffer.putFloat(i * 4, values[i]);
+            scratch.putFloat(i * 4, values[i]);
         }
+        commit(values.length * 4);
     }
 
+    /**
+     * Set the value from the position to the limit of the buffer. The buffer can be
+     * a heap or direct buffer. The position of the buffer is advanced to the limit.
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if the remaining is greater than the byte length of the type
+     */
     public void set(ByteBuffer value) {
-        markDirty();
-        buffer.put(value).position(0);
+        final int length = value.remaining();
+        if (length > type.getByteLength()) {
+            throw new IllegalArgumentException("The buffer has " + length + " bytes, but the uniform " + type + " has only " + type.getByteLength() + " bytes");
+        }
+        // works for both the heap and the direct buffers
+        scratch.put(0, value, value.position(), length);
+        value.position(value.limit());
+        commit(length);
     }
 
     /**
@@ -274,6 +352,6 @@ public final class GLUniform implements AutoCloseable {
 
     @Override
     public void close() {
-        memFree(buffer);
+        memFree(storage);
     }
 }
@@ -0,0 +1,362 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import org.joml.*;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL31C.GL_UNIFORM_BUFFER;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The uniform block with the std140 layout.
+ * <p>
+ * The block stages the member values in client memory and appends them to a
+ * {@link GLStreamBuffer streaming buffer} once per frame, then binds the range
+ * to the binding point. The programs that {@link GLProgram#bindUniformBlock(GLUniformBlock) bind}
+ * the block to the same binding point share the data, so the camera and light data are written once
+ * per frame instead of once per program.
+ * </p>
+ * <h4>Example</h4>
+ * <pre>{@code var camera = new GLUniformBlock("Camera", 0,
+ *     new GLUniformBlock.Member("projection", GLUniformType.M4F),
+ *     new GLUniformBlock.Member("view", GLUniformType.M4F));
+ * program.bindUniformBlock(camera);
+ * // each frame
+ * camera.set(0, projection).set(1, view).upload(stream);
+ * // draw, then stream.commit()}</pre>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLUniformBlock implements AutoCloseable {
+    private final String name;
+    private final int binding;
+    private final Member[] members;
+    private final int[] offsets;
+    private final int[] arrayStrides;
+    private final int size;
+    private final Map<String, Integer> memberIndices = new HashMap<>();
+    private final ByteBuffer buffer;
+    private long lastOffset = -1;
+
+    /**
+     * The member of the uniform block.
+     *
+     * @param name  the member name
+     * @param type  the member type
+     * @param count the array length, or {@code 0} if the member is not an array
+     * @author squid233
+     * @since 0.2.0
+     */
+    public record Member(String name, GLUniformType type, int count) {
+        public Member {
+            if (count < 0) {
+                throw new IllegalArgumentException("Negative array length " + count + " of member " + name);
+            }
+        }
+
+        public Member(String name, GLUniformType type) {
+            this(name, type, 0);
+        }
+    }
+
+    /**
+     * Create the uniform block.
+     *
+     * @param name    the block name in the shaders
+     * @param binding the uniform buffer binding point
+     * @param members the members in the declared order
+     */
+    public GLUniformBlock(String name, int binding, Member... members) {
+        this.name = name;
+        this.binding = binding;
+        this.members = members.clone();
+        offsets = new int[members.length];
+        arrayStrides = new int[members.length];
+        size = layoutStd140(members, offsets, arrayStrides);
+        for (int i = 0; i < members.length; i++) {
+            memberIndices.put(members[i].name(), i);
+        }
+        buffer = memCalloc(size);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Layout
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static int alignUp(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    private static int componentBytes(GLUniformType type) {
+        return type.name().endsWith("D") ? 8 : 4;
+    }
+
+    /**
+     * Gets the count of the columns of the type. The vectors have 1 column.
+     *
+     * @param type the type
+     * @return the column count
+     */
+    public static int columns(GLUniformType type) {
+        if (!type.isMatrix()) return 1;
+        return type.name().charAt(1) - '0';
+    }
+
+    /**
+     * Gets the count of the rows of the type, that is the component count of a column.
+     *
+     * @param type the type
+     * @return the row count
+     */
+    public static int rows(GLUniformType type) {
+        return type.size() / columns(type);
+    }
+
+    private static int vectorAlignment(int components, int componentBytes) {
+        return (components == 3 ? 4 : components) * componentBytes;
+    }
+
+    /**
+     * Gets the base alignment of the type in std140, not as an array element.
+     *
+     * @param type the type
+     * @return the base alignment in bytes
+     */
+    public static int alignmentStd140(GLUniformType type) {
+        final int bytes = componentBytes(type);
+        final int align = vectorAlignment(rows(type), bytes);
+        // matrix columns are aligned as array elements
+        return type.isMatrix() ? alignUp(align, 16) : align;
+    }
+
+    /**
+     * Gets the size of the type in std140, not as an array element.
+     *
+     * @param type the type
+     * @return the size in bytes
+     */
+    public static int sizeStd140(GLUniformType type) {
+        if (type.isMatrix()) {
+            return columns(type) * alignmentStd140(type);
+        }
+        return type.getByteLength();
+    }
+
+    /**
+     * Computes the std140 layout of the members.
+     *
+     * @param members      the members in the declared order
+     * @param offsets      the array to store the offsets of the members
+     * @param arrayStrides the array to store the array strides of the members,
+     *                     or {@code 0} for the non-array members
+     * @return the size of the block in bytes
+     */
+    public static int layoutStd140(Member[] members, int[] offsets, int[] arrayStrides) {
+        int offset = 0;
+        for (int i = 0; i < members.length; i++) {
+            var member = members[i];
+            var type = member.type();
+            int align = alignmentStd140(type);
+            int memberSize = sizeStd140(type);
+            if (member.count() > 0) {
+                // array elements are rounded up to the alignment of vec4
+                align = alignUp(align, 16);
+                final int stride = alignUp(memberSize, align);
+                arrayStrides[i] = stride;
+                memberSize = stride * member.count();
+            } else {
+                arrayStrides[i] = 0;
+            }
+            offset = alignUp(offset, align);
+            offsets[i] = offset;
+            offset += memberSize;
+        }
+        return alignUp(offset, 16);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Setters
+    ///////////////////////////////////////////////////////////////////////////
+
+    private int elementOffset(int member, int index) {
+        if (index != 0 && (index < 0 || index >= members[member].count())) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for member " + members[member].name());
+        }
+        return offsets[member] + index * arrayStrides[member];
+    }
+
+    public GLUniformBlock set(int member, float value) {
+        buffer.putFloat(offsets[member], value);
+        return this;
+    }
+
+    public GLUniformBlock set(int member, int value) {
+        buffer.putInt(offsets[member], value);
+        return this;
+    }
+
+    public GLUniformBlock set(int member, boolean value) {
+        return set(member, value ? 1 : 0);
+    }
+
+    public GLUniformBlock set(int member, Vector2fc value) {
+        value.get(offsets[member], buffer);
+        return this;
+    }
+
+    public GLUniformBlock set(int member, Vector3fc value) {
+        value.get(offsets[member], buffer);
+        return this;
+    }
+
+    public GLUniformBlock set(int member, Vector4fc value) {
+        return set(member, 0, value);
+    }
+
+    public GLUniformBlock set(int member, int index, Vector4fc value) {
+        value.get(elementOffset(member, index), buffer);
+        return this;
+    }
+
+    public GLUniformBlock set(int member, Matrix3fc value) {
+        // the columns are padded to vec4
+        value.get3x4(offsets[member], buffer);
+        return this;
+    }
+
+    public GLUniformBlock set(int member, Matrix4fc value) {
+        return set(member, 0, value);
+    }
+
+    public GLUniformBlock set(int member, int index, Matrix4fc value) {
+        value.get(elementOffset(member, index), buffer);
+        return this;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Upload
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Appends the staged data to the streaming buffer and binds the range to the binding point.
+     * Call this once per frame before the draw calls, and {@link GLStreamBuffer#commit() commit}
+     * the stream after the draw calls.
+     *
+     * @param stream the streaming buffer with the {@code GL_UNIFORM_BUFFER} target
+     * @return the offset of the range in the stream
+     */
+    public long upload(GLStreamBuffer stream) {
+        lastOffset = stream.append(buffer, GLStateMgr.getUniformBufferOffsetAlignment());
+        GLStateMgr.bindBufferRange(GL_UNIFORM_BUFFER, binding, stream.getBuffer().id(), lastOffset, size);
+        return lastOffset;
+    }
+
+    /**
+     * Gets the offset of the last uploaded range.
+     *
+     * @return the offset, or {@code -1} if never uploaded
+     */
+    public long getLastOffset() {
+        return lastOffset;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Getters
+    ///////////////////////////////////////////////////////////////////////////
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBinding() {
+        return binding;
+    }
+
+    /**
+     * Gets the size of the block in bytes.
+     *
+     * @return the size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getMemberCount() {
+        return members.length;
+    }
+
+    public Member getMember(int member) {
+        return members[member];
+    }
+
+    /**
+     * Gets the index of the member.
+     *
+     * @param name the member name
+     * @return the index, or {@code -1} if not found
+     */
+    public int getMemberIndex(String name) {
+        return memberIndices.getOrDefault(name, -1);
+    }
+
+    /**
+     * Gets the std140 offset of the member.
+     *
+     * @param member the member index
+     * @return the offset in bytes
+     */
+    public int getOffset(int member) {
+        return offsets[member];
+    }
+
+    /**
+     * Gets the std140 array stride of the member.
+     *
+     * @param member the member index
+     * @return the stride in bytes, or {@code 0} if the member is not an array
+     */
+    public int getArrayStride(int member) {
+        return arrayStrides[member];
+    }
+
+    /**
+     * Gets the staging buffer for writing the members manually.
+     *
+     * @return the buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void close() {
+        memFree(buffer);
+    }
+}
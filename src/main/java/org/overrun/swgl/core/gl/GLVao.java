@@ -69,7 +69,7 @@ public class GLVao implements AutoCloseable {
      * @return this
      */
     public GLVao bind() {
-        glBindVertexArray(id());
+        GLStateMgr.bindVertexArray(id());
         return this;
     }
 
@@ -113,7 +113,7 @@ public class GLVao implements AutoCloseable {
      * @return this
      */
     public GLVao unbind() {
-        glBindVertexArray(0);
+        GLStateMgr.bindVertexArray(0);
         return this;
     }
 
@@ -140,6 +140,7 @@ public class GLVao implements AutoCloseable {
      */
     public void delete() {
         if (!deleted()) {
+            GLStateMgr.onVertexArrayDeleted(id());
             glDeleteVertexArrays(id());
             id = 0;
             deleted = true;
@@ -31,6 +31,7 @@ import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.StringJoiner;
 
+import static org.lwjgl.system.MemoryUtil.*;
 import static org.overrun.swgl.core.model.IModel.color2byte;
 
 /**
@@ -40,6 +41,12 @@ import static org.overrun.swgl.core.model.IModel.color2byte;
  * @since 0.2.0
  */
 public class GLVertex {
+    /**
+     * The bytes of a vertex record that {@link #store(long)} writes.
+     *
+     * @since 0.2.0
+     */
+    public static final int BYTES = 40;
     public float x = 0.0f, y = 0.0f, z = 0.0f,
         s = 0.0f, t = 0.0f, p = 0.0f,
         nx = 0.0f, ny = 0.0f, nz = 1.0f;
@@ -201,10 +208,76 @@ public class GLVertex {
                     IModel.normal2byte(ny),
                     IModel.normal2byte(nz),
                     null);
+                case INT_2_10_10_10_REV -> format.processBuffer(buffer,
+                    nx, ny, nz, 0.0f);
             }
         }
     }
 
+    /**
+     * Puts into the buffer with the format at the absolute offset.
+     * The buffer position is not changed.
+     *
+     * @param format the vertex format
+     * @param buffer the dest buffer
+     * @param offset the absolute byte offset
+     * @since 0.2.0
+     */
+    public void processBuffer(VertexFormat format, ByteBuffer buffer, int offset) {
+        if (offset < 0 || offset + format.getBytes() > buffer.capacity()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for capacity " + buffer.capacity());
+        }
+        format.write(this, memAddress0(buffer) + offset);
+    }
+
+    /**
+     * Stores all attributes of this vertex as a record of {@link #BYTES} bytes,
+     * regardless of any vertex layout.
+     *
+     * @param address the dest memory address
+     * @see #load(long)
+     * @since 0.2.0
+     */
+    public void store(long address) {
+        memPutFloat(address, x);
+        memPutFloat(address + 4, y);
+        memPutFloat(address + 8, z);
+        memPutFloat(address + 12, s);
+        memPutFloat(address + 16, t);
+        memPutFloat(address + 20, p);
+        memPutFloat(address + 24, nx);
+        memPutFloat(address + 28, ny);
+        memPutFloat(address + 32, nz);
+        memPutByte(address + 36, r);
+        memPutByte(address + 37, g);
+        memPutByte(address + 38, b);
+        memPutByte(address + 39, a);
+    }
+
+    /**
+     * Loads all attributes of this vertex from a record written by {@link #store(long)}.
+     *
+     * @param address the source memory address
+     * @return this
+     * @since 0.2.0
+     */
+    public GLVertex load(long address) {
+        x = memGetFloat(address);
+        y = memGetFloat(address + 4);
+        z = memGetFloat(address + 8);
+        s = memGetFloat(address + 12);
+        t = memGetFloat(address + 16);
+        p = memGetFloat(address + 20);
+        nx = memGetFloat(address + 24);
+        ny = memGetFloat(address + 28);
+        nz = memGetFloat(address + 32);
+        r = memGetByte(address + 36);
+        g = memGetByte(address + 37);
+        b = memGetByte(address + 38);
+        a = memGetByte(address + 39);
+        return this;
+    }
+
     @Override
     public String toString() {
         return new StringJoiner(", ", GLVertex.class.getSimpleName() + "[", "]")
@@ -25,6 +25,7 @@
 package org.overrun.swgl.core.gl;
 
 import org.lwjgl.opengl.GL15C;
+import org.lwjgl.opengl.GL30C;
 
 import java.nio.ByteBuffer;
 import java.util.function.Consumer;
@@ -204,6 +205,22 @@ public interface IGLBuffer {
      */
     ByteBuffer map(int access, long length, ByteBuffer oldBuffer);
 
+    /**
+     * {@link GL30C#glMapBufferRange(int, long, long, int) glMapBufferRange}
+     * <p>
+     * The default implementation maps the buffer bound to the {@link #target() target}.
+     * </p>
+     *
+     * @param offset the starting offset within the buffer of the range to be mapped
+     * @param length the length of the range to be mapped
+     * @param access a combination of access flags indicating the desired access to the range
+     * @return the mapped range of this buffer
+     * @since 0.2.0
+     */
+    default ByteBuffer mapRange(long offset, long length, int access) {
+        return GL30C.glMapBufferRange(target(), offset, length, access);
+    }
+
     /**
      * {@link GL15C#glUnmapBuffer(int) glUnmapBuffer}
      *
@@ -285,7 +302,7 @@ public interface IGLBuffer {
 
         @Override
         public Single bind() {
-            glBindBuffer(target(), id());
+            GLStateMgr.bindBuffer(target(), id());
             return this;
         }
 
@@ -303,7 +320,7 @@ public interface IGLBuffer {
 
         @Override
         public Single unbind() {
-            glBindBuffer(target(), 0);
+            GLStateMgr.bindBuffer(target(), 0);
             return this;
         }
 
@@ -390,6 +407,7 @@ public interface IGLBuffer {
         @Override
         public void delete() {
             if (!deleted()) {
+                GLStateMgr.onBufferDeleted(id());
                 glDeleteBuffers(id());
                 id = 0;
                 deleted = true;
@@ -618,6 +636,25 @@ public interface IGLBuffer {
             return get(index).map(access, length, oldBuffer);
         }
 
+        @Override
+        public ByteBuffer mapRange(long offset, long length, int access) {
+            return mapRange(0, offset, length, access);
+        }
+
+        /**
+         * {@link GL30C#glMapBufferRange(int, long, long, int) glMapBufferRange} the buffer at the index.
+         *
+         * @param index  the index of the buffer
+         * @param offset the starting offset within the buffer of the range to be mapped
+         * @param length the length of the range to be mapped
+         * @param access a combination of access flags indicating the desired access to the range
+         * @return the mapped range of the buffer
+         * @since 0.2.0
+         */
+        public ByteBuffer mapRange(int index, long offset, long length, int access) {
+            return get(index).mapRange(offset, length, access);
+        }
+
         @Override
         public boolean unmap() {
             return unmap(0);
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import static org.lwjgl.opengl.GL30C.*;
+
+/**
+ * The backend that {@link GLRenderQueue} replays the commands into.
+ * <p>
+ * The {@link #DEFAULT default backend} routes the binds through {@link GLStateMgr}
+ * and issues the draws to the current context. A custom backend can record the
+ * calls, so the sorting and replaying are testable without a context.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public interface IGLDrawBackend {
+    /**
+     * The backend with the current context.
+     */
+    IGLDrawBackend DEFAULT = new IGLDrawBackend() {
+        @Override
+        public void useProgram(int program) {
+            GLStateMgr.useProgram(program);
+        }
+
+        @Override
+        public void bindTexture2D(int unit, int texture) {
+            GLStateMgr.bindTexture2D(unit, texture);
+        }
+
+        @Override
+        public void bindVertexArray(int vao) {
+            GLStateMgr.bindVertexArray(vao);
+        }
+
+        @Override
+        public void drawArrays(int mode, int first, int count) {
+            glDrawArrays(mode, first, count);
+        }
+
+        @Override
+        public void drawElements(int mode, int count, int type, long indices) {
+            glDrawElements(mode, count, type, indices);
+        }
+    };
+
+    /**
+     * Uses a program.
+     *
+     * @param program the program id
+     */
+    void useProgram(int program);
+
+    /**
+     * Binds a 2D texture to the texture unit.
+     *
+     * @param unit    the texture unit
+     * @param texture the texture id
+     */
+    void bindTexture2D(int unit, int texture);
+
+    /**
+     * Binds a vertex array.
+     *
+     * @param vao the vertex array id
+     */
+    void bindVertexArray(int vao);
+
+    /**
+     * Draws the arrays.
+     *
+     * @param mode  the GL draw mode
+     * @param first the first vertex
+     * @param count the vertex count
+     */
+    void drawArrays(int mode, int first, int count);
+
+    /**
+     * Draws the elements.
+     *
+     * @param mode    the GL draw mode
+     * @param count   the index count
+     * @param type    the GL index type
+     * @param indices the byte offset in the index buffer
+     */
+    void drawElements(int mode, int count, int type, long indices);
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl;
+
+import static org.lwjgl.opengl.GL32C.*;
+
+/**
+ * The source of the GPU fences.
+ * <p>
+ * The fence handles are opaque to the users; {@link #DEFAULT} uses GL sync objects.
+ * Users can provide another source to drive the fence-based logic without a GL context.
+ * </p>
+ *
+ * @author squid233
+ * @see GLRingAllocator
+ * @since 0.2.0
+ */
+public interface IGLFenceSource {
+    /**
+     * The fence source using {@link org.lwjgl.opengl.GL32C#glFenceSync(int, int) glFenceSync}.
+     */
+    IGLFenceSource DEFAULT = new IGLFenceSource() {
+        @Override
+        public long fence() {
+            return glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        }
+
+        @Override
+        public boolean isSignaled(long fence) {
+            final int result = glClientWaitSync(fence, 0, 0L);
+            return result == GL_ALREADY_SIGNALED || result == GL_CONDITION_SATISFIED;
+        }
+
+        @Override
+        public void await(long fence) {
+            int result;
+            do {
+                result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000L);
+            } while (result == GL_TIMEOUT_EXPIRED);
+        }
+
+        @Override
+        public void delete(long fence) {
+            glDeleteSync(fence);
+        }
+    };
+
+    /**
+     * Insert a fence after the submitted commands.
+     *
+     * @return the fence handle
+     */
+    long fence();
+
+    /**
+     * Check if the fence is signaled without blocking.
+     *
+     * @param fence the fence handle
+     * @return {@code true} if the commands before the fence are completed
+     */
+    boolean isSignaled(long fence);
+
+    /**
+     * Block until the fence is signaled.
+     *
+     * @param fence the fence handle
+     */
+    void await(long fence);
+
+    /**
+     * Delete the fence.
+     *
+     * @param fence the fence handle
+     */
+    void delete(long fence);
+}
@@ -25,9 +25,7 @@
 package org.overrun.swgl.core.gl.ims;
 
 import org.joml.*;
-import org.overrun.swgl.core.gl.GLBatch;
-import org.overrun.swgl.core.gl.GLDrawMode;
-import org.overrun.swgl.core.gl.GLProgram;
+import org.overrun.swgl.core.gl.*;
 import org.overrun.swgl.core.gl.shader.GLShaders;
 import org.overrun.swgl.core.model.VertexLayout;
 
@@ -53,10 +51,14 @@ import static org.overrun.swgl.core.model.VertexFormat.*;
 public class GLImmeMode {
     public static int imsVertexCount = 50000;
     private static GLProgram pipeline;
+    private static int sampler2DEnabledSlot,
+        projectionMatSlot, viewMatSlot, modelMatSlot,
+        hasAlphaTestSlot, hasLightingSlot, lightModelAmbientSlot;
     private static GLDrawMode drawMode;
     static GLBatch batch; /* Package private, for GLLists */
-    private static int prevVtc = 0, prevIxc = 0;
     private static int vao = 0, vbo = 0, ebo = 0;
+    private static GLStreamBuffer vertexStream, indexStream;
+    private static long lastFrame;
     private static VertexLayout layout;
 
     ///////////////////////////////////////////////////////////////////////////
@@ -140,7 +142,8 @@ public class GLImmeMode {
             T2F,
             N3B
         );
-        batch = new GLBatch();
+        batch = new GLBatch(true, true);
+        lastFrame = GLStateMgr.getFrameCount();
         pipeline = new GLProgram(layout);
         // Vertex shader
         var vertSrc =
@@ -194,11 +197,13 @@ public class GLImmeMode {
             fragSrc);
         pipeline.bind();
         pipeline.createUniform("textureSampler", I1);
-        pipeline.createUniform("sampler2D_enabled", I1);
-        pipeline.createUniform("projectionMat", M4F);
-        pipeline.createUniform("viewMat", M4F);
-        pipeline.createUniform("modelMat", M4F);
-        pipeline.createUniform("HasAlphaTest", I1).set(alphaTest);
+        sampler2DEnabledSlot = pipeline.createUniform("sampler2D_enabled", I1).getSlot();
+        projectionMatSlot = pipeline.createUniform("projectionMat", M4F).getSlot();
+        viewMatSlot = pipeline.createUniform("viewMat", M4F).getSlot();
+        modelMatSlot = pipeline.createUniform("modelMat", M4F).getSlot();
+        var hasAlphaTest = pipeline.createUniform("HasAlphaTest", I1);
+        hasAlphaTest.set(alphaTest);
+        hasAlphaTestSlot = hasAlphaTest.getSlot();
         setLightUniform(true);
         pipeline.updateUniforms();
         pipeline.unbind();
@@ -206,14 +211,18 @@ public class GLImmeMode {
 
     private static void setLightUniform(boolean prep) {
         if (prep) {
-            pipeline.createUniform("HasLighting", I1).set(lighting);
-            pipeline.createUniform("lightModelAmbient", F4).set(lightModelAmbient);
+            var hasLighting = pipeline.createUniform("HasLighting", I1);
+            var ambient = pipeline.createUniform("lightModelAmbient", F4);
+            hasLighting.set(lighting);
+            ambient.set(lightModelAmbient);
+            hasLightingSlot = hasLighting.getSlot();
+            lightModelAmbientSlot = ambient.getSlot();
             return;
         }
-        pipeline.getUniform("HasLighting").set(lighting);
+        pipeline.getUniform(hasLightingSlot).set(lighting);
         if (!lighting)
             return;
-        pipeline.getUniform("lightModelAmbient").set(lightModelAmbient);
+        pipeline.getUniform(lightModelAmbientSlot).set(lightModelAmbient);
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -277,6 +286,7 @@ public class GLImmeMode {
     ///////////////////////////////////////////////////////////////////////////
 
     public static void lglBegin(GLDrawMode mode) {
+        checkFrame();
         drawMode = mode;
         batch.begin(layout, imsVertexCount);
     }
@@ -346,11 +356,8 @@ public class GLImmeMode {
     }
 
     public static void lglEmit() {
+        // The quads are drawn with GLQuadIndexBuffer
         batch.emit();
-        if (drawMode == GLDrawMode.QUADS
-            && (batch.getVertexCount() & 3) == 0) {
-            lglIndices0(false, 0, 1, 2, 2, 3, 0);
-        }
     }
 
     public static void lglEnd() {
@@ -362,27 +369,28 @@ public class GLImmeMode {
 
     private static void prepareDraw() {
         pipeline.bind();
-        pipeline.getUniform("projectionMat").set(projectionMat);
-        pipeline.getUniform("viewMat").set(viewMat);
-        pipeline.getUniform("modelMat").set(modelMat);
-        pipeline.getUniform("HasAlphaTest").set(alphaTest);
+        pipeline.getUniform(projectionMatSlot).set(projectionMat);
+        pipeline.getUniform(viewMatSlot).set(viewMat);
+        pipeline.getUniform(modelMatSlot).set(modelMat);
+        pipeline.getUniform(hasAlphaTestSlot).set(alphaTest);
         setLightUniform(false);
-        pipeline.getUniform("sampler2D_enabled").set(texCoordArrayState && isTexture2dEnabled(0));
+        pipeline.getUniform(sampler2DEnabledSlot).set(texCoordArrayState && isTexture2dEnabled(0));
         pipeline.updateUniforms();
 
         if (vao == 0)
             vao = glGenVertexArrays();
-        glBindVertexArray(vao);
+        GLStateMgr.bindVertexArray(vao);
     }
 
     private static void postDraw() {
-        glBindVertexArray(0);
+        GLStateMgr.bindVertexArray(0);
 
         pipeline.unbind();
     }
 
     private static void prepareVA(final VertexLayout layout,
-                                  final int stride) {
+                                  final int stride,
+                                  final long base) {
         if (vertexArrayState) {
             if (layout.hasPosition())
                 glVertexAttribPointer(0,
@@ -390,7 +398,7 @@ public class GLImmeMode {
                     GL_FLOAT,
                     false,
                     stride,
-                    layout.getOffset(V3F));
+                    base + layout.getOffset(V3F));
             glEnableVertexAttribArray(0);
         } else glDisableVertexAttribArray(0);
         if (colorArrayState) {
@@ -400,7 +408,7 @@ public class GLImmeMode {
                     GL_UNSIGNED_BYTE,
                     true,
                     stride,
-                    layout.getOffset(C4UB));
+                    base + layout.getOffset(C4UB));
             glEnableVertexAttribArray(1);
         } else glDisableVertexAttribArray(1);
         if (texCoordArrayState) {
@@ -410,7 +418,7 @@ public class GLImmeMode {
                     GL_FLOAT,
                     false,
                     stride,
-                    layout.getOffset(T2F));
+                    base + layout.getOffset(T2F));
             glEnableVertexAttribArray(2);
         } else glDisableVertexAttribArray(2);
         if (normalArrayState) {
@@ -420,12 +428,17 @@ public class GLImmeMode {
                     GL_BYTE,
                     true,
                     stride,
-                    layout.getOffset(N3B));
+                    base + layout.getOffset(N3B));
             glEnableVertexAttribArray(3);
         } else glDisableVertexAttribArray(3);
 
     }
 
+    private static void prepareVA(final VertexLayout layout,
+                                  final int stride) {
+        prepareVA(layout, stride, 0L);
+    }
+
     private static void prepareVA(final int stride) {
         prepareVA(lglGetLayout(), stride);
     }
@@ -439,42 +452,70 @@ public class GLImmeMode {
 
         int vtc = batch.getVertexCount();
         final int ic = lglGetIndexCount();
+        if (vtc <= 0) {
+            postDraw();
+            drawMode = null;
+            return;
+        }
 
-        if (vbo == 0)
-            vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (vertexStream == null)
+            vertexStream = new GLStreamBuffer(GL_ARRAY_BUFFER, (long) imsVertexCount * lglGetByteStride());
         var buffer = batch.getBuffer();
-        if (vtc > prevVtc)
+        final long vtOffset;
+        if (vertexStream.fits(buffer.remaining())) {
+            // The previous draw calls are submitted; fence them if the ring is used up
+            if (!vertexStream.canAppend(buffer.remaining(), Float.BYTES))
+                vertexStream.commit();
+            vtOffset = vertexStream.append(buffer, Float.BYTES);
+            vertexStream.getBuffer().bind();
+        } else {
+            // Too large for the ring; upload it separately
+            if (vbo == 0)
+                vbo = glGenBuffers();
+            GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, vbo);
             glBufferData(GL_ARRAY_BUFFER, buffer, GL_STREAM_DRAW);
-        else
-            glBufferSubData(GL_ARRAY_BUFFER, 0L, buffer);
+            vtOffset = 0L;
+        }
 
-        prepareVA();
+        prepareVA(lglGetLayout(), lglGetByteStride(), vtOffset);
 
         if (ic > 0) {
-            if (ebo == 0)
-                ebo = glGenBuffers();
-            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-            var ib = batch.getIndexBuffer().orElseThrow();
-            if (ic > prevIxc) {
-                glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib, GL_STREAM_DRAW);
+            if (indexStream == null)
+                indexStream = new GLStreamBuffer(GL_ELEMENT_ARRAY_BUFFER, (long) imsVertexCount * 6L);
+            var ib = batch.getCompactIndexBuffer();
+            var indexType = batch.getIndexType();
+            final long ixOffset;
+            if (indexStream.fits(ib.remaining())) {
+                if (!indexStream.canAppend(ib.remaining(), indexType.getBytes()))
+                    indexStream.commit();
+                ixOffset = indexStream.append(ib, indexType.getBytes());
+                indexStream.getBuffer().bind();
             } else {
-                glBufferSubData(GL_ELEMENT_ARRAY_BUFFER, 0L, ib);
+                if (ebo == 0)
+                    ebo = glGenBuffers();
+                GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+                glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib, GL_STREAM_DRAW);
+                ixOffset = 0L;
             }
-            glDrawElements(drawMode.getGlType(), ic, GL_UNSIGNED_INT, 0L);
+            glDrawElements(drawMode.getGlType(), ic, indexType.getDataType(), ixOffset);
+        } else if (drawMode == GLDrawMode.QUADS) {
+            drawQuads(vtc);
         } else {
-            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+            GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
             glDrawArrays(drawMode.getGlType(), 0, lglGetVertexCount());
         }
 
-        prevVtc = vtc;
-        prevIxc = ic;
-
         postDraw();
 
         drawMode = null;
     }
 
+    private static void drawQuads(int vertexCount) {
+        final int quads = vertexCount / 4;
+        var type = GLQuadIndexBuffer.bind(quads);
+        glDrawElements(GL_TRIANGLES, GLQuadIndexBuffer.indexCount(quads), type.getDataType(), 0L);
+    }
+
     public static void lglDrawBuffers(GLDrawMode mode,
                                       int vertexCount, int indexCount,
                                       int vbo, int ebo) {
@@ -493,25 +534,53 @@ public class GLImmeMode {
                                       int vbo, int ebo,
                                       VertexLayout layout,
                                       int stride) {
+        lglDrawBuffers(mode, vertexCount, indexCount, vbo, ebo, layout, stride, GLDataType.UNSIGNED_INT);
+    }
+
+    public static void lglDrawBuffers(GLDrawMode mode,
+                                      int vertexCount, int indexCount,
+                                      int vbo, int ebo,
+                                      VertexLayout layout,
+                                      int stride,
+                                      GLDataType indexType) {
         prepareDraw();
 
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, vbo);
 
         if (layout != null) prepareVA(layout, stride < 0 ? lglGetByteStride() : stride);
         else if (stride > 0) prepareVA(stride);
         else prepareVA();
 
         if (indexCount > 0) {
-            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-            glDrawElements(mode.getGlType(), indexCount, GL_UNSIGNED_INT, 0L);
+            GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+            glDrawElements(mode.getGlType(), indexCount, indexType.getDataType(), 0L);
+        } else if (mode == GLDrawMode.QUADS && vertexCount > 0) {
+            drawQuads(vertexCount);
         } else if (vertexCount > 0) {
-            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+            GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
             glDrawArrays(mode.getGlType(), 0, vertexCount);
         }
 
         postDraw();
     }
 
+    /**
+     * Fence the streamed vertices and indices of the last frame, and end the frame of the
+     * {@link GLBatch#newFrame() batch}, once {@link GLStateMgr#newFrame()} has rolled
+     * over since the last call.
+     */
+    private static void checkFrame() {
+        final long frame = GLStateMgr.getFrameCount();
+        if (frame == lastFrame)
+            return;
+        lastFrame = frame;
+        batch.newFrame();
+        if (vertexStream != null)
+            vertexStream.commit();
+        if (indexStream != null)
+            indexStream.commit();
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // End
     ///////////////////////////////////////////////////////////////////////////
@@ -523,12 +592,27 @@ public class GLImmeMode {
      */
     public static void lglDestroyContext() {
         pipeline.close();
-        if (glIsVertexArray(vao))
+        if (glIsVertexArray(vao)) {
+            GLStateMgr.onVertexArrayDeleted(vao);
             glDeleteVertexArrays(vao);
-        if (glIsBuffer(vbo))
+        }
+        if (glIsBuffer(vbo)) {
+            GLStateMgr.onBufferDeleted(vbo);
             glDeleteBuffers(vbo);
-        if (glIsBuffer(ebo))
+        }
+        if (glIsBuffer(ebo)) {
+            GLStateMgr.onBufferDeleted(ebo);
             glDeleteBuffers(ebo);
+        }
+        if (vertexStream != null) {
+            vertexStream.close();
+            vertexStream = null;
+        }
+        if (indexStream != null) {
+            indexStream.close();
+            indexStream = null;
+        }
+        GLQuadIndexBuffer.destroy();
         batch.close();
         batch = null;
     }
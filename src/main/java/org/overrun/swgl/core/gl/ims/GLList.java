@@ -24,7 +24,9 @@
 
 package org.overrun.swgl.core.gl.ims;
 
+import org.overrun.swgl.core.gl.GLDataType;
 import org.overrun.swgl.core.gl.GLDrawMode;
+import org.overrun.swgl.core.gl.GLStateMgr;
 
 import static org.lwjgl.opengl.GL15C.glDeleteBuffers;
 import static org.lwjgl.opengl.GL15C.glIsBuffer;
@@ -41,6 +43,7 @@ public class GLList implements AutoCloseable {
     GLDrawMode drawMode;
     int vertexCount;
     int indexCount;
+    GLDataType indexType = GLDataType.UNSIGNED_INT;
     int vbo, ebo;
 
     public GLList(int id) {
@@ -63,6 +66,16 @@ public class GLList implements AutoCloseable {
         return indexCount;
     }
 
+    /**
+     * Get the index type.
+     *
+     * @return the index type
+     * @since 0.2.0
+     */
+    public GLDataType getIndexType() {
+        return indexType;
+    }
+
     public int getVbo() {
         return vbo;
     }
@@ -74,10 +87,12 @@ public class GLList implements AutoCloseable {
     @Override
     public void close() {
         if (glIsBuffer(vbo)) {
+            GLStateMgr.onBufferDeleted(vbo);
             glDeleteBuffers(vbo);
             vbo = 0;
         }
         if (glIsBuffer(ebo)) {
+            GLStateMgr.onBufferDeleted(ebo);
             glDeleteBuffers(ebo);
             ebo = 0;
         }
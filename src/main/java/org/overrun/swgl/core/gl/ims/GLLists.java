@@ -25,6 +25,7 @@
 package org.overrun.swgl.core.gl.ims;
 
 import org.overrun.swgl.core.cfg.GlobalConfig;
+import org.overrun.swgl.core.gl.GLStateMgr;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -37,6 +38,7 @@ import static org.overrun.swgl.core.gl.ims.GLImmeMode.*;
 /**
  * @author squid233
  * @since 0.1.0
+ * @deprecated Use {@link org.overrun.swgl.core.gl.GLMeshCache GLMeshCache}.
  */
 @Deprecated(since = "0.2.0", forRemoval = true)
 public class GLLists {
@@ -82,30 +84,20 @@ public class GLLists {
         currentList.close();
         if (currentList.vbo <= 0)
             currentList.vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, currentList.vbo);
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, currentList.vbo);
         var buffer = batch.getBuffer();
-        var bb = memCalloc(buffer.limit());
-        for (int i = 0; bb.hasRemaining(); i++) {
-            bb.put(buffer.get(i));
-        }
-        glBufferData(GL_ARRAY_BUFFER, bb.flip(), GL_STATIC_DRAW);
-        memFree(bb);
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        nglBufferData(GL_ARRAY_BUFFER, buffer.limit(), memAddress0(buffer), GL_STATIC_DRAW);
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, 0);
 
         if (currentList.ebo <= 0)
             currentList.ebo = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, currentList.ebo);
-        final var opt = batch.getIndexBuffer();
-        if (opt.isPresent()) {
-            var indicesBuffer = opt.get();
-            var ib = memCallocInt(indicesBuffer.limit());
-            for (int i = 0; ib.hasRemaining(); i++) {
-                ib.put(indicesBuffer.get(i));
-            }
-            glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib.flip(), GL_STATIC_DRAW);
-            memFree(ib);
+        GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, currentList.ebo);
+        final var ib = batch.getCompactIndexBuffer();
+        if (ib != null) {
+            currentList.indexType = batch.getIndexType();
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib, GL_STATIC_DRAW);
         }
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+        GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
 
         currentList = null;
         lglSetRendering(true);
@@ -117,7 +109,7 @@ public class GLLists {
         var lst = LIST_MAP.get(list);
         if (lst.vbo <= 0)
             return;
-        lglDrawBuffers(lst.drawMode, lst.vertexCount, lst.indexCount, lst.vbo, lst.ebo);
+        lglDrawBuffers(lst.drawMode, lst.vertexCount, lst.indexCount, lst.vbo, lst.ebo, null, 0, lst.indexType);
     }
 
     public static void lglDeleteLists(int list, int range) {
@@ -0,0 +1,350 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl.shader;
+
+import org.overrun.swgl.core.gl.GLProgram;
+import org.overrun.swgl.core.util.Pair;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static org.overrun.swgl.core.cfg.GlobalConfig.getDebugLogger;
+
+/**
+ * The on-disk cache of the linked program binaries.
+ * <p>
+ * The entries are keyed by a SHA-256 hash of the driver id, the shader types and the sources.
+ * When the driver id changes, such as after a driver update, all entries are dropped on opening.
+ * A corrupted or rejected entry is deleted, and the program falls back to the sources.
+ * </p>
+ * <p>
+ * Set the cache with {@link GLShaders#setProgramBinaryCache(GLProgramBinaryCache)} to opt in.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLProgramBinaryCache {
+    private static final int MAGIC = 0x53575042;
+    private static final int VERSION = 1;
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final String DRIVER_FILE = "driver.id";
+    private final Path directory;
+    private final IGLProgramBinaryDriver driver;
+    private final Set<String> index = new HashSet<>();
+    private String driverId;
+    private boolean opened = false, supported = false;
+    private int hits = 0, misses = 0, invalidations = 0, writes = 0;
+
+    /**
+     * Create the cache. The directory is opened on the first use.
+     *
+     * @param directory the cache directory
+     * @param driver    the driver binding
+     */
+    public GLProgramBinaryCache(Path directory, IGLProgramBinaryDriver driver) {
+        this.directory = directory;
+        this.driver = driver;
+    }
+
+    /**
+     * Create the cache with the GL driver binding.
+     *
+     * @param directory the cache directory
+     */
+    public GLProgramBinaryCache(Path directory) {
+        this(directory, IGLProgramBinaryDriver.DEFAULT);
+    }
+
+    /**
+     * Computes the key of the program without attribute bindings.
+     *
+     * @param driverId the driver id
+     * @param pairs    the shader types and the sources
+     * @return the hex string of the hash
+     */
+    @SafeVarargs
+    public static String computeKey(String driverId, Pair<GLShaderType, CharSequence>... pairs) {
+        return computeKey(driverId, Map.of(), pairs);
+    }
+
+    /**
+     * Computes the key of the program. The attribute bindings are a part of the key,
+     * since they are linked into the binary.
+     *
+     * @param driverId       the driver id
+     * @param attribBindings the attribute locations bound before linking
+     * @param pairs          the shader types and the sources
+     * @return the hex string of the hash
+     */
+    @SafeVarargs
+    public static String computeKey(String driverId,
+                                    Map<String, Integer> attribBindings,
+                                    Pair<GLShaderType, CharSequence>... pairs) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, driverId);
+        for (var pair : pairs) {
+            update(digest, pair.left().name());
+            update(digest, pair.right().toString());
+        }
+        // sorted, so the key doesn't depend on the binding order
+        for (var e : new TreeMap<>(attribBindings).entrySet()) {
+            update(digest, e.getKey());
+            update(digest, e.getValue().toString());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        var bytes = s.getBytes(StandardCharsets.UTF_8);
+        // length-prefixed, so the boundaries of the strings are part of the hash
+        final int len = bytes.length;
+        digest.update(new byte[]{(byte) (len >>> 24), (byte) (len >>> 16), (byte) (len >>> 8), (byte) len});
+        digest.update(bytes);
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private void open() {
+        if (opened)
+            return;
+        opened = true;
+        supported = driver.isSupported();
+        if (!supported)
+            return;
+        driverId = driver.driverId();
+        try {
+            Files.createDirectories(directory);
+            var driverFile = directory.resolve(DRIVER_FILE);
+            boolean sameDriver = Files.isRegularFile(driverFile)
+                                 && driverId.equals(Files.readString(driverFile, StandardCharsets.UTF_8));
+            try (var stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+                for (var path : stream) {
+                    var name = path.getFileName().toString();
+                    if (sameDriver) {
+                        index.add(name.substring(0, name.length() - ENTRY_SUFFIX.length()));
+                    } else {
+                        Files.deleteIfExists(path);
+                        ++invalidations;
+                    }
+                }
+            }
+            if (!sameDriver) {
+                Files.writeString(driverFile, driverId, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            getDebugLogger().error("Failed to open the program binary cache " + directory, e);
+            supported = false;
+        }
+    }
+
+    /**
+     * Check if the cache can be used with the driver.
+     *
+     * @return is enabled
+     */
+    public boolean isEnabled() {
+        open();
+        return supported;
+    }
+
+    /**
+     * Computes the key of the program with the driver id, without attribute bindings.
+     *
+     * @param pairs the shader types and the sources
+     * @return the key
+     */
+    @SafeVarargs
+    public final String key(Pair<GLShaderType, CharSequence>... pairs) {
+        open();
+        return computeKey(driverId, pairs);
+    }
+
+    /**
+     * Computes the key of the program with the driver id and the
+     * {@link GLProgram#getAttribBindings() attribute bindings} of the program.
+     *
+     * @param program the program to link
+     * @param pairs   the shader types and the sources
+     * @return the key
+     */
+    @SafeVarargs
+    public final String key(GLProgram program, Pair<GLShaderType, CharSequence>... pairs) {
+        open();
+        return computeKey(driverId, program.getAttribBindings(), pairs);
+    }
+
+    /**
+     * Check if the cache has the entry.
+     *
+     * @param key the key
+     * @return has the entry
+     */
+    public boolean contains(String key) {
+        open();
+        return index.contains(key);
+    }
+
+    /**
+     * Loads the cached binary into the program.
+     *
+     * @param program the program id
+     * @param key     the key
+     * @return {@code true} if the program is linked from the binary;
+     * {@code false} if the program must be linked from the sources
+     */
+    public boolean load(int program, String key) {
+        if (!isEnabled() || !index.contains(key)) {
+            ++misses;
+            return false;
+        }
+        IGLProgramBinaryDriver.Binary binary;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryPath(key))))) {
+            if (in.readInt() != MAGIC
+                || in.readInt() != VERSION
+                || !driverId.equals(in.readUTF())) {
+                binary = null;
+            } else {
+                final int format = in.readInt();
+                var data = new byte[in.readInt()];
+                in.readFully(data);
+                binary = new IGLProgramBinaryDriver.Binary(format, data);
+            }
+        } catch (IOException e) {
+            binary = null;
+        }
+        if (binary == null || !driver.loadBinary(program, binary)) {
+            invalidate(key);
+            ++misses;
+            return false;
+        }
+        ++hits;
+        return true;
+    }
+
+    /**
+     * Called before linking the program from the sources.
+     *
+     * @param program the program id
+     */
+    public void prepareLink(int program) {
+        if (isEnabled()) {
+            driver.prepareLink(program);
+        }
+    }
+
+    /**
+     * Stores the binary of the linked program.
+     *
+     * @param program the program id
+     * @param key     the key
+     */
+    public void store(int program, String key) {
+        if (!isEnabled())
+            return;
+        var binary = driver.getBinary(program);
+        if (binary == null)
+            return;
+        var path = entryPath(key);
+        var temp = directory.resolve(key + ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(driverId);
+                out.writeInt(binary.format());
+                out.writeInt(binary.data().length);
+                out.write(binary.data());
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            index.add(key);
+            ++writes;
+        } catch (IOException e) {
+            getDebugLogger().error("Failed to write the program binary " + path, e);
+        }
+    }
+
+    /**
+     * Deletes the entry.
+     *
+     * @param key the key
+     */
+    public void invalidate(String key) {
+        open();
+        if (index.remove(key)) {
+            ++invalidations;
+        }
+        try {
+            Files.deleteIfExists(entryPath(key));
+        } catch (IOException e) {
+            getDebugLogger().error("Failed to delete the program binary " + key, e);
+        }
+    }
+
+    /**
+     * Deletes all entries.
+     */
+    public void invalidateAll() {
+        open();
+        for (var key : Set.copyOf(index)) {
+            invalidate(key);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public int getInvalidations() {
+        return invalidations;
+    }
+
+    public int getWrites() {
+        return writes;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl.shader;
+
+import org.lwjgl.opengl.ARBParallelShaderCompile;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.KHRParallelShaderCompile;
+import org.overrun.swgl.core.gl.GLProgram;
+import org.overrun.swgl.core.util.IntArrayList;
+import org.overrun.swgl.core.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.lwjgl.opengl.GL20C.*;
+import static org.lwjgl.opengl.KHRParallelShaderCompile.GL_COMPLETION_STATUS_KHR;
+
+/**
+ * The queue compiling and linking the programs without waiting for the driver.
+ * <p>
+ * The programs are submitted up front, and {@link #poll()} checks the completion once per frame.
+ * With {@code KHR_parallel_shader_compile} (or the ARB variant) the driver compiles them in the
+ * background threads, and the status is queried only after the completion, so the queries never block.
+ * Without the extension, at most {@link #setMaxBlockingPerPoll(int) maxBlockingPerPoll} programs
+ * are finished per poll.
+ * </p>
+ * <p>
+ * Until a program is ready, {@link Task#get()} returns the placeholder program.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class GLShaderCompileQueue {
+    private final GLProgram placeholder;
+    private final List<Task> pending = new ArrayList<>();
+    private final boolean parallel;
+    private int maxBlockingPerPoll = 1;
+
+    /**
+     * The submitted program.
+     *
+     * @author squid233
+     * @since 0.2.0
+     */
+    public final class Task {
+        private final GLProgram program;
+        private final GLShaderType[] types;
+        private final IntArrayList shaders;
+        private final GLProgramBinaryCache cache;
+        private final String cacheKey;
+        private final CompletableFuture<GLProgram> future = new CompletableFuture<>();
+
+        private Task(GLProgram program,
+                     GLShaderType[] types,
+                     IntArrayList shaders,
+                     GLProgramBinaryCache cache,
+                     String cacheKey) {
+            this.program = program;
+            this.types = types;
+            this.shaders = shaders;
+            this.cache = cache;
+            this.cacheKey = cacheKey;
+        }
+
+        /**
+         * Gets the program if it is linked successfully; otherwise the placeholder.
+         *
+         * @return the program to use
+         */
+        public GLProgram get() {
+            return isReady() ? program : placeholder;
+        }
+
+        /**
+         * Gets the submitted program, which may be still compiling.
+         *
+         * @return the program
+         */
+        public GLProgram getProgram() {
+            return program;
+        }
+
+        /**
+         * Check if the program is linked successfully.
+         *
+         * @return is ready
+         */
+        public boolean isReady() {
+            return future.isDone() && !future.isCompletedExceptionally();
+        }
+
+        /**
+         * Check if the compilation is finished, successfully or not.
+         *
+         * @return is done
+         */
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        /**
+         * Gets the future completed after linking.
+         * The future is completed exceptionally if the compilation or the linking failed.
+         *
+         * @return the future
+         */
+        public CompletableFuture<GLProgram> future() {
+            return future;
+        }
+
+        private boolean isCompleted() {
+            return !parallel || glGetProgrami(program.getId(), GL_COMPLETION_STATUS_KHR) == GL_TRUE;
+        }
+
+        private void finish() {
+            final int id = program.getId();
+            final boolean linked = glGetProgrami(id, GL_LINK_STATUS) == GL_TRUE;
+            String error = null;
+            if (!linked) {
+                for (int i = 0; i < shaders.size(); i++) {
+                    int shader = shaders.get(i);
+                    if (glGetShaderi(shader, GL_COMPILE_STATUS) != GL_TRUE) {
+                        error = "Failed to compile the " + types[i] + ". " + glGetShaderInfoLog(shader);
+                        break;
+                    }
+                }
+                if (error == null) {
+                    error = "Failed to link the program " + id + ". " + program.getInfoLog();
+                }
+            }
+            for (int i = 0; i < shaders.size(); i++) {
+                int shader = shaders.get(i);
+                glDetachShader(id, shader);
+                glDeleteShader(shader);
+            }
+            if (linked) {
+                if (cacheKey != null) {
+                    cache.store(id, cacheKey);
+                }
+                future.complete(program);
+            } else {
+                future.completeExceptionally(new RuntimeException(error));
+            }
+        }
+    }
+
+    /**
+     * Create the queue.
+     *
+     * @param placeholder the program used until the submitted programs are ready
+     */
+    public GLShaderCompileQueue(GLProgram placeholder) {
+        this.placeholder = placeholder;
+        var caps = GL.getCapabilities();
+        if (caps.GL_KHR_parallel_shader_compile) {
+            parallel = true;
+            KHRParallelShaderCompile.glMaxShaderCompilerThreadsKHR(0xFFFFFFFF);
+        } else if (caps.GL_ARB_parallel_shader_compile) {
+            parallel = true;
+            ARBParallelShaderCompile.glMaxShaderCompilerThreadsARB(0xFFFFFFFF);
+        } else {
+            parallel = false;
+        }
+    }
+
+    /**
+     * Submits the program. The shaders are compiled and the program is linked
+     * without querying the status.
+     * <p>
+     * If the program is in the {@link GLShaders#getProgramBinaryCache() program binary cache},
+     * it is loaded immediately.
+     * </p>
+     *
+     * @param program the program
+     * @param pairs   the shader types and the sources
+     * @return the task
+     */
+    @SafeVarargs
+    public final Task submit(GLProgram program, Pair<GLShaderType, CharSequence>... pairs) {
+        final int id = program.getId();
+        final var cache = GLShaders.getProgramBinaryCache();
+        String key = null;
+        if (cache != null && cache.isEnabled()) {
+            key = cache.key(program, pairs);
+            if (cache.load(id, key)) {
+                var task = new Task(program, new GLShaderType[0], new IntArrayList(0), null, null);
+                task.future.complete(program);
+                return task;
+            }
+            cache.prepareLink(id);
+        }
+        var types = new GLShaderType[pairs.length];
+        var shaders = new IntArrayList(pairs.length);
+        for (int i = 0; i < pairs.length; i++) {
+            var pair = pairs[i];
+            types[i] = pair.left();
+            int shader = glCreateShader(pair.left().getType());
+            glShaderSource(shader, pair.right());
+            glCompileShader(shader);
+            glAttachShader(id, shader);
+            shaders.add(shader);
+        }
+        glLinkProgram(id);
+        var task = new Task(program, types, shaders, cache, key);
+        pending.add(task);
+        return task;
+    }
+
+    /**
+     * Finishes the completed programs. Call this once per frame.
+     *
+     * @return the count of the finished programs
+     */
+    public int poll() {
+        int finished = 0;
+        for (int i = 0; i < pending.size(); ) {
+            var task = pending.get(i);
+            if ((parallel || finished < maxBlockingPerPoll) && task.isCompleted()) {
+                pending.remove(i);
+                task.finish();
+                ++finished;
+            } else if (!parallel) {
+                break;
+            } else {
+                ++i;
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Finishes all programs, blocking until the driver completes them.
+     */
+    public void finishAll() {
+        for (var task : pending) {
+            task.finish();
+        }
+        pending.clear();
+    }
+
+    /**
+     * Sets the max count of the programs finished per poll without the parallel compile extension.
+     *
+     * @param maxBlockingPerPoll the max count
+     */
+    public void setMaxBlockingPerPoll(int maxBlockingPerPoll) {
+        this.maxBlockingPerPoll = maxBlockingPerPoll;
+    }
+
+    /**
+     * Check if the driver compiles in parallel.
+     *
+     * @return is parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public GLProgram getPlaceholder() {
+        return placeholder;
+    }
+}
@@ -27,10 +27,9 @@ package org.overrun.swgl.core.gl.shader;
 import org.overrun.swgl.core.asset.PlainTextAsset;
 import org.overrun.swgl.core.gl.GLProgram;
 import org.overrun.swgl.core.io.IFileProvider;
+import org.overrun.swgl.core.util.IntArrayList;
 import org.overrun.swgl.core.util.Pair;
 
-import java.util.ArrayList;
-
 import static org.lwjgl.opengl.GL20C.*;
 
 /**
@@ -38,6 +37,28 @@ import static org.lwjgl.opengl.GL20C.*;
  * @since 0.1.0
  */
 public class GLShaders {
+    private static GLProgramBinaryCache programBinaryCache;
+
+    /**
+     * Sets the program binary cache used by {@link #linkMapped(GLProgram, Pair[]) linkMapped}.
+     *
+     * @param cache the cache, or {@code null} to disable caching
+     * @since 0.2.0
+     */
+    public static void setProgramBinaryCache(GLProgramBinaryCache cache) {
+        programBinaryCache = cache;
+    }
+
+    /**
+     * Gets the program binary cache.
+     *
+     * @return the cache, or {@code null} if disabled
+     * @since 0.2.0
+     */
+    public static GLProgramBinaryCache getProgramBinaryCache() {
+        return programBinaryCache;
+    }
+
     /**
      * Create and compile a GL shader.
      *
@@ -59,6 +80,11 @@ public class GLShaders {
 
     /**
      * Create shaders with key-values and link the program.
+     * <p>
+     * If the {@link #setProgramBinaryCache(GLProgramBinaryCache) program binary cache} is set,
+     * the program is loaded from the cached binary if present, and the binary is stored
+     * after linking from the sources.
+     * </p>
      *
      * @param program The program.
      * @param pairs   The key-values.
@@ -69,7 +95,15 @@ public class GLShaders {
     public static boolean linkMapped(
         GLProgram program,
         Pair<GLShaderType, CharSequence>... pairs) throws RuntimeException {
-        var shaders = new ArrayList<Integer>();
+        final var cache = programBinaryCache;
+        String key = null;
+        if (cache != null && cache.isEnabled()) {
+            key = cache.key(program, pairs);
+            if (cache.load(program.getId(), key))
+                return true;
+            cache.prepareLink(program.getId());
+        }
+        var shaders = new IntArrayList(pairs.length);
         var pStatus = new boolean[1];
         for (var pair : pairs) {
             var type = pair.left();
@@ -82,10 +116,13 @@ public class GLShaders {
         }
 
         boolean status = program.link();
-        for (var shader : shaders) {
+        for (int i = 0; i < shaders.size(); i++) {
+            int shader = shaders.get(i);
             glDetachShader(program.getId(), shader);
             glDeleteShader(shader);
         }
+        if (status && key != null)
+            cache.store(program.getId(), key);
         return status;
     }
 
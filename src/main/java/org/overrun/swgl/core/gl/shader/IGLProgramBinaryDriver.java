@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.gl.shader;
+
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL41C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The driver binding used by {@link GLProgramBinaryCache}.
+ * <p>
+ * {@link #DEFAULT} calls {@code glGetProgramBinary} and {@code glProgramBinary}.
+ * Users can provide another binding to drive the cache logic without a GL context.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public interface IGLProgramBinaryDriver {
+    /**
+     * The binding using {@link org.lwjgl.opengl.GL41C#glProgramBinary(int, int, ByteBuffer) glProgramBinary}.
+     */
+    IGLProgramBinaryDriver DEFAULT = new IGLProgramBinaryDriver() {
+        @Override
+        public boolean isSupported() {
+            return GL.getCapabilities().glProgramBinary != NULL
+                   && glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+        }
+
+        @Override
+        public String driverId() {
+            return glGetString(GL_VENDOR) + '|' + glGetString(GL_RENDERER) + '|' + glGetString(GL_VERSION);
+        }
+
+        @Override
+        public void prepareLink(int program) {
+            glProgramParameteri(program, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        }
+
+        @Override
+        public @Nullable Binary getBinary(int program) {
+            final int length = glGetProgrami(program, GL_PROGRAM_BINARY_LENGTH);
+            if (length <= 0)
+                return null;
+            var buffer = memAlloc(length);
+            try (var stack = MemoryStack.stackPush()) {
+                var pLength = stack.mallocInt(1);
+                var pFormat = stack.mallocInt(1);
+                glGetProgramBinary(program, pLength, pFormat, buffer);
+                var data = new byte[pLength.get(0)];
+                buffer.get(0, data);
+                return new Binary(pFormat.get(0), data);
+            } finally {
+                memFree(buffer);
+            }
+        }
+
+        @Override
+        public boolean loadBinary(int program, Binary binary) {
+            var buffer = memAlloc(binary.data().length);
+            try {
+                buffer.put(0, binary.data());
+                glProgramBinary(program, binary.format(), buffer);
+                return glGetProgrami(program, GL_LINK_STATUS) == GL_TRUE;
+            } finally {
+                memFree(buffer);
+            }
+        }
+    };
+
+    /**
+     * The program binary.
+     *
+     * @param format the driver binary format
+     * @param data   the binary data
+     * @author squid233
+     * @since 0.2.0
+     */
+    record Binary(int format, byte[] data) {
+    }
+
+    /**
+     * Check if the driver supports the program binaries.
+     *
+     * @return is supported
+     */
+    boolean isSupported();
+
+    /**
+     * Gets the string identifying the driver, such as the vendor, the renderer and the version.
+     * The binaries are incompatible between different drivers.
+     *
+     * @return the driver id
+     */
+    String driverId();
+
+    /**
+     * Called before linking the program from the sources, to make the binary retrievable.
+     *
+     * @param program the program id
+     */
+    void prepareLink(int program);
+
+    /**
+     * Gets the binary of a linked program.
+     *
+     * @param program the program id
+     * @return the binary, or {@code null} if not available
+     */
+    @Nullable Binary getBinary(int program);
+
+    /**
+     * Loads the binary into the program.
+     *
+     * @param program the program id
+     * @param binary  the binary
+     * @return {@code true} if the program is linked successfully
+     */
+    boolean loadBinary(int program, Binary binary);
+}
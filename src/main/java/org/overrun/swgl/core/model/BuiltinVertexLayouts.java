@@ -39,6 +39,7 @@ public class BuiltinVertexLayouts {
     private static VertexLayout t2f_c4ub_v3f, t2f_c3f_v3f;
     private static VertexLayout t2f_n3f_v3f, t2f_n3b_v3f;
     private static VertexLayout t2f_c4f_n3f_v3f, t2f_c4f_n3b_v3f;
+    private static VertexLayout t2us_n4i10_v4h;
 
     public static VertexLayout V2F() {
         if (v2f == null)
@@ -135,4 +136,10 @@ public class BuiltinVertexLayouts {
             t2f_c4f_n3b_v3f = new VertexLayout(T2F, C4F, N3B, V3F);
         return t2f_c4f_n3b_v3f;
     }
+
+    public static VertexLayout T2US_N4I10_V4H() {
+        if (t2us_n4i10_v4h == null)
+            t2us_n4i10_v4h = new VertexLayout(T2US, N4I10, V4H);
+        return t2us_n4i10_v4h;
+    }
 }
@@ -70,6 +70,34 @@ public interface IVertProcessor {
             .putFloat((float) y)
             .putFloat((float) z)
             .putFloat((float) w);
+    /**
+     * The 2 half floats processor.
+     */
+    IVertProcessor HALF2 = (buffer, x, y, z, w) ->
+        buffer.putShort(Quantization.floatToHalf((float) x))
+            .putShort(Quantization.floatToHalf((float) y));
+    /**
+     * The 4 half floats processor.
+     */
+    IVertProcessor HALF4 = (buffer, x, y, z, w) ->
+        buffer.putShort(Quantization.floatToHalf((float) x))
+            .putShort(Quantization.floatToHalf((float) y))
+            .putShort(Quantization.floatToHalf((float) z))
+            .putShort(Quantization.floatToHalf((float) w));
+    /**
+     * The 2 normalized unsigned shorts processor.
+     */
+    IVertProcessor UNORM16X2 = (buffer, x, y, z, w) ->
+        buffer.putShort(Quantization.floatToUnorm16((float) x))
+            .putShort(Quantization.floatToUnorm16((float) y));
+    /**
+     * The packed signed normalized 2_10_10_10 processor.
+     */
+    IVertProcessor SNORM1010102 = (buffer, x, y, z, w) ->
+        buffer.putInt(Quantization.packSnorm1010102((float) x,
+            (float) y,
+            (float) z,
+            w != null ? (float) w : 0.0f));
 
     /**
      * Puts into the buffer with the data.
@@ -0,0 +1,488 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.model;
+
+import org.overrun.swgl.core.gl.GLVertex;
+import org.overrun.swgl.core.util.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The import-time optimizer of indexed triangle meshes.
+ * <p>
+ * The optimizer runs in 3 steps:
+ * <ol>
+ *     <li>{@link #optimizeVertexCache(int[], int) Reorders the triangles} for the
+ *     post-transform vertex cache, with the Tom Forsyth's linear-speed algorithm.</li>
+ *     <li>{@link #optimizeOverdraw(int[], float[], float) Clusters the triangles}
+ *     and sorts the clusters from outside to inside, to reduce the overdraw.
+ *     This step is optional.</li>
+ *     <li>{@link #optimizeVertexFetch(int[], List) Reorders the vertices} in the
+ *     order they are first referenced, for the fetch locality.</li>
+ * </ol>
+ * {@link #analyzeVertexCache(int[], int, int)} simulates a FIFO cache to get
+ * the ACMR (average cache miss ratio), so the gain can be verified without a GPU.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class MeshOptimizer {
+    /**
+     * The default FIFO cache size to be simulated.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+    /**
+     * The default threshold of the overdraw optimizer.
+     * The ACMR of a cluster may be up to 5% worse.
+     */
+    public static final float DEFAULT_OVERDRAW_THRESHOLD = 1.05f;
+    private static final int MAX_CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRI_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    private static final int MAX_VALENCE_BOOST = 64;
+    private static final float[] CACHE_SCORES = new float[MAX_CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[MAX_VALENCE_BOOST];
+
+    static {
+        for (int i = 0; i < MAX_CACHE_SIZE; i++) {
+            if (i < 3) {
+                CACHE_SCORES[i] = LAST_TRI_SCORE;
+            } else {
+                float scaler = 1.0f / (MAX_CACHE_SIZE - 3);
+                CACHE_SCORES[i] = (float) Math.pow(1.0f - (i - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+        for (int i = 1; i < MAX_VALENCE_BOOST; i++) {
+            VALENCE_SCORES[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+        }
+    }
+
+    /**
+     * The statistics of the simulated vertex cache.
+     *
+     * @param triangleCount    the triangle count
+     * @param vertexCount      the count of the referenced vertices
+     * @param transformedCount the count of the transformed vertices, i.e. cache misses
+     * @author squid233
+     * @since 0.2.0
+     */
+    public record VertexCacheStats(int triangleCount,
+                                   int vertexCount,
+                                   int transformedCount) {
+        /**
+         * Get the average cache miss ratio, the transformed vertices per triangle.
+         * The best value is about 0.5.
+         *
+         * @return the ACMR
+         */
+        public float acmr() {
+            return triangleCount == 0 ? 0.0f : (float) transformedCount / triangleCount;
+        }
+
+        /**
+         * Get the average transformed vertices per vertex. The best value is 1.0.
+         *
+         * @return the ATVR
+         */
+        public float atvr() {
+            return vertexCount == 0 ? 0.0f : (float) transformedCount / vertexCount;
+        }
+    }
+
+    /**
+     * The optimized mesh.
+     *
+     * @param indices  the optimized indices
+     * @param vertices the reordered vertices
+     * @param before   the cache stats before optimizing
+     * @param after    the cache stats after optimizing
+     * @param <T>      the vertex type
+     * @author squid233
+     * @since 0.2.0
+     */
+    public record Result<T>(int[] indices,
+                            List<T> vertices,
+                            VertexCacheStats before,
+                            VertexCacheStats after) {
+    }
+
+    ///// Analyze /////
+
+    /**
+     * Simulates a FIFO post-transform cache over the triangle list.
+     *
+     * @param indices     the triangle list indices
+     * @param vertexCount the vertex count
+     * @param cacheSize   the cache size
+     * @return the stats
+     */
+    public static VertexCacheStats analyzeVertexCache(int[] indices, int vertexCount, int cacheSize) {
+        checkTriangles(indices);
+        var stamps = new int[vertexCount];
+        var referenced = new boolean[vertexCount];
+        int timestamp = cacheSize + 1;
+        int transformed = 0, unique = 0;
+        for (int v : indices) {
+            if (timestamp - stamps[v] > cacheSize) {
+                stamps[v] = timestamp++;
+                ++transformed;
+            }
+            if (!referenced[v]) {
+                referenced[v] = true;
+                ++unique;
+            }
+        }
+        return new VertexCacheStats(indices.length / 3, unique, transformed);
+    }
+
+    /**
+     * Simulates a FIFO post-transform cache with {@link #DEFAULT_CACHE_SIZE the default size}.
+     *
+     * @param indices     the triangle list indices
+     * @param vertexCount the vertex count
+     * @return the stats
+     */
+    public static VertexCacheStats analyzeVertexCache(int[] indices, int vertexCount) {
+        return analyzeVertexCache(indices, vertexCount, DEFAULT_CACHE_SIZE);
+    }
+
+    ///// Vertex cache /////
+
+    private static float vertexScore(int cachePos, int valence) {
+        if (valence == 0)
+            return -1.0f;
+        float score = cachePos >= 0 ? CACHE_SCORES[cachePos] : 0.0f;
+        if (valence < MAX_VALENCE_BOOST)
+            return score + VALENCE_SCORES[valence];
+        return score + VALENCE_BOOST_SCALE * (float) Math.pow(valence, -VALENCE_BOOST_POWER);
+    }
+
+    /**
+     * Reorders the triangles for the post-transform vertex cache.
+     *
+     * @param indices     the triangle list indices
+     * @param vertexCount the vertex count
+     * @return the reordered indices
+     */
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+        checkTriangles(indices);
+        int triCount = indices.length / 3;
+        var result = new int[indices.length];
+        if (triCount == 0)
+            return result;
+
+        // Build the vertex-triangle adjacency
+        var valence = new int[vertexCount];
+        for (int v : indices) {
+            ++valence[v];
+        }
+        var adjOffsets = new int[vertexCount + 1];
+        for (int i = 0; i < vertexCount; i++) {
+            adjOffsets[i + 1] = adjOffsets[i] + valence[i];
+        }
+        var adjTris = new int[indices.length];
+        var adjFill = Arrays.copyOf(adjOffsets, vertexCount);
+        for (int i = 0; i < indices.length; i++) {
+            adjTris[adjFill[indices[i]]++] = i / 3;
+        }
+
+        var cachePos = new int[vertexCount];
+        Arrays.fill(cachePos, -1);
+        var vertScores = new float[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            vertScores[i] = vertexScore(-1, valence[i]);
+        }
+        var triScores = new float[triCount];
+        var emitted = new boolean[triCount];
+        int best = -1;
+        float bestScore = -1.0f;
+        for (int t = 0; t < triCount; t++) {
+            triScores[t] = vertScores[indices[t * 3]]
+                + vertScores[indices[t * 3 + 1]]
+                + vertScores[indices[t * 3 + 2]];
+            if (triScores[t] > bestScore) {
+                bestScore = triScores[t];
+                best = t;
+            }
+        }
+
+        var cache = new int[MAX_CACHE_SIZE + 3];
+        var newCache = new int[MAX_CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int cursor = 0;
+        for (int out = 0; out < triCount; out++) {
+            if (best < 0) {
+                // Restart from the next triangle that isn't emitted
+                while (emitted[cursor])
+                    ++cursor;
+                best = cursor;
+            }
+            emitted[best] = true;
+            int newCount = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[best * 3 + k];
+                result[out * 3 + k] = v;
+                // Remove the triangle from the active adjacency
+                int begin = adjOffsets[v], end = begin + valence[v];
+                for (int j = begin; j < end; j++) {
+                    if (adjTris[j] == best) {
+                        adjTris[j] = adjTris[end - 1];
+                        break;
+                    }
+                }
+                --valence[v];
+                newCache[newCount++] = v;
+            }
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                if (v != newCache[0] && v != newCache[1] && v != newCache[2])
+                    newCache[newCount++] = v;
+            }
+
+            // Update the scores of the cached and evicted vertices
+            best = -1;
+            bestScore = -1.0f;
+            for (int i = 0; i < newCount; i++) {
+                int v = newCache[i];
+                cachePos[v] = i < MAX_CACHE_SIZE ? i : -1;
+                vertScores[v] = vertexScore(cachePos[v], valence[v]);
+            }
+            for (int i = 0; i < newCount; i++) {
+                int v = newCache[i];
+                for (int j = adjOffsets[v], end = j + valence[v]; j < end; j++) {
+                    int t = adjTris[j];
+                    float score = vertScores[indices[t * 3]]
+                        + vertScores[indices[t * 3 + 1]]
+                        + vertScores[indices[t * 3 + 2]];
+                    triScores[t] = score;
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = t;
+                    }
+                }
+            }
+
+            var swap = cache;
+            cache = newCache;
+            newCache = swap;
+            cacheCount = Math.min(newCount, MAX_CACHE_SIZE);
+        }
+        return result;
+    }
+
+    ///// Overdraw /////
+
+    /**
+     * Clusters the triangles, which should be {@link #optimizeVertexCache(int[], int) optimized}
+     * for the vertex cache, and sorts the clusters from outside to inside to reduce the overdraw.
+     *
+     * @param indices   the triangle list indices
+     * @param positions the tightly packed positions, 3 floats per vertex
+     * @param threshold the max ratio of the ACMR of a cluster to the ACMR of the input,
+     *                  a larger value gives smaller clusters
+     * @return the reordered indices
+     */
+    public static int[] optimizeOverdraw(int[] indices, float[] positions, float threshold) {
+        checkTriangles(indices);
+        int vertexCount = positions.length / 3;
+        int triCount = indices.length / 3;
+        if (triCount == 0)
+            return new int[0];
+
+        // Hard boundaries: the triangles missing the whole cache
+        var stamps = new int[vertexCount];
+        int timestamp = DEFAULT_CACHE_SIZE + 1;
+        var triMisses = new int[triCount];
+        var hard = new IntArrayList();
+        for (int t = 0; t < triCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                if (timestamp - stamps[v] > DEFAULT_CACHE_SIZE) {
+                    stamps[v] = timestamp++;
+                    ++triMisses[t];
+                }
+            }
+            if (t == 0 || triMisses[t] == 3)
+                hard.add(t);
+        }
+        hard.add(triCount);
+
+        // Soft boundaries: split the hard clusters while the ACMR stays under the threshold
+        var clusters = new IntArrayList();
+        for (int c = 0; c + 1 < hard.size(); c++) {
+            int start = hard.get(c), end = hard.get(c + 1);
+            int misses = 0;
+            for (int t = start; t < end; t++) {
+                misses += triMisses[t];
+            }
+            float limit = (float) misses / (end - start) * threshold;
+            clusters.add(start);
+            Arrays.fill(stamps, 0);
+            timestamp = DEFAULT_CACHE_SIZE + 1;
+            int clusterStart = start;
+            misses = 0;
+            for (int t = start; t < end; t++) {
+                for (int k = 0; k < 3; k++) {
+                    int v = indices[t * 3 + k];
+                    if (timestamp - stamps[v] > DEFAULT_CACHE_SIZE) {
+                        stamps[v] = timestamp++;
+                        ++misses;
+                    }
+                }
+                int tris = t - clusterStart + 1;
+                if (t + 1 < end && tris >= DEFAULT_CACHE_SIZE && (float) misses / tris <= limit) {
+                    clusters.add(t + 1);
+                    clusterStart = t + 1;
+                    misses = 0;
+                    Arrays.fill(stamps, 0);
+                    timestamp = DEFAULT_CACHE_SIZE + 1;
+                }
+            }
+        }
+        clusters.add(triCount);
+
+        // Mesh centroid
+        float mx = 0, my = 0, mz = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            mx += positions[v * 3];
+            my += positions[v * 3 + 1];
+            mz += positions[v * 3 + 2];
+        }
+        if (vertexCount > 0) {
+            mx /= vertexCount;
+            my /= vertexCount;
+            mz /= vertexCount;
+        }
+
+        // Sort the clusters by the dot of the area-weighted normal and the offset from the centroid
+        int clusterCount = clusters.size() - 1;
+        var sortKeys = new float[clusterCount];
+        var order = new Integer[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            float cx = 0, cy = 0, cz = 0, nx = 0, ny = 0, nz = 0, area = 0;
+            for (int t = clusters.get(c), end = clusters.get(c + 1); t < end; t++) {
+                int a = indices[t * 3] * 3, b = indices[t * 3 + 1] * 3, d = indices[t * 3 + 2] * 3;
+                float e1x = positions[b] - positions[a];
+                float e1y = positions[b + 1] - positions[a + 1];
+                float e1z = positions[b + 2] - positions[a + 2];
+                float e2x = positions[d] - positions[a];
+                float e2y = positions[d + 1] - positions[a + 1];
+                float e2z = positions[d + 2] - positions[a + 2];
+                float tx = e1y * e2z - e1z * e2y;
+                float ty = e1z * e2x - e1x * e2z;
+                float tz = e1x * e2y - e1y * e2x;
+                float w = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+                cx += (positions[a] + positions[b] + positions[d]) / 3.0f * w;
+                cy += (positions[a + 1] + positions[b + 1] + positions[d + 1]) / 3.0f * w;
+                cz += (positions[a + 2] + positions[b + 2] + positions[d + 2]) / 3.0f * w;
+                nx += tx;
+                ny += ty;
+                nz += tz;
+                area += w;
+            }
+            float invArea = area == 0.0f ? 0.0f : 1.0f / area;
+            float nl = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            float invNl = nl == 0.0f ? 0.0f : 1.0f / nl;
+            sortKeys[c] = (cx * invArea - mx) * nx * invNl
+                + (cy * invArea - my) * ny * invNl
+                + (cz * invArea - mz) * nz * invNl;
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(sortKeys[b], sortKeys[a]));
+
+        var result = new int[indices.length];
+        int out = 0;
+        for (int c : order) {
+            int start = clusters.get(c) * 3, end = clusters.get(c + 1) * 3;
+            System.arraycopy(indices, start, result, out, end - start);
+            out += end - start;
+        }
+        return result;
+    }
+
+    ///// Vertex fetch /////
+
+    /**
+     * Reorders the vertices in the order they are first referenced,
+     * and rewrites the indices in place. The vertices never referenced are dropped.
+     *
+     * @param indices  the indices
+     * @param vertices the vertices
+     * @param <T>      the vertex type
+     * @return the reordered vertices
+     */
+    public static <T> List<T> optimizeVertexFetch(int[] indices, List<T> vertices) {
+        var remap = new int[vertices.size()];
+        Arrays.fill(remap, -1);
+        var result = new ArrayList<T>(vertices.size());
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            if (remap[v] < 0) {
+                remap[v] = result.size();
+                result.add(vertices.get(v));
+            }
+            indices[i] = remap[v];
+        }
+        return result;
+    }
+
+    ///// All /////
+
+    /**
+     * Runs all steps on the mesh.
+     *
+     * @param indices  the triangle list indices, not modified
+     * @param vertices the vertices, not modified
+     * @param overdraw {@code true} to optimize the overdraw
+     * @return the optimized mesh and the cache stats
+     */
+    public static Result<GLVertex> optimize(int[] indices, List<GLVertex> vertices, boolean overdraw) {
+        int vertexCount = vertices.size();
+        var before = analyzeVertexCache(indices, vertexCount);
+        var result = optimizeVertexCache(indices, vertexCount);
+        if (overdraw) {
+            var positions = new float[vertexCount * 3];
+            for (int i = 0; i < vertexCount; i++) {
+                var v = vertices.get(i);
+                positions[i * 3] = v.x;
+                positions[i * 3 + 1] = v.y;
+                positions[i * 3 + 2] = v.z;
+            }
+            result = optimizeOverdraw(result, positions, DEFAULT_OVERDRAW_THRESHOLD);
+        }
+        var newVertices = optimizeVertexFetch(result, vertices);
+        return new Result<>(result, newVertices, before, analyzeVertexCache(result, newVertices.size()));
+    }
+
+    private static void checkTriangles(int[] indices) {
+        if (indices.length % 3 != 0)
+            throw new IllegalArgumentException("The index count must be a multiple of 3, got " + indices.length);
+    }
+}
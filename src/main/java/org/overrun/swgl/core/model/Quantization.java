@@ -0,0 +1,270 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.model;
+
+import org.overrun.swgl.core.gl.GLVertex;
+
+import static org.joml.Math.clamp;
+import static org.overrun.swgl.core.model.VertexFormat.*;
+
+/**
+ * The vertex attribute quantization helper.
+ * <p>
+ * This class encodes floats into the compact formats
+ * {@link VertexFormat#V2H V2H}, {@link VertexFormat#V4H V4H},
+ * {@link VertexFormat#T2H T2H}, {@link VertexFormat#T2US T2US} and
+ * {@link VertexFormat#N4I10 N4I10}, decodes them back, and
+ * {@link #report(VertexLayout, Iterable) reports} the error and memory
+ * saved by a layout.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class Quantization {
+    /**
+     * The half float {@code 1.0}.
+     */
+    public static final short HALF_ONE = 0x3c00;
+
+    /**
+     * The quantization report.
+     *
+     * @param vertexCount      the vertex count
+     * @param stride           the quantized stride in bytes
+     * @param floatStride      the stride in bytes of the same attributes in full floats
+     * @param maxPositionError the max absolute error of position components
+     * @param maxTexCoordError the max absolute error of tex coord components
+     * @param maxNormalError   the max absolute error of normal components
+     * @author squid233
+     * @since 0.2.0
+     */
+    public record Report(int vertexCount,
+                         int stride,
+                         int floatStride,
+                         float maxPositionError,
+                         float maxTexCoordError,
+                         float maxNormalError) {
+        /**
+         * Get the bytes saved by the quantized layout.
+         *
+         * @return the saved bytes
+         */
+        public long savedBytes() {
+            return (long) (floatStride - stride) * vertexCount;
+        }
+
+        /**
+         * Get the saved ratio in range {@code [0, 1)}.
+         *
+         * @return the saved ratio
+         */
+        public float savedRatio() {
+            return floatStride == 0 ? 0.0f : (float) (floatStride - stride) / floatStride;
+        }
+    }
+
+    ///// Half float /////
+
+    /**
+     * Converts a float to the bits of the nearest half float, rounding to even.
+     *
+     * @param f the float
+     * @return the half float bits
+     */
+    public static short floatToHalf(float f) {
+        int bits = Float.floatToRawIntBits(f);
+        int sign = (bits >>> 16) & 0x8000;
+        int abs = bits & 0x7fffffff;
+        // Infinity and NaN
+        if (abs >= 0x7f800000)
+            return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 : 0));
+        // >= 65520 overflows
+        if (abs >= 0x477ff000)
+            return (short) (sign | 0x7c00);
+        // Sub-normal half
+        if (abs < 0x38800000) {
+            if (abs < 0x33000000)
+                return (short) sign;
+            int shift = 126 - (abs >>> 23);
+            int mant = (abs & 0x7fffff) | 0x800000;
+            int h = mant >>> shift;
+            int rem = mant & ((1 << shift) - 1);
+            int half = 1 << (shift - 1);
+            if (rem > half || (rem == half && (h & 1) != 0))
+                ++h;
+            return (short) (sign | h);
+        }
+        int h = (((abs >>> 23) - 112) << 10) | ((abs >>> 13) & 0x3ff);
+        int rem = abs & 0x1fff;
+        if (rem > 0x1000 || (rem == 0x1000 && (h & 1) != 0))
+            ++h;
+        return (short) (sign | h);
+    }
+
+    /**
+     * Converts the bits of a half float to float.
+     *
+     * @param half the half float bits
+     * @return the float
+     */
+    public static float halfToFloat(short half) {
+        int h = half & 0xffff;
+        int sign = (h & 0x8000) << 16;
+        int e = (h >>> 10) & 0x1f;
+        int m = h & 0x3ff;
+        if (e == 0) {
+            float v = m * 0x1p-24f;
+            return sign != 0 ? -v : v;
+        }
+        if (e == 0x1f)
+            return Float.intBitsToFloat(sign | 0x7f800000 | (m << 13));
+        return Float.intBitsToFloat(sign | ((e + 112) << 23) | (m << 13));
+    }
+
+    ///// Normalized short /////
+
+    /**
+     * Converts a float in range {@code [0, 1]} to normalized unsigned short.
+     * The value is clamped.
+     *
+     * @param f the float
+     * @return the normalized unsigned short
+     */
+    public static short floatToUnorm16(float f) {
+        return (short) Math.round(clamp(0.0f, 1.0f, f) * 65535.0f);
+    }
+
+    /**
+     * Converts a normalized unsigned short to float.
+     *
+     * @param s the normalized unsigned short
+     * @return the float
+     */
+    public static float unorm16ToFloat(short s) {
+        return Short.toUnsignedInt(s) / 65535.0f;
+    }
+
+    ///// Packed 2_10_10_10 /////
+
+    /**
+     * Packs the components in range {@code [-1, 1]} to the signed normalized
+     * {@code GL_INT_2_10_10_10_REV} format. The components are clamped.
+     *
+     * @param x the x component, stored in bits 0-9
+     * @param y the y component, stored in bits 10-19
+     * @param z the z component, stored in bits 20-29
+     * @param w the w component, stored in bits 30-31
+     * @return the packed int
+     */
+    public static int packSnorm1010102(float x, float y, float z, float w) {
+        int px = Math.round(clamp(-1.0f, 1.0f, x) * 511.0f);
+        int py = Math.round(clamp(-1.0f, 1.0f, y) * 511.0f);
+        int pz = Math.round(clamp(-1.0f, 1.0f, z) * 511.0f);
+        int pw = Math.round(clamp(-1.0f, 1.0f, w));
+        return (px & 0x3ff) | (py & 0x3ff) << 10 | (pz & 0x3ff) << 20 | (pw & 0x3) << 30;
+    }
+
+    /**
+     * Unpacks a component from the signed normalized {@code GL_INT_2_10_10_10_REV} format.
+     *
+     * @param packed    the packed int
+     * @param component the component index, 0 to 3
+     * @return the component in range {@code [-1, 1]}
+     */
+    public static float unpackSnorm1010102(int packed, int component) {
+        if (component == 3) {
+            return Math.max(packed >> 30, -1);
+        }
+        int shift = component * 10;
+        int v = (packed << (22 - shift)) >> 22;
+        return Math.max(v / 511.0f, -1.0f);
+    }
+
+    ///// Report /////
+
+    /**
+     * Measures the error of the vertices encoded with the layout, and
+     * the memory saved compared to the same attributes stored in full floats.
+     *
+     * @param layout   the vertex layout
+     * @param vertices the source vertices
+     * @return the report
+     */
+    public static Report report(VertexLayout layout, Iterable<GLVertex> vertices) {
+        int floatStride = 0;
+        for (var format : layout.formats) {
+            floatStride += floatBytes(format);
+        }
+        int count = 0;
+        float posErr = 0.0f, texErr = 0.0f, normalErr = 0.0f;
+        for (var v : vertices) {
+            ++count;
+            for (var format : layout.formats) {
+                switch (format) {
+                    case V2H -> posErr = Math.max(posErr, Math.max(halfError(v.x), halfError(v.y)));
+                    case V4H -> posErr = Math.max(posErr,
+                        Math.max(halfError(v.x), Math.max(halfError(v.y), halfError(v.z))));
+                    case T2H -> texErr = Math.max(texErr, Math.max(halfError(v.s), halfError(v.t)));
+                    case T2US -> texErr = Math.max(texErr, Math.max(unorm16Error(v.s), unorm16Error(v.t)));
+                    case N3B -> normalErr = Math.max(normalErr,
+                        Math.max(byteError(v.nx), Math.max(byteError(v.ny), byteError(v.nz))));
+                    case N4I10 -> {
+                        int packed = packSnorm1010102(v.nx, v.ny, v.nz, 0.0f);
+                        normalErr = Math.max(normalErr,
+                            Math.max(Math.abs(unpackSnorm1010102(packed, 0) - v.nx),
+                                Math.max(Math.abs(unpackSnorm1010102(packed, 1) - v.ny),
+                                    Math.abs(unpackSnorm1010102(packed, 2) - v.nz))));
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+        return new Report(count, layout.getStride(), floatStride, posErr, texErr, normalErr);
+    }
+
+    private static int floatBytes(VertexFormat format) {
+        return switch (format) {
+            case V2H -> V2F.getBytes();
+            case V4H -> V3F.getBytes();
+            case T2H, T2US -> T2F.getBytes();
+            case N3B, N4I10 -> N3F.getBytes();
+            default -> format.getBytes();
+        };
+    }
+
+    private static float halfError(float f) {
+        return Math.abs(halfToFloat(floatToHalf(f)) - f);
+    }
+
+    private static float unorm16Error(float f) {
+        return Math.abs(unorm16ToFloat(floatToUnorm16(f)) - f);
+    }
+
+    private static float byteError(float f) {
+        return Math.abs((2 * IModel.normal2byte(f) + 1) / 255.0f - f);
+    }
+}
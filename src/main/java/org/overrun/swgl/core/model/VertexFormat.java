@@ -24,12 +24,15 @@
 
 package org.overrun.swgl.core.model;
 
+import org.lwjgl.opengl.GL33C;
 import org.overrun.swgl.core.gl.GLDataType;
+import org.overrun.swgl.core.gl.GLVertex;
 
 import java.nio.ByteBuffer;
 import java.util.StringJoiner;
 
 import static org.lwjgl.opengl.GL20C.*;
+import static org.lwjgl.system.MemoryUtil.*;
 import static org.overrun.swgl.core.gl.GLDataType.*;
 import static org.overrun.swgl.core.model.IVertProcessor.*;
 
@@ -51,6 +54,38 @@ public enum VertexFormat {
     T3F(3, FLOAT, false, VertexFormat.PROP_TEX_COORD, FLOAT3),
     N3F(3, FLOAT, false, VertexFormat.PROP_NORMAL, FLOAT3),
     N3B(3, BYTE, true, VertexFormat.PROP_NORMAL, BYTE3),
+    /**
+     * 2 half float positions.
+     *
+     * @since 0.2.0
+     */
+    V2H(2, HALF_FLOAT, false, VertexFormat.PROP_VERTEX, HALF2),
+    /**
+     * 3 half float positions and {@code w = 1.0}, padded to 4 components
+     * to keep the attributes aligned.
+     *
+     * @since 0.2.0
+     */
+    V4H(4, HALF_FLOAT, false, VertexFormat.PROP_VERTEX, HALF4),
+    /**
+     * 2 half float tex coords.
+     *
+     * @since 0.2.0
+     */
+    T2H(2, HALF_FLOAT, false, VertexFormat.PROP_TEX_COORD, HALF2),
+    /**
+     * 2 normalized unsigned short tex coords.
+     * The tex coords must be in range {@code [0, 1]}, or they are clamped.
+     *
+     * @since 0.2.0
+     */
+    T2US(2, UNSIGNED_SHORT, true, VertexFormat.PROP_TEX_COORD, UNORM16X2),
+    /**
+     * Normal packed into a signed normalized {@code GL_INT_2_10_10_10_REV}.
+     *
+     * @since 0.2.0
+     */
+    N4I10(4, INT_2_10_10_10_REV, true, VertexFormat.PROP_NORMAL, SNORM1010102),
     GENERIC(1, BYTE, false, 0, (buffer, x, y, z, w) -> {});
 
     public static final int PROP_VERTEX = 1;
@@ -155,6 +190,20 @@ public enum VertexFormat {
         );
     }
 
+    /**
+     * Enables the attribute and sets the pointer and the divisor.
+     *
+     * @param attribIndex the attribute index
+     * @param stride      the stride in bytes
+     * @param offset      the offset in bytes
+     * @param divisor     the count of the instances sharing an element; {@code 0} for per-vertex attributes
+     * @since 0.2.0
+     */
+    public void beginDraw(int attribIndex, int stride, int offset, int divisor) {
+        beginDraw(attribIndex, stride, offset);
+        GL33C.glVertexAttribDivisor(attribIndex, divisor);
+    }
+
     /**
      * Puts into the buffer with this format.
      *
@@ -169,6 +218,136 @@ public enum VertexFormat {
         processor.process(buffer, x, y, z, w);
     }
 
+    /**
+     * Puts the vertex data of this format into the memory address.
+     * <p>
+     * Unlike {@link #processBuffer(ByteBuffer, Object, Object, Object, Object) processBuffer},
+     * this method doesn't box the data.
+     * </p>
+     *
+     * @param vertex  the source vertex
+     * @param address the dest memory address
+     * @see VertexWriter
+     * @since 0.2.0
+     */
+    public void write(GLVertex vertex, long address) {
+        // Each case calls a small store method, so that this method stays
+        // small enough to be inlined into the vertex writer by the JIT
+        switch (this) {
+            case V2F -> putV2F(vertex, address);
+            case V3F -> putV3F(vertex, address);
+            case V4F -> putV4F(vertex, address);
+            case C3UB -> putC3UB(vertex, address);
+            case C4UB -> putC4UB(vertex, address);
+            case C3F -> putC3F(vertex, address);
+            case C4F -> putC4F(vertex, address);
+            case T2F -> putT2F(vertex, address);
+            case T3F -> putT3F(vertex, address);
+            case N3F -> putN3F(vertex, address);
+            case N3B -> putN3B(vertex, address);
+            case V2H -> putV2H(vertex, address);
+            case V4H -> putV4H(vertex, address);
+            case T2H -> putT2H(vertex, address);
+            case T2US -> putT2US(vertex, address);
+            case N4I10 -> putN4I10(vertex, address);
+            case GENERIC -> {
+            }
+        }
+    }
+
+    private static void putV2F(GLVertex vertex, long address) {
+        memPutFloat(address, vertex.x);
+        memPutFloat(address + 4, vertex.y);
+    }
+
+    private static void putV3F(GLVertex vertex, long address) {
+        memPutFloat(address, vertex.x);
+        memPutFloat(address + 4, vertex.y);
+        memPutFloat(address + 8, vertex.z);
+    }
+
+    private static void putV4F(GLVertex vertex, long address) {
+        memPutFloat(address, vertex.x);
+        memPutFloat(address + 4, vertex.y);
+        memPutFloat(address + 8, vertex.z);
+        memPutFloat(address + 12, 1.0f);
+    }
+
+    private static void putC3UB(GLVertex vertex, long address) {
+        memPutByte(address, vertex.r);
+        memPutByte(address + 1, vertex.g);
+        memPutByte(address + 2, vertex.b);
+    }
+
+    private static void putC4UB(GLVertex vertex, long address) {
+        memPutByte(address, vertex.r);
+        memPutByte(address + 1, vertex.g);
+        memPutByte(address + 2, vertex.b);
+        memPutByte(address + 3, vertex.a);
+    }
+
+    private static void putC3F(GLVertex vertex, long address) {
+        memPutFloat(address, IModel.byte2color(vertex.r));
+        memPutFloat(address + 4, IModel.byte2color(vertex.g));
+        memPutFloat(address + 8, IModel.byte2color(vertex.b));
+    }
+
+    private static void putC4F(GLVertex vertex, long address) {
+        memPutFloat(address, IModel.byte2color(vertex.r));
+        memPutFloat(address + 4, IModel.byte2color(vertex.g));
+        memPutFloat(address + 8, IModel.byte2color(vertex.b));
+        memPutFloat(address + 12, IModel.byte2color(vertex.a));
+    }
+
+    private static void putT2F(GLVertex vertex, long address) {
+        memPutFloat(address, vertex.s);
+        memPutFloat(address + 4, vertex.t);
+    }
+
+    private static void putT3F(GLVertex vertex, long address) {
+        memPutFloat(address, vertex.s);
+        memPutFloat(address + 4, vertex.t);
+        memPutFloat(address + 8, vertex.p);
+    }
+
+    private static void putN3F(GLVertex vertex, long address) {
+        memPutFloat(address, vertex.nx);
+        memPutFloat(address + 4, vertex.ny);
+        memPutFloat(address + 8, vertex.nz);
+    }
+
+    private static void putN3B(GLVertex vertex, long address) {
+        memPutByte(address, IModel.normal2byte(vertex.nx));
+        memPutByte(address + 1, IModel.normal2byte(vertex.ny));
+        memPutByte(address + 2, IModel.normal2byte(vertex.nz));
+    }
+
+    private static void putV2H(GLVertex vertex, long address) {
+        memPutShort(address, Quantization.floatToHalf(vertex.x));
+        memPutShort(address + 2, Quantization.floatToHalf(vertex.y));
+    }
+
+    private static void putV4H(GLVertex vertex, long address) {
+        memPutShort(address, Quantization.floatToHalf(vertex.x));
+        memPutShort(address + 2, Quantization.floatToHalf(vertex.y));
+        memPutShort(address + 4, Quantization.floatToHalf(vertex.z));
+        memPutShort(address + 6, Quantization.HALF_ONE);
+    }
+
+    private static void putT2H(GLVertex vertex, long address) {
+        memPutShort(address, Quantization.floatToHalf(vertex.s));
+        memPutShort(address + 2, Quantization.floatToHalf(vertex.t));
+    }
+
+    private static void putT2US(GLVertex vertex, long address) {
+        memPutShort(address, Quantization.floatToUnorm16(vertex.s));
+        memPutShort(address + 2, Quantization.floatToUnorm16(vertex.t));
+    }
+
+    private static void putN4I10(GLVertex vertex, long address) {
+        memPutInt(address, Quantization.packSnorm1010102(vertex.nx, vertex.ny, vertex.nz, 0.0f));
+    }
+
     @Override
     public String toString() {
         return new StringJoiner(", ", VertexFormat.class.getSimpleName() + "[", "]")
@@ -37,6 +37,7 @@ public class VertexLayout {
     protected final Set<VertexFormat> formats;
     protected int stride;
     private final boolean hasPosition, hasColor, hasTexture, hasNormal;
+    private final VertexWriter writer;
 
     /**
      * Create a layout with the vertex formats.
@@ -57,6 +58,7 @@ public class VertexLayout {
         hasColor = ((VertexFormat.PROP_COLOR) & property) != 0;
         hasTexture = ((VertexFormat.PROP_TEX_COORD) & property) != 0;
         hasNormal = ((VertexFormat.PROP_NORMAL) & property) != 0;
+        writer = compileWriter();
     }
 
     /**
@@ -116,6 +118,17 @@ public class VertexLayout {
         return format.getProperty();
     }
 
+    private VertexWriter compileWriter() {
+        final int size = offsetMap.size();
+        final var fmtArr = new VertexFormat[size];
+        final var offArr = new int[size];
+        forEachFormat((format, offset, index) -> {
+            fmtArr[index] = format;
+            offArr[index] = offset;
+        });
+        return new VertexWriter(fmtArr, offArr, stride);
+    }
+
     public void beginDraw() {
         int i = 0;
         for (var e : formats) {
@@ -130,6 +143,47 @@ public class VertexLayout {
         }
     }
 
+    /**
+     * Enables the attributes from {@code firstAttrib} and sets the pointers and the divisor.
+     * <p>
+     * Use this to set up a per-instance stream after the per-vertex layout, with the buffer
+     * of the stream bound to {@code GL_ARRAY_BUFFER}.
+     * </p>
+     *
+     * @param firstAttrib the attribute index of the first format
+     * @param divisor     the count of the instances sharing an element; {@code 0} for per-vertex attributes
+     * @since 0.2.0
+     */
+    public void beginDraw(int firstAttrib, int divisor) {
+        int i = firstAttrib;
+        for (var e : formats) {
+            e.beginDraw(i, getStride(), getOffset(e), divisor);
+            ++i;
+        }
+    }
+
+    /**
+     * Disables the attributes from {@code firstAttrib}.
+     *
+     * @param firstAttrib the attribute index of the first format
+     * @since 0.2.0
+     */
+    public void endDraw(int firstAttrib) {
+        for (int i = firstAttrib, c = firstAttrib + formats.size(); i < c; i++) {
+            GL20C.glDisableVertexAttribArray(i);
+        }
+    }
+
+    /**
+     * Gets the count of the attributes used by this layout.
+     *
+     * @return the attribute count
+     * @since 0.2.0
+     */
+    public int getAttribCount() {
+        return formats.size();
+    }
+
     public boolean hasPosition() {
         return hasPosition;
     }
@@ -188,6 +242,16 @@ public class VertexLayout {
         return stride;
     }
 
+    /**
+     * Get the vertex writer compiled from this layout.
+     *
+     * @return the vertex writer
+     * @since 0.2.0
+     */
+    public VertexWriter getWriter() {
+        return writer;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.model;
+
+import org.overrun.swgl.core.gl.GLVertex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The vertex welder that removes the duplicated vertices and generates the indices.
+ * <p>
+ * The vertices are packed with the {@link VertexLayout#getWriter() writer} of the layout,
+ * and the packed bytes are the keys of an open-addressing hash table. So two vertices
+ * are welded if they are the same to the GPU, that is, the attributes out of the layout
+ * are ignored.
+ * </p>
+ * <p>
+ * With a positive epsilon, the positions, tex coords and normals are snapped to
+ * the grid of the epsilon before packing. Note that two close values on the
+ * different sides of a grid cell are not welded.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class VertexWelder {
+    /**
+     * The welded mesh.
+     *
+     * @param vertices the unique vertices, the first one of the duplicated vertices is kept
+     * @param indices  the indices
+     * @author squid233
+     * @since 0.2.0
+     */
+    public record Result(List<GLVertex> vertices, int[] indices) {
+    }
+
+    /**
+     * Welds the vertices which are bitwise-equal with the layout.
+     *
+     * @param layout   the vertex layout
+     * @param vertices the vertices
+     * @return the welded mesh
+     */
+    public static Result weld(VertexLayout layout, List<GLVertex> vertices) {
+        return weld(layout, vertices, 0.0f);
+    }
+
+    /**
+     * Welds the vertices which are equal with the layout after snapping to the epsilon.
+     *
+     * @param layout   the vertex layout
+     * @param vertices the vertices
+     * @param epsilon  the epsilon; {@code 0} for the exact welding
+     * @return the welded mesh
+     */
+    public static Result weld(VertexLayout layout, List<GLVertex> vertices, float epsilon) {
+        if (epsilon < 0.0f || Float.isNaN(epsilon))
+            throw new IllegalArgumentException("The epsilon must be non-negative, got " + epsilon);
+        final int count = vertices.size();
+        final var writer = layout.getWriter();
+        final int stride = writer.getStride();
+        var indices = new int[count];
+        var unique = new ArrayList<GLVertex>();
+        if (count == 0)
+            return new Result(unique, indices);
+
+        // The packed keys of the unique vertices
+        // Zeroed, since the writer skips the bytes of GENERIC; the other bytes are always written
+        long keys = nmemCallocChecked(count, stride);
+        // Stores the unique index + 1, 0 is empty
+        var table = new int[tableSize(count)];
+        int mask = table.length - 1;
+        var snapped = epsilon > 0.0f ? new GLVertex() : null;
+        try {
+            for (int i = 0; i < count; i++) {
+                var vertex = vertices.get(i);
+                long key = keys + (long) stride * unique.size();
+                if (snapped != null) {
+                    snap(vertex, snapped, epsilon);
+                    writer.write(snapped, key);
+                } else {
+                    writer.write(vertex, key);
+                }
+                int slot = (int) hash(key, stride) & mask;
+                while (true) {
+                    int entry = table[slot];
+                    if (entry == 0) {
+                        table[slot] = unique.size() + 1;
+                        indices[i] = unique.size();
+                        unique.add(vertex);
+                        break;
+                    }
+                    if (equals(keys + (long) stride * (entry - 1), key, stride)) {
+                        indices[i] = entry - 1;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+        } finally {
+            nmemFree(keys);
+        }
+        return new Result(unique, indices);
+    }
+
+    private static int tableSize(int count) {
+        // Keeps the load factor under 0.5
+        int size = Integer.highestOneBit(Math.max(count, 1)) << 2;
+        return size > 0 ? size : 1 << 30;
+    }
+
+    private static float snap(float v, float epsilon) {
+        return Math.round(v / epsilon) * epsilon;
+    }
+
+    private static void snap(GLVertex src, GLVertex dst, float epsilon) {
+        dst.x = snap(src.x, epsilon);
+        dst.y = snap(src.y, epsilon);
+        dst.z = snap(src.z, epsilon);
+        dst.s = snap(src.s, epsilon);
+        dst.t = snap(src.t, epsilon);
+        dst.p = snap(src.p, epsilon);
+        dst.nx = snap(src.nx, epsilon);
+        dst.ny = snap(src.ny, epsilon);
+        dst.nz = snap(src.nz, epsilon);
+        dst.r = src.r;
+        dst.g = src.g;
+        dst.b = src.b;
+        dst.a = src.a;
+    }
+
+    private static long hash(long address, int size) {
+        long h = 0xcbf29ce484222325L ^ size;
+        int i = 0;
+        for (; i + 8 <= size; i += 8) {
+            h = (h ^ memGetLong(address + i)) * 0x9e3779b97f4a7c15L;
+            h ^= h >>> 32;
+        }
+        for (; i < size; i++) {
+            h = (h ^ memGetByte(address + i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 29;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static boolean equals(long a, long b, int size) {
+        int i = 0;
+        for (; i + 8 <= size; i += 8) {
+            if (memGetLong(a + i) != memGetLong(b + i))
+                return false;
+        }
+        for (; i < size; i++) {
+            if (memGetByte(a + i) != memGetByte(b + i))
+                return false;
+        }
+        return true;
+    }
+}
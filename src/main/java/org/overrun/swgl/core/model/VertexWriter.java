@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.model;
+
+import org.overrun.swgl.core.gl.GLVertex;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The vertex writer compiled from a {@link VertexLayout}.
+ * <p>
+ * The writer holds the formats and byte offsets of the layout in arrays, and
+ * writes the vertex data with absolute stores without boxing.
+ * </p>
+ * <h4>Example</h4>
+ * <pre>{@code var writer = layout.getWriter();
+ * writer.write(vertex, buffer, buffer.position());
+ * buffer.position(buffer.position() + writer.getStride());}</pre>
+ *
+ * @author squid233
+ * @see VertexLayout#getWriter()
+ * @since 0.2.0
+ */
+public final class VertexWriter {
+    private final VertexFormat[] formats;
+    private final int[] offsets;
+    private final int stride;
+
+    VertexWriter(VertexFormat[] formats, int[] offsets, int stride) {
+        this.formats = formats;
+        this.offsets = offsets;
+        this.stride = stride;
+    }
+
+    /**
+     * Get the vertex stride in bytes.
+     *
+     * @return the stride
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Writes a vertex into the memory address.
+     *
+     * @param vertex  the source vertex
+     * @param address the dest memory address
+     */
+    public void write(GLVertex vertex, long address) {
+        for (int i = 0; i < formats.length; i++) {
+            formats[i].write(vertex, address + offsets[i]);
+        }
+    }
+
+    /**
+     * Writes a vertex into the buffer at the absolute offset.
+     * The buffer position is not changed.
+     *
+     * @param vertex the source vertex
+     * @param buffer the dest buffer
+     * @param offset the absolute byte offset
+     */
+    public void write(GLVertex vertex, ByteBuffer buffer, int offset) {
+        if (offset < 0 || offset + stride > buffer.capacity()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for capacity " + buffer.capacity());
+        }
+        write(vertex, memAddress0(buffer) + offset);
+    }
+
+    /**
+     * Writes the vertices into the buffer from the current position, and
+     * advances the position.
+     *
+     * @param vertices the source vertices
+     * @param buffer   the dest buffer
+     * @return the written bytes
+     */
+    public int writeAll(Iterable<GLVertex> vertices, ByteBuffer buffer) {
+        int pos = buffer.position();
+        final int begin = pos;
+        for (var vertex : vertices) {
+            write(vertex, buffer, pos);
+            pos += stride;
+        }
+        buffer.position(pos);
+        return pos - begin;
+    }
+}
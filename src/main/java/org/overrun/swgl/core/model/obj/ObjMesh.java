@@ -27,11 +27,12 @@ package org.overrun.swgl.core.model.obj;
 import org.lwjgl.assimp.AIMesh;
 import org.lwjgl.assimp.AIVector3D;
 import org.lwjgl.system.MemoryUtil;
+import org.overrun.swgl.core.gl.GLStateMgr;
+import org.overrun.swgl.core.model.MeshOptimizer;
+import org.overrun.swgl.core.util.IntArrayList;
 import org.overrun.swgl.core.util.IntTri;
 
 import java.nio.IntBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 import static org.lwjgl.assimp.Assimp.AI_MAX_NUMBER_OF_TEXTURECOORDS;
 import static org.lwjgl.opengl.GL30C.*;
@@ -46,17 +47,32 @@ public class ObjMesh {
     public AIMesh mesh;
     public int materialIndex;
     public int vao, vbo, vnbo, ebo;
-    public final List<Integer> vtbos = new ArrayList<>();
+    public final IntArrayList vtbos = new IntArrayList();
     public int vertexCount;
 
     public ObjMesh(AIMesh mesh,
                    IntTri vaIndices) {
+        this(mesh, vaIndices, false);
+    }
+
+    /**
+     * Create the mesh.
+     *
+     * @param mesh      the assimp mesh
+     * @param vaIndices the vertex attribute indices of position, tex coord and normal
+     * @param optimize  {@code true} to reorder the triangles with {@link MeshOptimizer}
+     *                  for the vertex cache and overdraw
+     * @since 0.2.0
+     */
+    public ObjMesh(AIMesh mesh,
+                   IntTri vaIndices,
+                   boolean optimize) {
         this.mesh = mesh;
         materialIndex = mesh.mMaterialIndex();
 
         bindVao();
         vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, vbo);
         var vertices = mesh.mVertices();
         nglBufferData(GL_ARRAY_BUFFER, (long) AIVector3D.SIZEOF * vertices.remaining(),
             vertices.address(), GL_STATIC_DRAW);
@@ -72,7 +88,7 @@ public class ObjMesh {
             var texCoords = mesh.mTextureCoords(i);
             if (texCoords != null) {
                 int vtbo = glGenBuffers();
-                glBindBuffer(GL_ARRAY_BUFFER, vtbo);
+                GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, vtbo);
                 nglBufferData(GL_ARRAY_BUFFER, (long) AIVector3D.SIZEOF * texCoords.remaining(),
                     texCoords.address(), GL_STATIC_DRAW);
                 glEnableVertexAttribArray(vaIndices.y());
@@ -89,7 +105,7 @@ public class ObjMesh {
         var normals = mesh.mNormals();
         if (normals != null) {
             vnbo = glGenBuffers();
-            glBindBuffer(GL_ARRAY_BUFFER, vnbo);
+            GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, vnbo);
             nglBufferData(GL_ARRAY_BUFFER, (long) AIVector3D.SIZEOF * normals.remaining(),
                 normals.address(), GL_STATIC_DRAW);
             glEnableVertexAttribArray(vaIndices.z());
@@ -112,19 +128,35 @@ public class ObjMesh {
                 ib.put(face.mIndices());
             }
             ib.flip();
+            if (optimize) {
+                var indices = new int[vertexCount];
+                ib.get(indices).flip();
+                int count = vertices.remaining();
+                var positions = new float[count * 3];
+                for (int i = 0; i < count; i++) {
+                    var v = vertices.get(i);
+                    positions[i * 3] = v.x();
+                    positions[i * 3 + 1] = v.y();
+                    positions[i * 3 + 2] = v.z();
+                }
+                indices = MeshOptimizer.optimizeVertexCache(indices, count);
+                indices = MeshOptimizer.optimizeOverdraw(indices, positions,
+                    MeshOptimizer.DEFAULT_OVERDRAW_THRESHOLD);
+                ib.put(indices).flip();
+            }
             ebo = glGenBuffers();
-            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+            GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
             glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib, GL_STATIC_DRAW);
         } finally {
             MemoryUtil.memFree(ib);
         }
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, 0);
+        GLStateMgr.bindVertexArray(0);
     }
 
     public void bindVao() {
         if (!glIsVertexArray(vao))
             vao = glGenVertexArrays();
-        glBindVertexArray(vao);
+        GLStateMgr.bindVertexArray(vao);
     }
 }
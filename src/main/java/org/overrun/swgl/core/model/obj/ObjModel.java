@@ -28,6 +28,7 @@ import org.lwjgl.assimp.AIMaterial;
 import org.lwjgl.assimp.AIMesh;
 import org.lwjgl.assimp.AIScene;
 import org.lwjgl.assimp.AIString;
+import org.overrun.swgl.core.gl.GLStateMgr;
 import org.overrun.swgl.core.model.IModel;
 import org.overrun.swgl.core.util.IntTri;
 
@@ -50,13 +51,28 @@ public class ObjModel implements IModel, AutoCloseable {
     public Map<Integer, ObjMaterial> materialIndex = new LinkedHashMap<>();
 
     public ObjModel(AIScene scene, String basePath, IntTri vaIndices) {
+        this(scene, basePath, vaIndices, false);
+    }
+
+    /**
+     * Create the model.
+     *
+     * @param scene     the assimp scene
+     * @param basePath  the base path of the textures
+     * @param vaIndices the vertex attribute indices
+     * @param optimize  {@code true} to optimize the meshes
+     * @see ObjMesh#ObjMesh(AIMesh, IntTri, boolean)
+     * @since 0.2.0
+     */
+    public ObjModel(AIScene scene, String basePath, IntTri vaIndices, boolean optimize) {
         this.scene = scene;
 
         int meshCount = scene.mNumMeshes();
         var meshesBuffer = scene.mMeshes();
         for (int i = 0; i < meshCount; i++) {
             meshes.add(new ObjMesh(AIMesh.create(Objects.requireNonNull(meshesBuffer).get(i)),
-                vaIndices));
+                vaIndices,
+                optimize));
         }
 
         int materialCount = scene.mNumMaterials();
@@ -78,7 +94,7 @@ public class ObjModel implements IModel, AutoCloseable {
             getMaterial(mesh.materialIndex).ifPresent(consumer);
             glDrawElements(GL_TRIANGLES, mesh.vertexCount, GL_UNSIGNED_INT, 0);
         }
-        glBindVertexArray(0);
+        GLStateMgr.bindVertexArray(0);
     }
 
     public Optional<ObjMaterial> getMaterial(String name) {
@@ -47,6 +47,21 @@ public final class ObjModels {
     }
 
     public static ObjModel loadModel(String name, int flags, IntTri vaIndices) {
+        return loadModel(name, flags, vaIndices, false);
+    }
+
+    /**
+     * Load a model.
+     *
+     * @param name      the model file name
+     * @param flags     the assimp post process flags
+     * @param vaIndices the vertex attribute indices
+     * @param optimize  {@code true} to optimize the meshes
+     * @return the model
+     * @see ObjMesh#ObjMesh(org.lwjgl.assimp.AIMesh, IntTri, boolean)
+     * @since 0.2.0
+     */
+    public static ObjModel loadModel(String name, int flags, IntTri vaIndices, boolean optimize) {
         var fileIo = AIFileIO.create()
             .OpenProc((pFileIO, fileName, openMode) -> {
                 ByteBuffer data;
@@ -92,6 +107,7 @@ public final class ObjModels {
         if (scene == null)
             throw new IllegalStateException(aiGetErrorString());
         return new ObjModel(scene, name.substring(0, name.lastIndexOf('/')) + '/',
-            vaIndices);
+            vaIndices,
+            optimize);
     }
 }
@@ -24,18 +24,23 @@
 
 package org.overrun.swgl.core.model.simple;
 
+import org.overrun.swgl.core.gl.GLDataType;
 import org.overrun.swgl.core.gl.GLDrawMode;
+import org.overrun.swgl.core.gl.GLInstanceBuffer;
+import org.overrun.swgl.core.gl.GLRenderQueue;
+import org.overrun.swgl.core.gl.GLStateMgr;
 import org.overrun.swgl.core.gl.GLVertex;
+import org.overrun.swgl.core.model.MeshOptimizer;
 import org.overrun.swgl.core.model.VertexLayout;
+import org.overrun.swgl.core.model.VertexWelder;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.lwjgl.opengl.GL30C.*;
 import static org.lwjgl.system.MemoryUtil.*;
 import static org.overrun.swgl.core.gl.GLStateMgr.activeTexture;
-import static org.overrun.swgl.core.model.IModel.byte2color;
-import static org.overrun.swgl.core.model.IModel.normal2byte;
 
 /**
  * A swgl mesh that describes the vertex data.
@@ -44,8 +49,8 @@ import static org.overrun.swgl.core.model.IModel.normal2byte;
  * @since 0.1.0
  */
 public class SimpleMesh implements AutoCloseable {
-    private final List<GLVertex> vertices = new ArrayList<>();
-    private final List<Integer> indices = new ArrayList<>();
+    private final List<GLVertex> vertices;
+    private final int[] indices;
     private SimpleMaterial material;
     private int vao = 0, vbo = 0, ebo = 0;
     private GLDrawMode drawMode = GLDrawMode.TRIANGLES;
@@ -54,62 +59,82 @@ public class SimpleMesh implements AutoCloseable {
     public SimpleMesh(VertexLayout layout,
                       GLVertex vertex,
                       GLVertex... vertices) {
-        this.vertices.add(vertex);
-        indices.add(0);
-        for (var vert : vertices) {
-            int index = this.vertices.indexOf(vert);
-            if (index >= 0) {
-                indices.add(index);
-            } else {
-                this.vertices.add(vert);
-                indices.add(this.vertices.indexOf(vert));
-            }
+        this(layout, false, vertex, vertices);
+    }
+
+    /**
+     * Create a mesh.
+     *
+     * @param layout   the vertex layout
+     * @param optimize {@code true} to optimize the triangles and vertices order
+     *                 with {@link MeshOptimizer}
+     * @param vertex   the first vertex
+     * @param vertices the other vertices
+     * @since 0.2.0
+     */
+    public SimpleMesh(VertexLayout layout,
+                      boolean optimize,
+                      GLVertex vertex,
+                      GLVertex... vertices) {
+        this(layout, concat(vertex, vertices), 0.0f, optimize);
+    }
+
+    /**
+     * Create a mesh. The duplicated vertices are welded by {@link VertexWelder}.
+     *
+     * @param layout   the vertex layout
+     * @param vertices the vertices
+     * @param epsilon  the epsilon of welding; {@code 0} for the exact welding
+     * @param optimize {@code true} to optimize the triangles and vertices order
+     *                 with {@link MeshOptimizer}
+     * @since 0.2.0
+     */
+    public SimpleMesh(VertexLayout layout,
+                      List<GLVertex> vertices,
+                      float epsilon,
+                      boolean optimize) {
+        var welded = VertexWelder.weld(layout, vertices, epsilon);
+        if (optimize && welded.indices().length % 3 == 0) {
+            var result = MeshOptimizer.optimize(welded.indices(), welded.vertices(), true);
+            this.vertices = result.vertices();
+            this.indices = result.indices();
+        } else {
+            this.vertices = welded.vertices();
+            this.indices = welded.indices();
         }
         genGLObj(layout);
     }
 
+    private static List<GLVertex> concat(GLVertex vertex, GLVertex... vertices) {
+        var list = new ArrayList<GLVertex>(vertices.length + 1);
+        list.add(vertex);
+        Collections.addAll(list, vertices);
+        return list;
+    }
+
     private void genGLObj(VertexLayout layout) {
         vao = glGenVertexArrays();
-        glBindVertexArray(vao);
+        GLStateMgr.bindVertexArray(vao);
 
         var buf = memAlloc(layout.getStride() * vertices.size());
-        for (var vert : vertices) {
-            layout.forEachFormat((format, offset, index) -> {
-                switch (format) {
-                    case V2F, V3F, V4F -> format.processBuffer(buf, vert.x, vert.y, vert.z, 1.0f);
-                    case C3UB, C4UB -> format.processBuffer(buf, vert.r, vert.g, vert.b, vert.a);
-                    case C3F, C4F ->
-                        format.processBuffer(buf, byte2color(vert.r), byte2color(vert.g), byte2color(vert.b), byte2color(vert.a));
-                    case T2F, T3F -> format.processBuffer(buf, vert.s, vert.t, vert.p, 1.0f);
-                    case N3F -> format.processBuffer(buf, vert.nx, vert.ny, vert.nz, null);
-                    case N3B ->
-                        format.processBuffer(buf, normal2byte(vert.nx), normal2byte(vert.ny), normal2byte(vert.nz), null);
-                    case GENERIC -> {
-                    }
-                    default -> throw new RuntimeException("The vertex format " + format.name() + " isn't supported!");
-                }
-            });
-        }
+        layout.getWriter().writeAll(vertices, buf);
         buf.flip();
         vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, vbo);
         glBufferData(GL_ARRAY_BUFFER, buf, GL_STATIC_DRAW);
         memFree(buf);
 
-        var indexBuf = memAllocInt(indices.size());
-        for (int i : indices) {
-            indexBuf.put(i);
-        }
-        indexBuf.flip();
+        var indexBuf = memAllocInt(indices.length);
+        indexBuf.put(indices).flip();
         ebo = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+        GLStateMgr.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
         glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuf, GL_STATIC_DRAW);
         memFree(indexBuf);
 
         layout.beginDraw();
 
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
+        GLStateMgr.bindBuffer(GL_ARRAY_BUFFER, 0);
+        GLStateMgr.bindVertexArray(0);
     }
 
     public void setupMaterial() {
@@ -149,9 +174,47 @@ public class SimpleMesh implements AutoCloseable {
      */
     public void render(GLDrawMode mode) {
         setupMaterial();
-        glBindVertexArray(vao);
-        glDrawElements(mode.getGlType(), indices.size(), GL_UNSIGNED_INT, 0L);
-        glBindVertexArray(0);
+        GLStateMgr.bindVertexArray(vao);
+        glDrawElements(mode.getGlType(), indices.length, GL_UNSIGNED_INT, 0L);
+        GLStateMgr.bindVertexArray(0);
+    }
+
+    /**
+     * Render an instance for each element of the instance buffer, in one draw call.
+     *
+     * @param mode      draw mode
+     * @param instances the per-instance attributes
+     * @since 0.2.0
+     */
+    public void renderInstanced(GLDrawMode mode, GLInstanceBuffer<?> instances) {
+        setupMaterial();
+        GLStateMgr.bindVertexArray(vao);
+        instances.drawElements(mode, indices.length, GLDataType.UNSIGNED_INT, 0L);
+        GLStateMgr.bindVertexArray(0);
+    }
+
+    /**
+     * Submits the draw into the render queue instead of drawing immediately.
+     *
+     * @param queue   the render queue
+     * @param program the program id
+     * @param depth   the normalized view depth
+     * @return the queue
+     * @since 0.2.0
+     */
+    public GLRenderQueue submit(GLRenderQueue queue, int program, float depth) {
+        var cmd = queue.command()
+            .program(program)
+            .vertexArray(vao)
+            .depth(depth);
+        final var mtl = getMaterial();
+        if (mtl != null) {
+            for (int i = mtl.getMinUnit(), u = Math.min(mtl.getMaxUnit() + 1, GLRenderQueue.MAX_TEXTURE_UNITS); i < u; i++) {
+                final int unit = i;
+                mtl.getTexture(i).ifPresent(tex -> cmd.texture(unit, tex.getId()));
+            }
+        }
+        return cmd.drawElements(getDrawMode(), indices.length, GLDataType.UNSIGNED_INT, 0L);
     }
 
     /**
@@ -167,6 +230,9 @@ public class SimpleMesh implements AutoCloseable {
     public void close() {
         if (closed)
             return;
+        GLStateMgr.onBufferDeleted(vbo);
+        GLStateMgr.onBufferDeleted(ebo);
+        GLStateMgr.onVertexArrayDeleted(vao);
         glDeleteBuffers(vbo);
         glDeleteBuffers(ebo);
         glDeleteVertexArrays(vao);
@@ -0,0 +1,262 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.util;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The growable {@code int} list without boxing.
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class IntArrayList {
+    private static final int[] EMPTY = {};
+    private int[] elements;
+    private int size;
+
+    /**
+     * Create an empty list.
+     */
+    public IntArrayList() {
+        elements = EMPTY;
+    }
+
+    /**
+     * Create a list with the initial capacity.
+     *
+     * @param capacity the initial capacity
+     */
+    public IntArrayList(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        elements = capacity == 0 ? EMPTY : new int[capacity];
+    }
+
+    /**
+     * Create a list with the elements.
+     *
+     * @param elements the elements, copied
+     * @return the list
+     */
+    public static IntArrayList of(int... elements) {
+        var list = new IntArrayList(elements.length);
+        return list.addAll(elements);
+    }
+
+    /**
+     * Ensures the capacity of the list.
+     *
+     * @param minCapacity the min capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            int newCapacity = Math.max(minCapacity, elements.length + (elements.length >> 1));
+            elements = Arrays.copyOf(elements, Math.max(newCapacity, 10));
+        }
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @param e the element
+     * @return this
+     */
+    public IntArrayList add(int e) {
+        ensureCapacity(size + 1);
+        elements[size++] = e;
+        return this;
+    }
+
+    /**
+     * Adds the elements.
+     *
+     * @param es the elements
+     * @return this
+     */
+    public IntArrayList addAll(int... es) {
+        ensureCapacity(size + es.length);
+        System.arraycopy(es, 0, elements, size, es.length);
+        size += es.length;
+        return this;
+    }
+
+    /**
+     * Adds the elements of the other list.
+     *
+     * @param other the other list
+     * @return this
+     */
+    public IntArrayList addAll(IntArrayList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.elements, 0, elements, size, other.size);
+        size += other.size;
+        return this;
+    }
+
+    /**
+     * Gets the element.
+     *
+     * @param index the index
+     * @return the element
+     */
+    public int get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Sets the element.
+     *
+     * @param index the index
+     * @param e     the element
+     * @return the previous element
+     */
+    public int set(int index, int e) {
+        checkIndex(index);
+        var prev = elements[index];
+        elements[index] = e;
+        return prev;
+    }
+
+    /**
+     * Removes the element at the index, and shifts the later elements.
+     *
+     * @param index the index
+     * @return the removed element
+     */
+    public int removeAt(int index) {
+        checkIndex(index);
+        var e = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        --size;
+        return e;
+    }
+
+    /**
+     * Gets the index of the first element equal to {@code e}.
+     *
+     * @param e the element
+     * @return the index, or {@code -1} if not found
+     */
+    public int indexOf(int e) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == e)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the element count.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Is this list empty.
+     *
+     * @return is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all elements. The capacity is kept.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Shrinks the capacity to the size.
+     */
+    public void trimToSize() {
+        if (size < elements.length)
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Performs the action for each element.
+     *
+     * @param action the action
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    /**
+     * Get the backing array. Only the first {@link #size()} elements are valid,
+     * and the array is replaced when the list grows.
+     *
+     * @return the backing array
+     */
+    public int[] elements() {
+        return elements;
+    }
+
+    /**
+     * Copies the elements into a new array.
+     *
+     * @return the array
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Puts all elements into the buffer from its position, and advances the position.
+     *
+     * @param buffer the dest buffer
+     * @return the buffer
+     */
+    public IntBuffer put(IntBuffer buffer) {
+        return buffer.put(elements, 0, size);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -74,6 +74,7 @@ public final class ListArrays {
      *
      * @param collection the list
      * @return the float array
+     * @see FloatArrayList#toArray()
      */
     @Contract("null -> null")
     public static float[] toFloatArray(Collection<Float> collection) {
@@ -95,6 +96,7 @@ public final class ListArrays {
      *
      * @param collection the list
      * @return the int array
+     * @see IntArrayList#toArray()
      */
     @Contract("null -> null")
     public static int[] toIntArray(Collection<Integer> collection) {
@@ -102,7 +104,13 @@ public final class ListArrays {
             return null;
         if (collection.isEmpty())
             return new int[0];
-        return collection.stream().mapToInt(value -> value).toArray();
+        int[] ints = new int[collection.size()];
+        int i = 0;
+        for (var e : collection) {
+            ints[i] = e;
+            ++i;
+        }
+        return ints;
     }
 
     /**
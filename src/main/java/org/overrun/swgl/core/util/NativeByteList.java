@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.overrun.swgl.core.util;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The growable off-heap byte list backed by {@link org.lwjgl.system.MemoryUtil MemoryUtil}.
+ * <p>
+ * The list must be {@link #close() closed} to free the memory.
+ * The address is changed when the list grows.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public class NativeByteList implements AutoCloseable {
+    private long address = NULL;
+    private long capacity;
+    private long size;
+
+    /**
+     * Create an empty list.
+     */
+    public NativeByteList() {
+    }
+
+    /**
+     * Create a list with the initial capacity in bytes.
+     *
+     * @param capacity the initial capacity
+     */
+    public NativeByteList(long capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Ensures the capacity of the list in bytes.
+     *
+     * @param minCapacity the min capacity
+     */
+    public void ensureCapacity(long minCapacity) {
+        if (minCapacity > capacity) {
+            long newCapacity = Math.max(Math.max(minCapacity, capacity + (capacity >> 1)), 64);
+            address = nmemReallocChecked(address, newCapacity);
+            capacity = newCapacity;
+        }
+    }
+
+    /**
+     * Appends the uninitialized bytes.
+     *
+     * @param bytes the byte count
+     * @return the address of the appended bytes
+     */
+    public long append(long bytes) {
+        ensureCapacity(size + bytes);
+        long p = address + size;
+        size += bytes;
+        return p;
+    }
+
+    public NativeByteList putByte(byte value) {
+        memPutByte(append(1), value);
+        return this;
+    }
+
+    public NativeByteList putShort(short value) {
+        memPutShort(append(2), value);
+        return this;
+    }
+
+    public NativeByteList putInt(int value) {
+        memPutInt(append(4), value);
+        return this;
+    }
+
+    public NativeByteList putFloat(float value) {
+        memPutFloat(append(4), value);
+        return this;
+    }
+
+    public NativeByteList putLong(long value) {
+        memPutLong(append(8), value);
+        return this;
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer. The buffer position is not changed.
+     *
+     * @param src the source buffer
+     * @return this
+     */
+    public NativeByteList put(ByteBuffer src) {
+        int len = src.remaining();
+        memCopy(memAddress(src), append(len), len);
+        return this;
+    }
+
+    public byte getByte(long offset) {
+        checkOffset(offset, 1);
+        return memGetByte(address + offset);
+    }
+
+    public short getShort(long offset) {
+        checkOffset(offset, 2);
+        return memGetShort(address + offset);
+    }
+
+    public int getInt(long offset) {
+        checkOffset(offset, 4);
+        return memGetInt(address + offset);
+    }
+
+    public float getFloat(long offset) {
+        checkOffset(offset, 4);
+        return memGetFloat(address + offset);
+    }
+
+    public long getLong(long offset) {
+        checkOffset(offset, 8);
+        return memGetLong(address + offset);
+    }
+
+    /**
+     * Copies all bytes into the buffer from its position, and advances the position.
+     *
+     * @param dst the dest buffer
+     * @return the buffer
+     */
+    public ByteBuffer copyTo(ByteBuffer dst) {
+        if (size > dst.remaining())
+            throw new IndexOutOfBoundsException("Size " + size + " out of bounds for remaining " + dst.remaining());
+        int pos = dst.position();
+        memCopy(address, memAddress(dst), size);
+        return dst.position(pos + (int) size);
+    }
+
+    /**
+     * Creates a buffer view of the bytes. The view is invalid after the list grows or closes.
+     *
+     * @return the buffer view, or {@code null} if nothing was allocated
+     */
+    public ByteBuffer asBuffer() {
+        return address == NULL ? null : memByteBuffer(address, Math.toIntExact(size));
+    }
+
+    /**
+     * Get the address of the bytes.
+     *
+     * @return the address
+     */
+    public long address() {
+        return address;
+    }
+
+    /**
+     * Get the byte count.
+     *
+     * @return the size
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get the capacity in bytes.
+     *
+     * @return the capacity
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Is this list empty.
+     *
+     * @return is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all bytes. The capacity is kept.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    private void checkOffset(long offset, int bytes) {
+        if (offset < 0 || offset + bytes > size)
+            throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for size " + size);
+    }
+
+    @Override
+    public void close() {
+        nmemFree(address);
+        address = NULL;
+        capacity = 0;
+        size = 0;
+    }
+}
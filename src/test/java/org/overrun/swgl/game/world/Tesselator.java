@@ -38,7 +38,7 @@ public class Tesselator implements AutoCloseable {
     private GLBatch batch;
 
     public void init() {
-        batch = new GLBatch();
+        batch = new GLBatch(true, true);
     }
 
     public void start() {
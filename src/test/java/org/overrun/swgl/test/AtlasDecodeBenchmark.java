@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.test;
+
+import org.overrun.swgl.core.asset.tex.atlas.SpriteDecoder;
+import org.overrun.swgl.core.asset.tex.atlas.SpriteInfo;
+import org.overrun.swgl.core.io.IFileProvider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.lwjgl.stb.STBImageWrite.stbi_write_png;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Compares the sprite decoding of the atlas with different thread counts on the CPU.
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class AtlasDecodeBenchmark {
+    private static final int COUNT = 2000;
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int ROUNDS = 3;
+
+    private static List<String> writeSprites(Path dir) {
+        var random = new Random(COUNT);
+        var names = new ArrayList<String>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            int w = 16 + random.nextInt(113), h = 16 + random.nextInt(113);
+            var pixels = memAlloc(w * h * 4);
+            for (int j = 0; j < w * h; j++) {
+                // Noisy color bands so the PNG doesn't compress to nothing
+                pixels.putInt(j * 4, (j / w * 0x010203) ^ (random.nextInt(16) << 24) | 0xff000000);
+            }
+            var name = dir.resolve("sprite" + i + ".png").toString();
+            stbi_write_png(name, w, h, 4, pixels, w * 4);
+            memFree(pixels);
+            names.add(name);
+        }
+        return names;
+    }
+
+    private static long run(List<String> names, int threads) {
+        var infos = new ArrayList<SpriteInfo>(names.size());
+        for (var name : names) {
+            infos.add(new SpriteInfo(name, IFileProvider.LOCAL));
+        }
+        var pool = new ForkJoinPool(threads);
+        final long start = System.nanoTime();
+        try (var decoder = new SpriteDecoder(infos, pool)) {
+            decoder.awaitSizes();
+            while (decoder.hasNext()) {
+                decoder.next().free();
+            }
+        }
+        final long time = System.nanoTime() - start;
+        pool.shutdown();
+        return time;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var dir = Files.createTempDirectory("swgl-atlas");
+        var names = writeSprites(dir);
+        run(names, 1);
+        System.out.printf("%7s %12s %8s%n", "threads", "time", "speedup");
+        long base = 0;
+        for (int threads : THREADS) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; i++) {
+                best = Math.min(best, run(names, threads));
+            }
+            if (threads == 1) base = best;
+            System.out.printf("%7d %9.2f ms %7.2fx%n", threads, best / 1_000_000.0, (double) base / best);
+        }
+        for (var name : names) {
+            Files.deleteIfExists(Path.of(name));
+        }
+        Files.deleteIfExists(dir);
+    }
+}
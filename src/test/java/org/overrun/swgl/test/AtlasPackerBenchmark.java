@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.test;
+
+import org.overrun.swgl.core.asset.tex.atlas.*;
+import org.overrun.swgl.core.util.math.Numbers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the atlas packers with random sprite sizes on the CPU.
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class AtlasPackerBenchmark {
+    private static final int[] COUNTS = {1000, 5000, 10000, 20000};
+    private static final int ROUNDS = 3;
+
+    private static List<AtlasSpriteSlot> randomSlots(int count, long seed) {
+        var random = new Random(seed);
+        var slots = new ArrayList<AtlasSpriteSlot>(count);
+        for (int i = 0; i < count; i++) {
+            slots.add(new AtlasSpriteSlot(8 + random.nextInt(121), 8 + random.nextInt(121)));
+        }
+        return slots;
+    }
+
+    private static void run(String name, Supplier<IAtlasPacker> factory, int count, boolean pot) {
+        AtlasPackStats stats = null;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            stats = factory.get().pack(randomSlots(count, count));
+            best = Math.min(best, stats.packNanos());
+        }
+        int width = stats.width(), height = stats.height();
+        if (pot) {
+            width = Numbers.toPoT(width);
+            height = Numbers.toPoT(height);
+        }
+        final double occupancy = (double) stats.spriteArea() / ((long) width * height);
+        System.out.printf("%6d  %-22s %6d x %-6d %7.2f%% %10.2f ms%n",
+            count, name, width, height, occupancy * 100.0, best / 1_000_000.0);
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%6s  %-22s %15s %8s %13s%n", "count", "packer", "atlas", "occupied", "time");
+        for (int count : COUNTS) {
+            run("GrowingPacker (PoT)", GrowingPacker::new, count, true);
+            run("GrowingPacker", GrowingPacker::new, count, false);
+            run("MaxRectsPacker", MaxRectsPacker::new, count, false);
+            run("MaxRectsPacker rotated", () -> new MaxRectsPacker().allowRotation(true), count, false);
+            run("SkylinePacker", SkylinePacker::new, count, false);
+            run("SkylinePacker rotated", () -> new SkylinePacker().allowRotation(true), count, false);
+        }
+    }
+}
@@ -35,11 +35,11 @@ import org.overrun.swgl.core.gl.*;
 import org.overrun.swgl.core.gl.shader.GLShaders;
 import org.overrun.swgl.core.io.ResManager;
 import org.overrun.swgl.core.model.VertexFormat;
+import org.overrun.swgl.core.util.FloatArrayList;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.time.LocalTime;
-import java.util.ArrayList;
 
 import static org.lwjgl.opengl.GL30C.*;
 import static org.lwjgl.stb.STBEasyFont.*;
@@ -226,7 +226,7 @@ public final class ClockDrawApp extends GlfwApplication {
         circle = new VAObj(buf.flip(), null, GL15C::glBufferData, null);
         memFree(buf);
 
-        var vert = new ArrayList<Float>();
+        var vert = new FloatArrayList();
         stb_easy_font_spacing(-0.5f);
         for (int i = 1; i < 13; i++) {
             model.pushMatrix();
@@ -261,15 +261,12 @@ public final class ClockDrawApp extends GlfwApplication {
         }
         textVertCount = vert.size();
         buf = memAllocFloat(textVertCount);
+        vert.put(buf);
         int[] idxBuf = new int[3 * textVertCount / 2];
         int curr = 0;
         int idx = 0;
         // stride in 8 floats
         for (int i = 0; i < textVertCount; i += 8) {
-            // stride in 2 floats
-            for (int j = 0; j < 8; j += 2) {
-                buf.put(vert.get(i + j)).put(vert.get(i + j + 1));
-            }
             // 0 1 2 2 3 0
             idxBuf[curr++] = idx++;
             idxBuf[curr++] = idx++;
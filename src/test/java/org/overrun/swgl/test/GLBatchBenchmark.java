@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.test;
+
+import org.lwjgl.BufferUtils;
+import org.overrun.swgl.core.gl.GLBatch;
+import org.overrun.swgl.core.gl.GLVertex;
+import org.overrun.swgl.core.model.VertexLayout;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.overrun.swgl.core.model.VertexFormat.*;
+
+/**
+ * Compares the direct-write mode of {@link GLBatch} with the staged mode on the CPU,
+ * and reports the time and the allocated heap bytes per vertex.
+ * <p>
+ * The staged mode no longer allocates per vertex, since it stages off-heap
+ * {@link GLVertex} records. The {@code boxed} mode reproduces the old staged path:
+ * a {@code new GLVertex} per vertex in a list, written with the boxing
+ * {@link GLVertex#processBuffer(org.overrun.swgl.core.model.VertexFormat, ByteBuffer) processBuffer}.
+ * </p>
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class GLBatchBenchmark {
+    private static final int[] COUNTS = {10_000, 100_000, 1_000_000};
+    private static final int WARMUP = 20;
+    private static final int ROUNDS = 20;
+    private static final VertexLayout LAYOUT = new VertexLayout(V3F, C4UB, T2F, N3B);
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private interface Filler {
+        void fill(int count);
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void fill(GLBatch batch, int count) {
+        batch.begin(LAYOUT, count);
+        for (int i = 0; i < count; i++) {
+            final float f = i * 0.001f;
+            batch.vertex(f, f + 1.0f, f + 2.0f)
+                .color(1.0f, 0.5f, 0.25f, 1.0f)
+                .texCoord(f, 1.0f - f)
+                .normal(0.0f, 1.0f, 0.0f)
+                .emit();
+        }
+        batch.end();
+    }
+
+    private static void fillBoxed(List<GLVertex> vertices, GLVertex vertex, ByteBuffer buffer, int count) {
+        vertices.clear();
+        buffer.clear();
+        for (int i = 0; i < count; i++) {
+            final float f = i * 0.001f;
+            vertex.x(f).y(f + 1.0f).z(f + 2.0f)
+                .r((byte) 255).g((byte) 127).b((byte) 63).a((byte) 255)
+                .s(f).t(1.0f - f)
+                .nx(0.0f).ny(1.0f).nz(0.0f);
+            vertices.add(new GLVertex(vertex));
+        }
+        for (var v : vertices) {
+            LAYOUT.forEachFormat((format, offset, index) -> v.processBuffer(format, buffer));
+        }
+        buffer.flip();
+    }
+
+    private static void run(String name, int count, Filler filler) {
+        for (int i = 0; i < WARMUP; i++) {
+            filler.fill(count);
+        }
+        long best = Long.MAX_VALUE;
+        final long allocStart = allocatedBytes();
+        for (int i = 0; i < ROUNDS; i++) {
+            final long start = System.nanoTime();
+            filler.fill(count);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        final long allocated = allocatedBytes() - allocStart;
+        System.out.printf("%8d  %-8s %10.2f ms %8.2f ns/vertex %8.2f B/vertex%n",
+            count, name, best / 1_000_000.0, (double) best / count,
+            (double) allocated / ((long) ROUNDS * count));
+    }
+
+    private static void run(String name, boolean directWrite, int count) {
+        var batch = new GLBatch(true, directWrite);
+        run(name, count, n -> fill(batch, n));
+        batch.close();
+    }
+
+    private static void runBoxed(int count) {
+        var vertices = new ArrayList<GLVertex>(count);
+        var vertex = new GLVertex();
+        var buffer = BufferUtils.createByteBuffer(LAYOUT.getStride() * count);
+        run("boxed", count, n -> fillBoxed(vertices, vertex, buffer, n));
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%8s  %-8s %13s %17s %17s%n", "count", "mode", "time", "per vertex", "alloc");
+        for (int count : COUNTS) {
+            runBoxed(count);
+            run("staged", false, count);
+            run("direct", true, count);
+        }
+    }
+}
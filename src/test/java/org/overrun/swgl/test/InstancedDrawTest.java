@@ -27,10 +27,8 @@ package org.overrun.swgl.test;
 import org.lwjgl.opengl.GL15C;
 import org.overrun.swgl.core.GlfwApplication;
 import org.overrun.swgl.core.cfg.WindowConfig;
-import org.overrun.swgl.core.gl.GLDataType;
-import org.overrun.swgl.core.gl.GLProgram;
-import org.overrun.swgl.core.gl.GLVao;
-import org.overrun.swgl.core.gl.IGLBuffer;
+import org.joml.Vector2f;
+import org.overrun.swgl.core.gl.*;
 import org.overrun.swgl.core.gl.shader.GLShaders;
 import org.overrun.swgl.core.io.IFileProvider;
 import org.overrun.swgl.core.io.ResManager;
@@ -38,8 +36,6 @@ import org.overrun.swgl.core.model.VertexFormat;
 import org.overrun.swgl.core.model.VertexLayout;
 
 import static org.lwjgl.opengl.GL33C.*;
-import static org.lwjgl.system.MemoryUtil.memAllocFloat;
-import static org.lwjgl.system.MemoryUtil.memFree;
 import static org.overrun.swgl.core.gl.GLClear.*;
 
 /**
@@ -55,7 +51,8 @@ public final class InstancedDrawTest extends GlfwApplication {
     private static final int QUAD_COUNT = 400;
     private GLProgram program;
     private GLVao vao;
-    private IGLBuffer.Single vbo, instanceVbo;
+    private IGLBuffer.Single vbo;
+    private GLInstanceBuffer<Vector2f> instances;
 
     @Override
     public void prepare() {
@@ -74,17 +71,18 @@ public final class InstancedDrawTest extends GlfwApplication {
             "shaders/instanced_draw/shader.frag",
             FILE_PROVIDER);
 
-        var transitions = memAllocFloat(QUAD_COUNT * 2);
+        instances = resManager.addResource(new GLInstanceBuffer<>(2,
+            (transition, address) -> transition.getToAddress(address),
+            GLInstanceBuffer.Attrib.V2F));
         final int mul = QUAD_COUNT / (int) Math.sqrt(QUAD_COUNT) / 10;
         final float offset = 0.1f / mul;
         int c = 10 * mul;
         for (int y = -c; y < c; y += 2) {
             for (int x = -c; x < c; x += 2) {
-                transitions.put((float) x / c + offset)
-                    .put((float) y / c + offset);
+                instances.add(new Vector2f((float) x / c + offset, (float) y / c + offset));
             }
         }
-        transitions.flip();
+        instances.upload();
 
         final float v = 0.05f / mul;
         vao = resManager.addResource(new GLVao())
@@ -106,17 +104,7 @@ public final class InstancedDrawTest extends GlfwApplication {
                     VertexFormat.V2F.beginDraw(0, stride, 0);
                     VertexFormat.C3F.beginDraw(1, stride, GLDataType.FLOAT.getLength(2));
                 }))
-            .withAction(() -> instanceVbo = resManager.addResource(new IGLBuffer.Single())
-                .layout(GL_ARRAY_BUFFER, GL_STATIC_DRAW)
-                .bind()
-                .data(transitions, GL15C::glBufferData)
-                .withAction(() -> {
-                    memFree(transitions);
-                    VertexFormat.V2F.beginDraw(2, GLDataType.FLOAT.getLength(2), 0);
-                    glVertexAttribDivisor(2, 1);
-                })
-                .unbind()
-            )
+            .withAction(instances::attach)
             .unbind();
     }
 
@@ -126,7 +114,7 @@ public final class InstancedDrawTest extends GlfwApplication {
 
         program.bind();
         vao.bind();
-        glDrawArraysInstanced(GL_TRIANGLES, 0, 6, QUAD_COUNT);
+        instances.drawArrays(GLDrawMode.TRIANGLES, 0, 6);
         vao.unbind();
         program.unbind();
     }
@@ -191,7 +191,7 @@ public final class LightingApp extends GlfwApplication {
             glVertexAttribDivisor(10, 1);
 
         }
-        glBindVertexArray(0);
+        bindVertexArray(0);
 
         // GL Programs
         objectProgram = new GLProgram(
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.test;
+
+import org.overrun.swgl.core.gl.GLBatch;
+import org.overrun.swgl.core.gl.GLMeshBuilder;
+import org.overrun.swgl.core.model.VertexLayout;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.overrun.swgl.core.model.VertexFormat.*;
+
+/**
+ * Measures the throughput of {@link GLMeshBuilder} with different thread counts on the CPU.
+ * The meshes are drained on the main thread without uploading to GL.
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class MeshBuilderBenchmark {
+    private static final int MESHES = 256;
+    private static final int QUADS = 5000;
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int ROUNDS = 3;
+    private static final VertexLayout LAYOUT = new VertexLayout(V3F, C4UB, T2F, N3B);
+
+    private static void tessellate(GLBatch batch, int seed) {
+        for (int q = 0; q < QUADS; q++) {
+            final float x = (q + seed) % 64, z = (float) (q / 64);
+            batch.indexBefore(0, 1, 2, 2, 3, 0);
+            batch.color(1.0f, 1.0f, 1.0f, 1.0f).normal(0.0f, 1.0f, 0.0f);
+            batch.texCoord(0.0f, 0.0f).vertex(x, 0.0f, z).emit();
+            batch.texCoord(0.0f, 1.0f).vertex(x, 0.0f, z + 1.0f).emit();
+            batch.texCoord(1.0f, 1.0f).vertex(x + 1.0f, 0.0f, z + 1.0f).emit();
+            batch.texCoord(1.0f, 0.0f).vertex(x + 1.0f, 0.0f, z).emit();
+        }
+    }
+
+    private static long run(int threads) {
+        var pool = new ForkJoinPool(threads);
+        final long start = System.nanoTime();
+        long bytes = 0;
+        try (var builder = new GLMeshBuilder<Integer>(pool)) {
+            for (int i = 0; i < MESHES; i++) {
+                final int seed = i;
+                builder.submit(seed, LAYOUT, batch -> tessellate(batch, seed));
+            }
+            int uploaded = 0;
+            final long[] sum = {0};
+            while (uploaded < MESHES) {
+                uploaded += builder.upload((key, result) ->
+                    sum[0] += result.vertexBuffer().remaining() + result.compactIndexBuffer().remaining());
+                Thread.yield();
+            }
+            bytes = sum[0];
+        } finally {
+            pool.shutdown();
+        }
+        final long time = System.nanoTime() - start;
+        if (bytes <= 0) {
+            throw new IllegalStateException("No mesh was built");
+        }
+        return time;
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%d meshes of %d vertices, %d processors%n",
+            MESHES, QUADS * 4, Runtime.getRuntime().availableProcessors());
+        run(1);
+        System.out.printf("%7s %12s %14s %8s%n", "threads", "time", "vertices/s", "speedup");
+        long base = 0;
+        for (int threads : THREADS) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; i++) {
+                best = Math.min(best, run(threads));
+            }
+            if (threads == 1) base = best;
+            final double rate = (double) MESHES * QUADS * 4 / (best / 1_000_000_000.0);
+            System.out.printf("%7d %9.2f ms %14.0f %7.2fx%n", threads, best / 1_000_000.0, rate, (double) base / best);
+        }
+    }
+}
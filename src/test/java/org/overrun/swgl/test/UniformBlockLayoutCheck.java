@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.test;
+
+import org.overrun.swgl.core.gl.GLUniformBlock;
+import org.overrun.swgl.core.gl.GLUniformBlock.Member;
+
+import static org.overrun.swgl.core.gl.GLUniformType.*;
+
+/**
+ * Checks the std140 layout of {@link GLUniformBlock} against the offsets
+ * computed by hand from the rules of the GLSL specification, on the CPU.
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class UniformBlockLayoutCheck {
+    /**
+     * <pre>{@code layout (std140) uniform Block {
+     *     float a;
+     *     vec3 b;
+     *     float c;
+     *     float d[3];
+     *     mat2x3 e;
+     *     mat3 f;
+     *     vec2 g;
+     *     dmat3 h;
+     *     dvec3 i[2];
+     *     vec3 k[2];
+     *     mat4 m[2];
+     *     int j;
+     * };}</pre>
+     */
+    private static final Member[] MEMBERS = {
+        new Member("a", F1),
+        new Member("b", F3),
+        new Member("c", F1),
+        new Member("d", F1, 3),
+        new Member("e", M2X3F),
+        new Member("f", M3F),
+        new Member("g", F2),
+        new Member("h", M3D),
+        new Member("i", D3, 2),
+        new Member("k", F3, 2),
+        new Member("m", M4F, 2),
+        new Member("j", I1)
+    };
+    private static final int[] EXPECTED_OFFSETS = {
+        0,   // float: 4-byte aligned
+        16,  // vec3: aligned as vec4
+        28,  // float fits after the vec3
+        32,  // array: aligned to 16
+        80,  // mat2x3: 2 columns of vec3, each 16 bytes
+        112, // mat3: 3 columns of vec3, each 16 bytes
+        160, // vec2: 8-byte aligned
+        192, // dmat3: 3 columns of dvec3, each aligned to 32
+        288, // dvec3 array: aligned to 32
+        352, // vec3 array: aligned to 16
+        384, // mat4 array
+        512  // int
+    };
+    private static final int[] EXPECTED_STRIDES = {0, 0, 0, 16, 0, 0, 0, 0, 32, 16, 64, 0};
+    private static final int EXPECTED_SIZE = 528;
+
+    public static void main(String[] args) {
+        final int[] offsets = new int[MEMBERS.length];
+        final int[] strides = new int[MEMBERS.length];
+        final int size = GLUniformBlock.layoutStd140(MEMBERS, offsets, strides);
+        int failures = 0;
+        for (int i = 0; i < MEMBERS.length; i++) {
+            final boolean ok = offsets[i] == EXPECTED_OFFSETS[i] && strides[i] == EXPECTED_STRIDES[i];
+            if (!ok) ++failures;
+            System.out.printf("%-4s %-6s offset %4d (expected %4d) stride %3d (expected %3d) %s%n",
+                MEMBERS[i].name(), MEMBERS[i].type(),
+                offsets[i], EXPECTED_OFFSETS[i],
+                strides[i], EXPECTED_STRIDES[i],
+                ok ? "ok" : "FAILED");
+        }
+        if (size != EXPECTED_SIZE) ++failures;
+        System.out.printf("size %d (expected %d)%n", size, EXPECTED_SIZE);
+        if (failures > 0) {
+            throw new IllegalStateException(failures + " check(s) failed");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.test;
+
+import org.overrun.swgl.core.gl.GLVertex;
+import org.overrun.swgl.core.model.VertexLayout;
+import org.overrun.swgl.core.model.VertexWelder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.overrun.swgl.core.model.VertexFormat.*;
+
+/**
+ * Compares {@link VertexWelder} with the old {@link List#indexOf(Object) indexOf}
+ * deduplication of {@link org.overrun.swgl.core.model.simple.SimpleMesh SimpleMesh} on the CPU.
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class VertexWeldBenchmark {
+    private static final int[] COUNTS = {1_000, 10_000, 100_000, 1_000_000};
+    /**
+     * The old path is quadratic; it is skipped above this count.
+     */
+    private static final int MAX_INDEX_OF_COUNT = 20_000;
+    private static final int ROUNDS = 5;
+    private static final VertexLayout LAYOUT = new VertexLayout(T2F, N3F, V3F);
+
+    private static List<GLVertex> randomVertices(int count) {
+        var random = new Random(count);
+        // About a quarter of the vertices are unique
+        final int grid = Math.max((int) Math.cbrt(count / 4.0), 1);
+        var list = new ArrayList<GLVertex>(count);
+        for (int i = 0; i < count; i++) {
+            final float x = random.nextInt(grid), y = random.nextInt(grid), z = random.nextInt(grid);
+            list.add(new GLVertex()
+                .position(x, y, z)
+                .texCoords(x / grid, z / grid)
+                .normal(0.0f, 1.0f, 0.0f));
+        }
+        return list;
+    }
+
+    private static int indexOf(List<GLVertex> vertices) {
+        var unique = new ArrayList<GLVertex>();
+        var indices = new int[vertices.size()];
+        for (int i = 0; i < indices.length; i++) {
+            var vertex = vertices.get(i);
+            int index = unique.indexOf(vertex);
+            if (index < 0) {
+                index = unique.size();
+                unique.add(vertex);
+            }
+            indices[i] = index;
+        }
+        return unique.size();
+    }
+
+    private static int weld(List<GLVertex> vertices) {
+        return VertexWelder.weld(LAYOUT, vertices).vertices().size();
+    }
+
+    private interface Dedup {
+        int run(List<GLVertex> vertices);
+    }
+
+    private static long time(Dedup dedup, List<GLVertex> vertices, int[] unique) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            final long start = System.nanoTime();
+            unique[0] = dedup.run(vertices);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    public static void main(String[] args) {
+        // warm up
+        weld(randomVertices(100_000));
+        indexOf(randomVertices(5_000));
+        System.out.printf("%8s %8s %13s %13s%n", "count", "unique", "indexOf", "welder");
+        for (int count : COUNTS) {
+            var vertices = randomVertices(count);
+            final int[] unique = new int[1];
+            final long welder = time(VertexWeldBenchmark::weld, vertices, unique);
+            final int welded = unique[0];
+            String old = "skipped";
+            if (count <= MAX_INDEX_OF_COUNT) {
+                old = String.format("%10.2f ms", time(VertexWeldBenchmark::indexOf, vertices, unique) / 1_000_000.0);
+                if (unique[0] != welded) {
+                    throw new IllegalStateException("The welder found " + welded + " unique vertices, but indexOf found " + unique[0]);
+                }
+            }
+            System.out.printf("%8d %8d %13s %10.2f ms%n", count, welded, old, welder / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.overrun.swgl.test;
+
+import org.overrun.swgl.core.gl.GLVertex;
+import org.overrun.swgl.core.model.VertexLayout;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.overrun.swgl.core.model.VertexFormat.*;
+
+/**
+ * Compares the compiled {@link org.overrun.swgl.core.model.VertexWriter VertexWriter}
+ * with the per-vertex boxed {@link GLVertex#processBuffer(org.overrun.swgl.core.model.VertexFormat, ByteBuffer) processBuffer}
+ * writes on the CPU.
+ *
+ * @author squid233
+ * @since 0.2.0
+ */
+public final class VertexWriterBenchmark {
+    private static final int COUNT = 100_000;
+    private static final int WARMUP = 10;
+    private static final int ROUNDS = 10;
+    private static final String[] NAMES = {"T2F_C4UB_V3F", "V3F_C4UB_T2F_N3B", "V3F_C4F_T2F_N3F"};
+    private static final VertexLayout[] LAYOUTS = {
+        new VertexLayout(T2F, C4UB, V3F),
+        new VertexLayout(V3F, C4UB, T2F, N3B),
+        new VertexLayout(V3F, C4F, T2F, N3F)
+    };
+
+    private static List<GLVertex> vertices() {
+        var list = new ArrayList<GLVertex>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            final float f = i * 0.001f;
+            list.add(new GLVertex()
+                .position(f, f + 1.0f, f + 2.0f)
+                .color(1.0f, 0.5f, 0.25f, 1.0f)
+                .texCoords(f, 1.0f - f)
+                .normal(0.0f, 1.0f, 0.0f));
+        }
+        return list;
+    }
+
+    private static void boxed(VertexLayout layout, List<GLVertex> vertices, ByteBuffer buffer) {
+        buffer.clear();
+        for (var vertex : vertices) {
+            layout.forEachFormat((format, offset, index) -> vertex.processBuffer(format, buffer));
+        }
+    }
+
+    private static void compiled(VertexLayout layout, List<GLVertex> vertices, ByteBuffer buffer) {
+        buffer.clear();
+        layout.getWriter().writeAll(vertices, buffer);
+    }
+
+    private interface Writer {
+        void write(VertexLayout layout, List<GLVertex> vertices, ByteBuffer buffer);
+    }
+
+    private static long time(Writer writer, VertexLayout layout, List<GLVertex> vertices, ByteBuffer buffer) {
+        for (int i = 0; i < WARMUP; i++) {
+            writer.write(layout, vertices, buffer);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            final long start = System.nanoTime();
+            writer.write(layout, vertices, buffer);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    public static void main(String[] args) {
+        var vertices = vertices();
+        System.out.printf("%-24s %13s %13s %8s%n", "layout", "boxed", "compiled", "speedup");
+        for (int i = 0; i < LAYOUTS.length; i++) {
+            var layout = LAYOUTS[i];
+            var buffer = memAlloc(layout.getStride() * COUNT);
+            final long boxed = time(VertexWriterBenchmark::boxed, layout, vertices, buffer);
+            final long compiled = time(VertexWriterBenchmark::compiled, layout, vertices, buffer);
+            System.out.printf("%-24s %10.2f ms %10.2f ms %7.2fx%n",
+                NAMES[i], boxed / 1_000_000.0, compiled / 1_000_000.0, (double) boxed / compiled);
+            memFree(buffer);
+        }
+    }
+}